@@ -0,0 +1,117 @@
+package com.pos.bench;
+
+import com.pos.logging.LogManager;
+import com.pos.model.HashItemCatalog;
+import com.pos.model.Inventory;
+import com.pos.model.Item;
+import com.pos.model.NumericItemCatalog;
+import com.pos.model.TransactionItem;
+import com.pos.persistence.MappedItemCatalog;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Shared fixtures for the benchmarks
+final class BenchmarkData {
+    // Large enough that a benchmark iteration never runs out of stock
+    static final int UNLIMITED_STOCK = 1_000_000_000;
+
+    private BenchmarkData() {
+    }
+
+    // UPC-style 12 digit barcodes, like the real catalog
+    static String barcode(int index) {
+        return String.format("%012d", 100_000_000_000L + index);
+    }
+
+    static Inventory inventory(int itemCount, int stock) {
+        return inventory(itemCount, stock, "hash");
+    }
+
+    // catalog: "hash" (barcode strings), "numeric" (long-keyed table) or "mapped" (catalog file, items loaded on first lookup)
+    static Inventory inventory(int itemCount, int stock, String catalog) {
+        if (catalog.equals("mapped")) {
+            return mappedInventory(itemCount, stock);
+        }
+        Inventory inventory = new Inventory(catalog.equals("numeric") ? new NumericItemCatalog(itemCount) : new HashItemCatalog());
+        for (int i = 0; i < itemCount; i++) {
+            inventory.addItem(item(i, stock));
+        }
+        return inventory;
+    }
+
+    private static Item item(int index, int stock) {
+        return new Item(barcode(index), "Benchmark item " + index, 25 + (index % 400) * 5L, stock);
+    }
+
+    private static Inventory mappedInventory(int itemCount, int stock) {
+        try {
+            Path file = Files.createTempFile("bench-catalog", ".bin");
+            file.toFile().deleteOnExit();
+            List<Item> items = new ArrayList<>(itemCount);
+            for (int i = 0; i < itemCount; i++) {
+                items.add(item(i, stock));
+            }
+            MappedItemCatalog.write(file, items);
+            return new Inventory(MappedItemCatalog.open(file));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String[] barcodes(int itemCount) {
+        String[] barcodes = new String[itemCount];
+        for (int i = 0; i < itemCount; i++) {
+            barcodes[i] = barcode(i);
+        }
+        return barcodes;
+    }
+
+    // One line per distinct item, quantity 1
+    static List<TransactionItem> basket(Inventory inventory, int lines) {
+        List<TransactionItem> basket = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            basket.add(new TransactionItem(inventory.findItemByBarcode(barcode(i)).orElseThrow(), 1));
+        }
+        return basket;
+    }
+
+    static void resetStock(Inventory inventory, int stock) {
+        inventory.forEachItem(item -> item.restoreStockState(stock, item.getStockVersion()));
+    }
+
+    // Keeps the remaining console prints (warnings, imports) out of the benchmark output
+    static void silenceConsole() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    // The services log every sale and return through the async logger; start it as MainApp does, so that cost is measured
+    static Path startLogging() {
+        try {
+            Path directory = Files.createTempDirectory("bench-logs");
+            LogManager.start(directory, "pos", 10L * 1024 * 1024, 5, 8192);
+            return directory;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static void stopLogging(Path directory) {
+        LogManager.shutdown();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
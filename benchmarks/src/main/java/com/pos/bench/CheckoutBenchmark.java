@@ -0,0 +1,74 @@
+package com.pos.bench;
+
+import com.pos.model.*;
+import com.pos.service.InventoryService;
+import com.pos.service.TransactionService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Completing sales and returns; with several threads all lanes hit the same items
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckoutBenchmark {
+
+    @Param({"1", "50", "5000"})
+    public int basketLines;
+
+    // Units per line on the purchase the returns are made against; more than one iteration can return
+    private static final int RETURNABLE_UNITS = 100_000_000;
+
+    private Inventory inventory;
+    private InventoryService inventoryService;
+    private TransactionService transactionService;
+    private List<TransactionItem> basket;
+    private String returnableReceiptId;
+    private Path logDirectory;
+    private final Employee cashier = new Cashier("CSH001", "Bench Cashier");
+    private final Employee manager = new Manager("MGR001", "Bench Manager");
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        BenchmarkData.silenceConsole();
+        logDirectory = BenchmarkData.startLogging();
+        inventory = BenchmarkData.inventory(basketLines, BenchmarkData.UNLIMITED_STOCK);
+        inventoryService = new InventoryService(inventory);
+        basket = BenchmarkData.basket(inventory, basketLines);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        BenchmarkData.stopLogging(logDirectory);
+    }
+
+    // A fresh receipt store per iteration keeps memory bounded; stock is topped up again.
+    // Returns are checked against a real purchase, bought in bulk so every invocation has a unit left to return.
+    @Setup(Level.Iteration)
+    public void setUpIteration() throws TransactionService.TransactionException {
+        transactionService = new TransactionService(inventoryService);
+        BenchmarkData.resetStock(inventory, BenchmarkData.UNLIMITED_STOCK);
+        List<TransactionItem> bulk = new ArrayList<>(basket.size());
+        for (TransactionItem line : basket) {
+            bulk.add(new TransactionItem(line.getItem(), RETURNABLE_UNITS));
+        }
+        returnableReceiptId = transactionService.processSale(bulk, cashier).getReceiptId();
+        BenchmarkData.resetStock(inventory, BenchmarkData.UNLIMITED_STOCK);
+    }
+
+    @Benchmark
+    public Receipt processSale() throws TransactionService.TransactionException {
+        return transactionService.processSale(basket, cashier);
+    }
+
+    @Benchmark
+    public Receipt processReturn() throws TransactionService.TransactionException {
+        return transactionService.processReturn(returnableReceiptId, basket, manager, null);
+    }
+}
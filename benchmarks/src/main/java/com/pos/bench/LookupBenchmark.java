@@ -0,0 +1,84 @@
+package com.pos.bench;
+
+import com.pos.model.Inventory;
+import com.pos.model.Item;
+import com.pos.service.InventoryService;
+import com.pos.service.ItemLookup;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Barcode resolution, the first step of every scan
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupBenchmark {
+
+    @Param({"1000", "100000", "2000000"})
+    public int catalogSize;
+
+    @Param({"hash", "numeric", "mapped"})
+    public String catalog;
+
+    private Inventory inventory;
+    private InventoryService inventoryService;
+    private String[] barcodes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.silenceConsole();
+        inventory = BenchmarkData.inventory(catalogSize, 100, catalog);
+        inventoryService = new InventoryService(inventory);
+        barcodes = BenchmarkData.barcodes(catalogSize);
+    }
+
+    // Each thread walks the catalog from its own position (a stride through the barcode list)
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        final ItemLookup lookup = new ItemLookup(); // Reused like a register's scan handle
+
+        String nextBarcode(String[] barcodes) {
+            next = (next + 7919) % barcodes.length;
+            return barcodes[next];
+        }
+    }
+
+    @Benchmark
+    public Optional<Item> inventoryFindItemByBarcode(Cursor cursor) {
+        return inventory.findItemByBarcode(cursor.nextBarcode(barcodes));
+    }
+
+    @Benchmark
+    public Optional<Item> serviceFindItem(Cursor cursor) {
+        return inventoryService.findItem(cursor.nextBarcode(barcodes));
+    }
+
+    @Benchmark
+    public boolean serviceIsInventoryItem(Cursor cursor) {
+        return inventoryService.isInventoryItem(cursor.nextBarcode(barcodes));
+    }
+
+    // What a scan used to do: find the item, then ask whether it came from the inventory
+    @Benchmark
+    public boolean serviceFindItemThenIsInventoryItem(Cursor cursor) {
+        String barcode = cursor.nextBarcode(barcodes);
+        return inventoryService.findItem(barcode).isPresent() && inventoryService.isInventoryItem(barcode);
+    }
+
+    // One resolution into a reused handle
+    @Benchmark
+    public boolean serviceLookup(Cursor cursor) {
+        return inventoryService.lookup(cursor.nextBarcode(barcodes), cursor.lookup).isInventoryItem();
+    }
+
+    // Unknown barcode: misses the inventory and falls through to the temporary items
+    @Benchmark
+    public Optional<Item> serviceFindItemMiss() {
+        return inventoryService.findItem("UNKNOWN-BARCODE");
+    }
+}
@@ -0,0 +1,42 @@
+package com.pos.bench;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks twice: single-threaded and with N threads contending for the same
+ * inventory (N = -Dbench.threads, default: number of cores). Each run writes its results
+ * as JSON to results/jmh-1-thread.json and results/jmh-N-threads.json.
+ *
+ * Usage: java [-Dbench.threads=N] -jar target/benchmarks.jar [include regex]
+ */
+public class PosBenchmarks {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "com\\.pos\\.bench\\..*";
+        int contendedThreads = Integer.getInteger("bench.threads", Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+        File resultsDir = new File("results");
+        if (!resultsDir.isDirectory() && !resultsDir.mkdirs()) {
+            throw new IllegalStateException("Cannot create results directory: " + resultsDir.getAbsolutePath());
+        }
+
+        run(include, 1, new File(resultsDir, "jmh-1-thread.json"));
+        run(include, contendedThreads, new File(resultsDir, "jmh-" + contendedThreads + "-threads.json"));
+    }
+
+    private static void run(String include, int threads, File resultFile) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(include)
+                .threads(threads)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultFile.getPath())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,49 @@
+package com.pos.bench;
+
+import com.pos.model.*;
+import com.pos.receipt.ReceiptRenderer;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+// Rendering a receipt (console log, reprints, receipt dialog)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread) // Renderers are not thread-safe, so each thread gets its own
+public class ReceiptBenchmark {
+
+    @Param({"1", "50", "5000"})
+    public int basketLines;
+
+    private Receipt receipt;
+    private ReceiptRenderer plainText;
+    private ReceiptRenderer escPos;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Inventory inventory = BenchmarkData.inventory(basketLines, 100);
+        receipt = new Receipt(BenchmarkData.basket(inventory, basketLines), new Cashier("CSH001", "Bench Cashier"));
+        plainText = ReceiptRenderer.plainText();
+        escPos = ReceiptRenderer.escPos();
+    }
+
+    @Benchmark
+    public String getFormattedReceipt() {
+        return receipt.getFormattedReceipt();
+    }
+
+    // Compiled template into the renderer's reused buffer
+    @Benchmark
+    public ByteBuffer renderPlainText() {
+        return plainText.render(receipt);
+    }
+
+    @Benchmark
+    public ByteBuffer renderEscPos() {
+        return escPos.render(receipt);
+    }
+}
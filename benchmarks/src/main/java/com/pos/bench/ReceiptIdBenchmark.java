@@ -0,0 +1,73 @@
+package com.pos.bench;
+
+import com.pos.model.ReceiptIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Receipt ID generation, once per sale and return (run with N threads to see contention)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReceiptIdBenchmark {
+
+    private ReceiptIdGenerator generator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        generator = new ReceiptIdGenerator("01");
+    }
+
+    // Each benchmark thread acts as its own checkout lane
+    @State(Scope.Thread)
+    public static class Lane {
+        private static final AtomicInteger NEXT_LANE = new AtomicInteger();
+        String laneId;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            laneId = "L" + NEXT_LANE.incrementAndGet();
+        }
+    }
+
+    // Lanes named as in a store (LANE001, LANE002, ...), so prefixes come from the distinguishing digits
+    @State(Scope.Thread)
+    public static class StoreLane {
+        private static final AtomicInteger NEXT_LANE = new AtomicInteger();
+        String laneId;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            laneId = String.format("LANE%03d", NEXT_LANE.incrementAndGet());
+        }
+    }
+
+    // The previous scheme: first 8 hex digits of a random UUID (SecureRandom, may collide)
+    @Benchmark
+    public String uuidPrefix() {
+        return UUID.randomUUID().toString().substring(0, 8).toUpperCase();
+    }
+
+    // All threads share the node counter
+    @Benchmark
+    public String nodeCounter() {
+        return generator.next();
+    }
+
+    // One counter per lane, as used by checkout lanes
+    @Benchmark
+    public String laneCounter(Lane lane) {
+        return generator.next(lane.laneId);
+    }
+
+    // One counter per lane with realistic lane names (a shared counter here would show up as contention)
+    @Benchmark
+    public String storeLaneCounter(StoreLane lane) {
+        return generator.next(lane.laneId);
+    }
+}
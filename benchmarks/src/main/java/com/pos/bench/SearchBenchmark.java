@@ -0,0 +1,65 @@
+package com.pos.bench;
+
+import com.pos.model.Inventory;
+import com.pos.model.Item;
+import com.pos.model.TransactionItem;
+import com.pos.service.InventoryService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Name search as typed into the register's search field (sample mode reports p99)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    private static final String[] BRANDS = {"Acme", "Golden", "Farm Fresh", "Nature's Best", "Sunny", "Blue Lake",
+            "Hill Country", "Kraft", "Valley", "Royal", "Northern", "Organic Choice", "Daily", "Prime", "Harvest"};
+    private static final String[] PRODUCTS = {"Orange Juice", "Apple Juice", "Milk", "Chocolate Bar", "Bread Loaf",
+            "Coffee Beans", "Green Tea", "Peanut Butter", "Strawberry Jam", "Cheddar Cheese", "Greek Yogurt",
+            "Pasta Sauce", "Spaghetti", "Basmati Rice", "Tomato Soup", "Corn Flakes", "Granola", "Olive Oil",
+            "Potato Chips", "Sparkling Water", "Dish Soap", "Paper Towels", "Toothpaste", "Shampoo", "Dog Food"};
+    private static final String[] VARIANTS = {"Original", "Light", "Extra", "Family Size", "Low Fat", "Sugar Free",
+            "Classic", "Mini", "Large", "Value Pack", "Double", "Spicy", "Vanilla", "Whole Grain", "Unsalted"};
+    private static final String[] SIZES = {"100g", "250g", "500g", "1kg", "330ml", "1L", "2L", "6 pack", "12 pack"};
+
+    @Param({"500000"})
+    public int catalogSize;
+
+    // What a cashier has typed so far
+    @Param({"m", "mi", "mil", "milk", "oran ju", "choc bar 100"})
+    public String query;
+
+    private InventoryService inventoryService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData.silenceConsole();
+        Inventory inventory = new Inventory();
+        for (int i = 0; i < catalogSize; i++) {
+            String name = BRANDS[i % BRANDS.length] + " " + PRODUCTS[(i / BRANDS.length) % PRODUCTS.length] + " "
+                    + VARIANTS[(i / 7) % VARIANTS.length] + " " + SIZES[(i / 3) % SIZES.length];
+            inventory.addItem(new Item(BenchmarkData.barcode(i), name, 100 + i % 900, 100));
+        }
+        inventoryService = new InventoryService(inventory);
+        // A week of skewed sales history: a few items sell much more than the rest
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        for (int sale = 0; sale < 200_000; sale++) {
+            double r = random.nextDouble();
+            Item item = inventory.getItem(BenchmarkData.barcode((int) (catalogSize * r * r * r)));
+            inventoryService.recordSales(List.of(new TransactionItem(item, 1)), now.minusMinutes(random.nextInt(7 * 24 * 60)));
+        }
+    }
+
+    @Benchmark
+    public List<Item> searchItems() {
+        return inventoryService.searchItems(query, 10);
+    }
+}
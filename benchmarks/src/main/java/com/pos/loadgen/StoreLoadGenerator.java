@@ -0,0 +1,321 @@
+package com.pos.loadgen;
+
+import com.pos.model.*;
+import com.pos.service.CheckoutEngine;
+import com.pos.service.CheckoutLane;
+import com.pos.service.InventoryService;
+import com.pos.service.TransactionService;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Synthetic store load: hundreds of registers scanning Zipf-distributed barcodes and mixing
+ * sales, returns and restocks against InventoryService / TransactionService directly (no UI).
+ *
+ * At the end it reports sustained transactions/sec, latency percentiles per operation and
+ * stock-consistency violations (items whose final stock differs from
+ * initial - sold + returned + restocked, or that went negative).
+ *
+ * Usage: java -cp target/benchmarks.jar com.pos.loadgen.StoreLoadGenerator [key=value ...]
+ *   registers=200  duration=30 (seconds)  catalog=10000  stock=1000  zipf=1.07
+ *   basket=20 (max lines per sale)  sales=90  returns=5  restocks=5 (relative weights)
+ *   quiet=true (discard the services' console logging)
+ */
+public class StoreLoadGenerator {
+
+    private final int registers;
+    private final int durationSeconds;
+    private final int catalogSize;
+    private final int initialStock;
+    private final int maxBasketLines;
+    private final int saleWeight;
+    private final int returnWeight;
+    private final int restockWeight;
+    private final ZipfDistribution popularity;
+
+    private final Inventory inventory = new Inventory();
+    private final InventoryService inventoryService = new InventoryService(inventory);
+    private final TransactionService transactionService = new TransactionService(inventoryService);
+    private final Employee manager = new Manager("MGR001", "Load Manager");
+
+    // Expected stock movements per item (index = catalog rank), checked against the inventory at the end
+    private final AtomicLongArray sold;
+    private final AtomicLongArray returned;
+    private final AtomicLongArray restocked;
+
+    private final LongAdder salesCompleted = new LongAdder();
+    private final LongAdder salesRejected = new LongAdder(); // Insufficient stock - expected under load
+    private final LongAdder returnsCompleted = new LongAdder();
+    private final LongAdder restocksCompleted = new LongAdder();
+    private final LongAdder unexpectedErrors = new LongAdder();
+
+    private final LatencyHistogram saleLatency = new LatencyHistogram();
+    private final LatencyHistogram returnLatency = new LatencyHistogram();
+    private final LatencyHistogram restockLatency = new LatencyHistogram();
+
+    StoreLoadGenerator(Map<String, String> options) {
+        registers = intOption(options, "registers", 200);
+        durationSeconds = intOption(options, "duration", 30);
+        catalogSize = intOption(options, "catalog", 10_000);
+        initialStock = intOption(options, "stock", 1_000);
+        maxBasketLines = intOption(options, "basket", 20);
+        saleWeight = intOption(options, "sales", 90);
+        returnWeight = intOption(options, "returns", 5);
+        restockWeight = intOption(options, "restocks", 5);
+        double zipfExponent = Double.parseDouble(options.getOrDefault("zipf", "1.07"));
+        if (registers <= 0 || durationSeconds <= 0 || catalogSize <= 0 || maxBasketLines <= 0
+                || saleWeight + returnWeight + restockWeight <= 0) {
+            throw new IllegalArgumentException("Counts, duration and operation weights must be positive.");
+        }
+
+        popularity = new ZipfDistribution(catalogSize, zipfExponent);
+        sold = new AtomicLongArray(catalogSize);
+        returned = new AtomicLongArray(catalogSize);
+        restocked = new AtomicLongArray(catalogSize);
+        for (int rank = 0; rank < catalogSize; rank++) {
+            inventory.addItem(new Item(barcode(rank), "Load item " + rank, 50 + (rank % 200) * 10L, initialStock));
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                System.err.println("Ignoring argument (expected key=value): " + arg);
+                continue;
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        PrintStream console = System.out;
+        StoreLoadGenerator generator = new StoreLoadGenerator(options);
+        if (Boolean.parseBoolean(options.getOrDefault("quiet", "true"))) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            System.setErr(new PrintStream(OutputStream.nullOutputStream()));
+        }
+        long elapsedNanos = generator.run();
+        generator.report(console, elapsedNanos);
+    }
+
+    // --- Load ---
+
+    long run() throws InterruptedException {
+        CheckoutEngine engine = new CheckoutEngine(inventoryService, transactionService);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(registers);
+        List<Register> workers = new ArrayList<>();
+        for (int i = 0; i < registers; i++) {
+            String laneId = String.format("LANE%03d", i + 1);
+            Employee cashier = new Cashier(String.format("CSH%03d", i + 1), "Load Cashier " + (i + 1));
+            Register register = new Register(engine.openLane(laneId, cashier), start, done);
+            workers.add(register);
+            Thread thread = new Thread(register, laneId);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        long deadline = System.nanoTime() + durationSeconds * 1_000_000_000L;
+        for (Register register : workers) {
+            register.deadline = deadline;
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - startNanos;
+        engine.close();
+
+        for (Register register : workers) {
+            saleLatency.merge(register.saleLatency);
+            returnLatency.merge(register.returnLatency);
+            restockLatency.merge(register.restockLatency);
+        }
+        return elapsed;
+    }
+
+    // One simulated register: scans a Zipf basket, commits, and occasionally handles a return or restock
+    private final class Register implements Runnable {
+        private final CheckoutLane lane;
+        private final CountDownLatch start;
+        private final CountDownLatch done;
+        private volatile long deadline;
+
+        private final LatencyHistogram saleLatency = new LatencyHistogram();
+        private final LatencyHistogram returnLatency = new LatencyHistogram();
+        private final LatencyHistogram restockLatency = new LatencyHistogram();
+        private final List<Receipt> recentSales = new ArrayList<>(); // Candidates for returns
+
+        Register(CheckoutLane lane, CountDownLatch start, CountDownLatch done) {
+            this.lane = lane;
+            this.start = start;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int totalWeight = saleWeight + returnWeight + restockWeight;
+                while (System.nanoTime() < deadline) {
+                    int pick = random.nextInt(totalWeight);
+                    if (pick < saleWeight) {
+                        sale(random);
+                    } else if (pick < saleWeight + returnWeight) {
+                        returnItems(random);
+                    } else {
+                        restock(random);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                unexpectedErrors.increment();
+            } finally {
+                done.countDown();
+            }
+        }
+
+        private void sale(ThreadLocalRandom random) {
+            int lines = 1 + random.nextInt(maxBasketLines);
+            long startNanos = System.nanoTime();
+            try {
+                for (int i = 0; i < lines; i++) {
+                    try {
+                        lane.scan(barcode(popularity.sample()));
+                    } catch (TransactionService.TransactionException e) {
+                        // Not enough stock to add another unit while scanning - the cashier skips it
+                    }
+                }
+                if (lane.isEmpty()) {
+                    salesRejected.increment();
+                    return;
+                }
+                Receipt receipt = lane.commit();
+                saleLatency.record(System.nanoTime() - startNanos);
+                salesCompleted.increment();
+                for (TransactionItem line : receipt.getItems()) {
+                    sold.addAndGet(rankOf(line.getItem().getBarcode()), line.getQuantity());
+                }
+                if (recentSales.size() < 64) {
+                    recentSales.add(receipt);
+                } else {
+                    recentSales.set(random.nextInt(recentSales.size()), receipt);
+                }
+            } catch (TransactionService.TransactionException e) {
+                // Another lane took the stock between scan and commit; nothing was sold
+                lane.voidTransaction();
+                salesRejected.increment();
+            }
+        }
+
+        private void returnItems(ThreadLocalRandom random) {
+            if (recentSales.isEmpty()) {
+                return;
+            }
+            Receipt original = recentSales.remove(random.nextInt(recentSales.size()));
+            List<TransactionItem> items = original.getItems();
+            List<TransactionItem> toReturn = List.of(items.get(random.nextInt(items.size())));
+            long startNanos = System.nanoTime();
+            try {
+                transactionService.processReturn(original.getReceiptId(), toReturn, manager, null);
+                returnLatency.record(System.nanoTime() - startNanos);
+                returnsCompleted.increment();
+                for (TransactionItem line : toReturn) {
+                    returned.addAndGet(rankOf(line.getItem().getBarcode()), line.getQuantity());
+                }
+            } catch (TransactionService.TransactionException e) {
+                unexpectedErrors.increment();
+            }
+        }
+
+        private void restock(ThreadLocalRandom random) {
+            int rank = popularity.sample(); // Popular items run out first, so restock them most
+            int quantity = 1 + random.nextInt(50);
+            long startNanos = System.nanoTime();
+            if (inventoryService.restock(barcode(rank), quantity, manager)) {
+                restockLatency.record(System.nanoTime() - startNanos);
+                restocksCompleted.increment();
+                restocked.addAndGet(rank, quantity);
+            } else {
+                unexpectedErrors.increment();
+            }
+        }
+    }
+
+    // --- Report ---
+
+    void report(PrintStream out, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long transactions = salesCompleted.sum() + returnsCompleted.sum() + restocksCompleted.sum();
+
+        out.println("=== Store load generator ===");
+        out.printf("Registers: %d, catalog: %d items, duration: %.1f s%n", registers, catalogSize, seconds);
+        out.printf("Sales completed:   %,d (rejected for stock: %,d)%n", salesCompleted.sum(), salesRejected.sum());
+        out.printf("Returns completed: %,d%n", returnsCompleted.sum());
+        out.printf("Restocks:          %,d%n", restocksCompleted.sum());
+        out.printf("Unexpected errors: %,d%n", unexpectedErrors.sum());
+        out.printf("Throughput:        %,.0f transactions/sec%n", transactions / seconds);
+        printLatency(out, "Sale", saleLatency);
+        printLatency(out, "Return", returnLatency);
+        printLatency(out, "Restock", restockLatency);
+
+        int violations = checkStockConsistency(out);
+        out.println(violations == 0 ? "Stock consistency: OK" : "Stock consistency: " + violations + " VIOLATION(S)");
+    }
+
+    private static void printLatency(PrintStream out, String operation, LatencyHistogram histogram) {
+        if (histogram.count() == 0) {
+            return;
+        }
+        out.printf("%-8s latency (us): p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n", operation,
+                histogram.percentileNanos(50) / 1e3, histogram.percentileNanos(90) / 1e3,
+                histogram.percentileNanos(99) / 1e3, histogram.percentileNanos(99.9) / 1e3,
+                histogram.maxNanos() / 1e3);
+    }
+
+    private int checkStockConsistency(PrintStream out) {
+        int violations = 0;
+        for (int rank = 0; rank < catalogSize; rank++) {
+            Item item = inventory.findItemByBarcode(barcode(rank)).orElse(null);
+            if (item == null) {
+                out.println("  Missing item " + barcode(rank));
+                violations++;
+                continue;
+            }
+            long expected = (long) initialStock - sold.get(rank) + returned.get(rank) + restocked.get(rank);
+            int actual = item.getQuantityInStock();
+            if (actual < 0 || actual != expected) {
+                if (violations < 20) {
+                    out.printf("  Item %s: expected stock %d, actual %d%n", item.getBarcode(), expected, actual);
+                }
+                violations++;
+            }
+        }
+        return violations;
+    }
+
+    // --- Helpers ---
+
+    private static String barcode(int rank) {
+        return String.format("%012d", 200_000_000_000L + rank);
+    }
+
+    private static int rankOf(String barcode) {
+        return (int) (Long.parseLong(barcode) - 200_000_000_000L);
+    }
+
+    private static int intOption(Map<String, String> options, String key, int defaultValue) {
+        String value = options.get(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
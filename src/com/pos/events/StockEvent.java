@@ -0,0 +1,65 @@
+package com.pos.events;
+
+import com.pos.model.Item;
+
+/**
+ * A stock alert for one item. Events of the same type for the same item that are still
+ * waiting to be delivered are coalesced into one (see StockEventBus), so an event may stand
+ * for several occurrences.
+ */
+public final class StockEvent {
+
+    public enum Type {
+        LOW_STOCK,    // Stock fell to or below the item's low stock threshold
+        OUT_OF_STOCK, // Stock reached zero
+        RESTOCKED     // Stock was added
+    }
+
+    private final Type type;
+    private final Item item;
+    private final int quantity;    // Stock right after the (latest) occurrence
+    private final int added;       // Units added (RESTOCKED only, summed when coalesced)
+    private final int occurrences;
+    private final long timestampMillis;
+
+    private StockEvent(Type type, Item item, int quantity, int added, int occurrences, long timestampMillis) {
+        this.type = type;
+        this.item = item;
+        this.quantity = quantity;
+        this.added = added;
+        this.occurrences = occurrences;
+        this.timestampMillis = timestampMillis;
+    }
+
+    public static StockEvent lowStock(Item item, int quantity) {
+        return new StockEvent(Type.LOW_STOCK, item, quantity, 0, 1, System.currentTimeMillis());
+    }
+
+    public static StockEvent outOfStock(Item item) {
+        return new StockEvent(Type.OUT_OF_STOCK, item, 0, 0, 1, System.currentTimeMillis());
+    }
+
+    public static StockEvent restocked(Item item, int added, int quantity) {
+        return new StockEvent(Type.RESTOCKED, item, quantity, added, 1, System.currentTimeMillis());
+    }
+
+    // Folds an older, undelivered event for the same item and type into this one
+    StockEvent coalesce(StockEvent older) {
+        return new StockEvent(type, item, quantity, Math.addExact(added, older.added),
+                occurrences + older.occurrences, timestampMillis);
+    }
+
+    public Type getType() { return type; }
+    public Item getItem() { return item; }
+    public int getQuantity() { return quantity; }
+    public int getAdded() { return added; }
+    public int getOccurrences() { return occurrences; }
+    public long getTimestampMillis() { return timestampMillis; }
+
+    @Override
+    public String toString() {
+        return type + " " + item.getBarcode() + " qty=" + quantity
+                + (type == Type.RESTOCKED ? " added=" + added : "")
+                + (occurrences > 1 ? " (x" + occurrences + ")" : "");
+    }
+}
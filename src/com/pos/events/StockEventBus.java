@@ -0,0 +1,154 @@
+package com.pos.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers stock events to listeners on a single background dispatcher thread.
+ *
+ * Publishing never blocks: an event for an item and type that is already waiting is merged
+ * into the waiting event (coalescing), otherwise it takes a slot in a bounded queue. When the
+ * queue is full the event is dropped and counted, so a slow listener can never stall a sale.
+ * The dispatcher drains the queue in batches and hands each batch to every listener.
+ */
+public class StockEventBus implements AutoCloseable {
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int DEFAULT_MAX_BATCH = 64;
+
+    // One slot per item and type waiting to be delivered (holds the first event, used as the key)
+    private final BlockingQueue<StockEvent> queue;
+    // Latest (coalesced) event per barcode, one map per event type
+    private final List<Map<String, StockEvent>> pending = new ArrayList<>();
+    private final List<StockEventListener> listeners = new CopyOnWriteArrayList<>();
+    private final int maxBatch;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    public StockEventBus() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_BATCH);
+    }
+
+    /**
+     * param capacity Maximum number of distinct (item, type) events waiting for delivery.
+     * param maxBatch Maximum number of events handed to listeners in one call.
+     * throws IllegalArgumentException if capacity or maxBatch is not positive.
+     */
+    public StockEventBus(int capacity, int maxBatch) {
+        if (capacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive.");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        for (int i = 0; i < StockEvent.Type.values().length; i++) {
+            pending.add(new ConcurrentHashMap<>());
+        }
+        this.dispatcher = new Thread(this::dispatchLoop, "stock-events");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    public void subscribe(StockEventListener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    public void unsubscribe(StockEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Queues an event for delivery without blocking.
+     * return false if the event was dropped because the queue is full or the bus is closed.
+     */
+    public boolean publish(StockEvent event) {
+        if (!running) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        Map<String, StockEvent> waiting = pending.get(event.getType().ordinal());
+        String barcode = event.getItem().getBarcode();
+
+        StockEvent previous = waiting.putIfAbsent(barcode, event);
+        while (previous != null) {
+            if (waiting.replace(barcode, previous, event.coalesce(previous))) {
+                return true; // Merged into the event already waiting in the queue
+            }
+            previous = waiting.putIfAbsent(barcode, event); // Delivered meanwhile, start a new one
+        }
+
+        if (!queue.offer(event)) {
+            // Saturated: drop whatever is waiting for this key (a racing merge into it is dropped with it)
+            waiting.remove(barcode);
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /** Number of events dropped because the queue was full (or the bus closed). */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void dispatchLoop() {
+        List<StockEvent> slots = new ArrayList<>(maxBatch);
+        List<StockEvent> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                StockEvent first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                slots.add(first);
+                queue.drainTo(slots, maxBatch - 1);
+            } catch (InterruptedException e) {
+                running = false;
+                continue;
+            }
+
+            for (StockEvent slot : slots) {
+                // Take the latest coalesced event; later publishes for this key start a new slot
+                StockEvent latest = pending.get(slot.getType().ordinal()).remove(slot.getItem().getBarcode());
+                if (latest != null) {
+                    batch.add(latest);
+                }
+            }
+            deliver(batch);
+            slots.clear();
+            batch.clear();
+        }
+    }
+
+    private void deliver(List<StockEvent> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        for (StockEventListener listener : listeners) {
+            try {
+                listener.onStockEvents(batch);
+            } catch (RuntimeException e) {
+                System.err.println("Stock event listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Stops accepting events, delivers the ones already queued and stops the dispatcher. */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.pos.events;
+
+import java.util.List;
+
+// Receives stock events from a StockEventBus, on the bus's dispatcher thread (never on the sale path)
+public interface StockEventListener {
+
+    // Called with a batch of events in the order they were first published; the list must not be kept
+    void onStockEvents(List<StockEvent> events);
+}
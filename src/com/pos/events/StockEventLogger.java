@@ -0,0 +1,29 @@
+package com.pos.events;
+
+import java.util.List;
+
+// Writes stock alerts to the console (the messages the inventory used to print during sales)
+public class StockEventLogger implements StockEventListener {
+
+    @Override
+    public void onStockEvents(List<StockEvent> events) {
+        StringBuilder out = new StringBuilder(events.size() * 96);
+        for (StockEvent event : events) {
+            String name = event.getItem().getName();
+            String barcode = event.getItem().getBarcode();
+            switch (event.getType()) {
+                case LOW_STOCK -> out.append("LOW STOCK WARNING: Item '").append(name).append("' (ID: ").append(barcode)
+                        .append(") has only ").append(event.getQuantity()).append(" units left!");
+                case OUT_OF_STOCK -> out.append("OUT OF STOCK ALERT: Item '").append(name).append("' (ID: ").append(barcode)
+                        .append(") is now out of stock!");
+                case RESTOCKED -> out.append("Restocked ").append(event.getAdded()).append(" of item ").append(barcode)
+                        .append(". New stock: ").append(event.getQuantity());
+            }
+            if (event.getOccurrences() > 1) {
+                out.append(" (x").append(event.getOccurrences()).append(')');
+            }
+            out.append(System.lineSeparator());
+        }
+        System.out.print(out);
+    }
+}
@@ -0,0 +1,166 @@
+package com.pos.logging;
+
+import com.pos.model.Money;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Background writer draining the log ring buffer into rolling files, one JSON object per line, e.g.
+ * {"time":"...","level":"INFO","category":"transaction","event":"sale","receipt":"A803B602",
+ * "lane":"L1","employee":"E001","lines":3,"total":9.99,"latencyMicros":120}
+ */
+final class AsyncLogWriter {
+    private static final int MAX_BATCH = 512;
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final LogRingBuffer ring;
+    private final RollingFileSink sink;
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread thread;
+    private final StringBuilder line = new StringBuilder(256);
+    private long droppedReported;
+    private volatile boolean running = true;
+
+    AsyncLogWriter(RollingFileSink sink, int capacity) {
+        this.ring = new LogRingBuffer(capacity);
+        this.sink = sink;
+        this.thread = new Thread(this::run, "pos-log-writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // --- Producer side (any thread) ---
+
+    long claim() {
+        long sequence = ring.tryClaim();
+        if (sequence < 0) {
+            dropped.incrementAndGet();
+        }
+        return sequence;
+    }
+
+    LogRingBuffer.Slot slot(long sequence) {
+        return ring.slot(sequence);
+    }
+
+    void publish(long sequence) {
+        ring.publish(sequence);
+    }
+
+    long getDroppedCount() {
+        return dropped.get();
+    }
+
+    // --- Writer thread ---
+
+    private void run() {
+        long idleNanos = 0;
+        while (true) {
+            boolean stopping = !running; // Read before draining so nothing published before stop is lost
+            int written = drain();
+            if (written > 0) {
+                idleNanos = 0;
+            } else if (stopping) {
+                break;
+            } else {
+                // Producers never signal (that would need a lock), so back off while idle
+                idleNanos = Math.min(MAX_IDLE_NANOS, Math.max(50_000, idleNanos * 2));
+                LockSupport.parkNanos(idleNanos);
+            }
+        }
+        try {
+            sink.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close log file: " + e.getMessage());
+        }
+    }
+
+    private int drain() {
+        line.setLength(0);
+        int count = 0;
+        LogRingBuffer.Slot slot;
+        while (count < MAX_BATCH && (slot = ring.peek()) != null) {
+            format(slot);
+            ring.release(slot);
+            count++;
+        }
+        long droppedNow = dropped.get();
+        if (droppedNow != droppedReported) {
+            // Records lost while the ring was full are reported as one aggregated record
+            appendHeader(System.currentTimeMillis(), LogLevel.WARN, "logging", "dropped");
+            line.append(",\"count\":").append(droppedNow - droppedReported).append("}\n");
+            droppedReported = droppedNow;
+            count++;
+        }
+        if (count > 0) {
+            try {
+                sink.write(ByteBuffer.wrap(line.toString().getBytes(StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                System.err.println("Failed to write log file: " + e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    private void format(LogRingBuffer.Slot slot) {
+        appendHeader(slot.timeMillis, slot.level, slot.category, slot.event);
+        if (slot.transaction) {
+            appendField("receipt", slot.receiptId);
+            appendField("lane", slot.lane);
+            appendField("employee", slot.employeeId);
+            line.append(",\"lines\":").append(slot.lines);
+            Money.appendTo(line.append(",\"total\":"), slot.totalCents);
+            line.append(",\"latencyMicros\":").append(slot.latencyNanos / 1_000);
+        }
+        appendField("message", slot.message);
+        line.append("}\n");
+    }
+
+    private void appendHeader(long timeMillis, LogLevel level, String category, String event) {
+        line.append("{\"time\":\"").append(Instant.ofEpochMilli(timeMillis)).append('"');
+        line.append(",\"level\":\"").append(level.name()).append('"');
+        appendField("category", category);
+        appendField("event", event);
+    }
+
+    private void appendField(String name, String value) {
+        if (value == null) {
+            return;
+        }
+        line.append(",\"").append(name).append("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> line.append("\\\"");
+                case '\\' -> line.append("\\\\");
+                case '\n' -> line.append("\\n");
+                case '\r' -> line.append("\\r");
+                case '\t' -> line.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        line.append(c);
+                    }
+                }
+            }
+        }
+        line.append('"');
+    }
+
+    /** Stops the writer after it has written everything already published. */
+    void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
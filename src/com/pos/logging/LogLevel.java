@@ -0,0 +1,10 @@
+package com.pos.logging;
+
+// Severity of a log record; a category logs records at or above its level (OFF disables it)
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF
+}
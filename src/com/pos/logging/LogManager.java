@@ -0,0 +1,96 @@
+package com.pos.logging;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Entry point of the asynchronous logging pipeline: hands out one Logger per category,
+ * holds the per-category levels and owns the background writer.
+ *
+ * Levels can be set in code or from properties: "pos.log.level" sets the default and
+ * "pos.log.level.<category>" overrides it for one category (e.g. -Dpos.log.level.transaction=DEBUG).
+ */
+public final class LogManager {
+    public static final String LEVEL_PROPERTY = "pos.log.level";
+
+    private static final Map<String, Logger> loggers = new ConcurrentHashMap<>();
+    private static final Map<String, LogLevel> categoryLevels = new ConcurrentHashMap<>();
+    private static volatile LogLevel defaultLevel = LogLevel.INFO;
+    private static volatile AsyncLogWriter writer; // null until started
+
+    private LogManager() {
+        // Utility class
+    }
+
+    public static Logger getLogger(String category) {
+        return loggers.computeIfAbsent(category, key -> new Logger(key, levelFor(key)));
+    }
+
+    private static LogLevel levelFor(String category) {
+        return categoryLevels.getOrDefault(category, defaultLevel);
+    }
+
+    public static synchronized void setDefaultLevel(LogLevel level) {
+        defaultLevel = level;
+        loggers.values().forEach(logger -> logger.setLevel(levelFor(logger.getCategory())));
+    }
+
+    public static synchronized void setLevel(String category, LogLevel level) {
+        categoryLevels.put(category, level);
+        getLogger(category).setLevel(level);
+    }
+
+    /**
+     * Applies "pos.log.level" and "pos.log.level.<category>" entries.
+     * throws IllegalArgumentException if a level name is not a LogLevel.
+     */
+    public static void configure(Properties properties) {
+        String prefix = LEVEL_PROPERTY + ".";
+        for (String name : properties.stringPropertyNames()) {
+            String value = properties.getProperty(name).trim().toUpperCase();
+            if (name.equals(LEVEL_PROPERTY)) {
+                setDefaultLevel(LogLevel.valueOf(value));
+            } else if (name.startsWith(prefix)) {
+                setLevel(name.substring(prefix.length()), LogLevel.valueOf(value));
+            }
+        }
+    }
+
+    /**
+     * Starts writing records to rolling files in the given directory.
+     * param baseName      Log file name without extension (baseName.log, baseName.1.log, ...).
+     * param maxFileBytes  Size at which the current file is rolled.
+     * param maxFiles      Number of rolled files to keep.
+     * param ringCapacity  Records that can wait for the writer (power of two); more are dropped.
+     * throws IllegalStateException if logging was already started.
+     */
+    public static synchronized void start(Path directory, String baseName, long maxFileBytes, int maxFiles,
+                                          int ringCapacity) throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("Logging is already started.");
+        }
+        writer = new AsyncLogWriter(new RollingFileSink(directory, baseName, maxFileBytes, maxFiles), ringCapacity);
+    }
+
+    /** Writes the records still waiting and stops the writer; later records are discarded. */
+    public static synchronized void shutdown() {
+        AsyncLogWriter current = writer;
+        if (current != null) {
+            writer = null;
+            current.close();
+        }
+    }
+
+    /** Records dropped because the ring buffer was full (since start). */
+    public static long getDroppedCount() {
+        AsyncLogWriter current = writer;
+        return current == null ? 0 : current.getDroppedCount();
+    }
+
+    static AsyncLogWriter writer() {
+        return writer;
+    }
+}
@@ -0,0 +1,95 @@
+package com.pos.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer ring of preallocated log records.
+ *
+ * Producers claim a sequence number with a CAS on the head counter, fill the slot and then
+ * publish it; nothing is locked and nothing is allocated per record. If the ring is full the
+ * claim fails immediately, so callers drop the record instead of waiting for the writer.
+ */
+final class LogRingBuffer {
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();      // Next sequence to claim
+    private final AtomicLongArray published;               // Sequence last published in each slot
+    private volatile long tail;                            // Next sequence the consumer reads
+
+    // One reusable record; fields are only valid between publish and consume
+    static final class Slot {
+        long timeMillis;
+        LogLevel level;
+        String category;
+        String event;
+        String message;
+        String receiptId;
+        String lane;
+        String employeeId;
+        int lines;
+        long totalCents;
+        long latencyNanos;
+        boolean transaction; // true if the transaction fields are set
+
+        void clear() {
+            message = null;
+            receiptId = null;
+            lane = null;
+            employeeId = null;
+            transaction = false;
+        }
+    }
+
+    LogRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a positive power of two.");
+        }
+        this.slots = new Slot[capacity];
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+    }
+
+    /** Claims the next slot. return its sequence number, or -1 if the ring is full. */
+    long tryClaim() {
+        while (true) {
+            long sequence = head.get();
+            if (sequence - tail >= slots.length) {
+                return -1;
+            }
+            if (head.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    Slot slot(long sequence) {
+        return slots[(int) sequence & mask];
+    }
+
+    /** Makes a filled slot visible to the consumer. */
+    void publish(long sequence) {
+        published.lazySet((int) sequence & mask, sequence);
+    }
+
+    /**
+     * Consumer side: returns the next published slot, or null if the next one is not published yet.
+     * The slot must be released with release() once it has been read.
+     */
+    Slot peek() {
+        long sequence = tail;
+        if (published.get((int) sequence & mask) != sequence) {
+            return null;
+        }
+        return slots[(int) sequence & mask];
+    }
+
+    void release(Slot slot) {
+        slot.clear();
+        tail = tail + 1; // Single consumer, so a plain increment of the volatile is safe
+    }
+}
@@ -0,0 +1,88 @@
+package com.pos.logging;
+
+/**
+ * Logger for one category (e.g. "transaction", "inventory").
+ *
+ * Logging only copies the arguments into a preallocated ring buffer slot; formatting and file
+ * I/O happen on the background writer thread. When the ring is full the record is dropped and
+ * counted (the writer reports the count), so logging never blocks a sale.
+ * Records are discarded until LogManager.start() has been called.
+ */
+public final class Logger {
+    private final String category;
+    private volatile LogLevel level;
+
+    Logger(String category, LogLevel level) {
+        this.category = category;
+        this.level = level;
+    }
+
+    public String getCategory() { return category; }
+    public LogLevel getLevel() { return level; }
+
+    void setLevel(LogLevel level) {
+        this.level = level;
+    }
+
+    public boolean isEnabled(LogLevel recordLevel) {
+        return LogManager.writer() != null && recordLevel != LogLevel.OFF && recordLevel.ordinal() >= level.ordinal();
+    }
+
+    public void debug(String event, String message) { log(LogLevel.DEBUG, event, message); }
+    public void info(String event, String message) { log(LogLevel.INFO, event, message); }
+    public void warn(String event, String message) { log(LogLevel.WARN, event, message); }
+    public void error(String event, String message) { log(LogLevel.ERROR, event, message); }
+
+    /** Logs a free-form record. */
+    public void log(LogLevel recordLevel, String event, String message) {
+        AsyncLogWriter writer = LogManager.writer();
+        long sequence = claim(writer, recordLevel);
+        if (sequence < 0) {
+            return;
+        }
+        LogRingBuffer.Slot slot = writer.slot(sequence);
+        fill(slot, recordLevel, event);
+        slot.message = message;
+        writer.publish(sequence);
+    }
+
+    /**
+     * Logs a completed sale or return as one structured record.
+     * param lane         Checkout lane ID (null if the sale did not come from a lane).
+     * param totalCents   Receipt total (or refund) in cents.
+     * param latencyNanos Time taken to process the transaction.
+     */
+    public void transaction(LogLevel recordLevel, String event, String receiptId, String lane, String employeeId,
+                            int lines, long totalCents, long latencyNanos) {
+        AsyncLogWriter writer = LogManager.writer();
+        long sequence = claim(writer, recordLevel);
+        if (sequence < 0) {
+            return;
+        }
+        LogRingBuffer.Slot slot = writer.slot(sequence);
+        fill(slot, recordLevel, event);
+        slot.transaction = true;
+        slot.receiptId = receiptId;
+        slot.lane = lane;
+        slot.employeeId = employeeId;
+        slot.lines = lines;
+        slot.totalCents = totalCents;
+        slot.latencyNanos = latencyNanos;
+        writer.publish(sequence);
+    }
+
+    // Returns the claimed ring sequence, or -1 if the record is filtered out or dropped
+    private long claim(AsyncLogWriter writer, LogLevel recordLevel) {
+        if (writer == null || recordLevel == LogLevel.OFF || recordLevel.ordinal() < level.ordinal()) {
+            return -1;
+        }
+        return writer.claim();
+    }
+
+    private void fill(LogRingBuffer.Slot slot, LogLevel recordLevel, String event) {
+        slot.timeMillis = System.currentTimeMillis();
+        slot.level = recordLevel;
+        slot.category = category;
+        slot.event = event;
+    }
+}
@@ -0,0 +1,79 @@
+package com.pos.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends log lines to baseName.log, rolling it to baseName.1.log, baseName.2.log, ...
+ * once it reaches maxFileBytes. At most maxFiles rolled files are kept.
+ * Only used by the log writer thread.
+ */
+final class RollingFileSink implements Closeable {
+    private final Path directory;
+    private final String baseName;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private FileChannel channel;
+    private long size;
+
+    RollingFileSink(Path directory, String baseName, long maxFileBytes, int maxFiles) throws IOException {
+        if (maxFileBytes <= 0 || maxFiles < 0) {
+            throw new IllegalArgumentException("Log file size must be positive and the file count non-negative.");
+        }
+        this.directory = directory;
+        this.baseName = baseName;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        Files.createDirectories(directory);
+        open();
+    }
+
+    private void open() throws IOException {
+        channel = FileChannel.open(current(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+    }
+
+    private Path current() {
+        return directory.resolve(baseName + ".log");
+    }
+
+    private Path rolled(int index) {
+        return directory.resolve(baseName + "." + index + ".log");
+    }
+
+    void write(ByteBuffer bytes) throws IOException {
+        if (size > 0 && size + bytes.remaining() > maxFileBytes) {
+            roll();
+        }
+        while (bytes.hasRemaining()) {
+            size += channel.write(bytes);
+        }
+    }
+
+    private void roll() throws IOException {
+        channel.close();
+        if (maxFiles == 0) {
+            Files.deleteIfExists(current());
+        } else {
+            Files.deleteIfExists(rolled(maxFiles));
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                if (Files.exists(rolled(i))) {
+                    Files.move(rolled(i), rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(current(), rolled(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        open();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,14 +1,55 @@
 package com.pos.main;
 
+import com.pos.events.StockEventBus;
+import com.pos.events.StockEventLogger;
+import com.pos.logging.LogManager;
+import com.pos.model.HashItemCatalog;
 import com.pos.model.Inventory;
+import com.pos.model.ItemCatalog;
+import com.pos.model.NumericItemCatalog;
+import com.pos.persistence.DurabilityMode;
+import com.pos.persistence.InventorySnapshotStore;
+import com.pos.persistence.MappedItemCatalog;
+import com.pos.persistence.TransactionJournal;
 import com.pos.service.AuthenticationService;
 import com.pos.service.InventoryService;
+import com.pos.service.TemporaryItemStore;
 import com.pos.service.TransactionService;
 import com.pos.ui.MainFrame;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
 
 public class MainApp {
+    // Where persistent data is kept (can be overridden with -Dpos.dataDir=...)
+    private static final Path DATA_DIR = Paths.get(System.getProperty("pos.dataDir", "data"));
+    // Journal and stock delta durability: PER_SALE (default) or BATCHED, with the batch sync interval in milliseconds
+    private static final String JOURNAL_MODE = System.getProperty("pos.journal.mode", DurabilityMode.PER_SALE.name());
+    private static final long JOURNAL_BATCH_MILLIS = Long.getLong("pos.journal.batchMillis", 50L);
+    // How often the inventory snapshot is rewritten (only when stock changed)
+    private static final long SNAPSHOT_INTERVAL_SECONDS = Long.getLong("pos.snapshot.intervalSeconds", 300L);
+    // Structured transaction logs (levels via -Dpos.log.level and -Dpos.log.level.<category>)
+    private static final Path LOG_DIR = Paths.get(System.getProperty("pos.log.dir", "logs"));
+    private static final long LOG_MAX_FILE_BYTES = Long.getLong("pos.log.maxFileBytes", 10L * 1024 * 1024);
+    private static final int LOG_MAX_FILES = Integer.getInteger("pos.log.maxFiles", 5);
+    private static final int LOG_RING_CAPACITY = 8192;
+    // Item storage: "numeric" (default, compact table for UPC/EAN barcodes) or "hash" (keyed by barcode strings)
+    private static final String CATALOG = System.getProperty("pos.catalog", "numeric");
+    // Optional memory-mapped catalog file (see MappedItemCatalog); items are loaded from it when first scanned
+    private static final String CATALOG_FILE = System.getProperty("pos.catalogFile");
+    // Optional CSV or binary catalog to import in the background after startup (see CatalogImporter)
+    private static final String IMPORT_FILE = System.getProperty("pos.importFile");
+    // Items keyed in for unknown barcodes: how many are kept, and for how long when unused
+    private static final int TEMP_ITEMS_MAX = Integer.getInteger("pos.tempItems.max", TemporaryItemStore.DEFAULT_MAX_ITEMS);
+    private static final long TEMP_ITEMS_TTL_MINUTES = Long.getLong("pos.tempItems.ttlMinutes",
+            TemporaryItemStore.DEFAULT_TTL.toMinutes());
+
+    // How many days after a purchase its items can be returned
+    private static final long RETURN_WINDOW_DAYS = Long.getLong("pos.returnWindowDays",
+            TransactionService.DEFAULT_RETURN_WINDOW.toDays());
 
     public static void main(String[] args) {
         // Set Look and Feel (Optional, makes it look slightly more modern)
@@ -18,17 +59,46 @@ public class MainApp {
             System.err.println("Couldn't set system look and feel.");
         }
 
+        startLogging();
+
         // 1. Initialize Core Components
-        Inventory inventory = new Inventory(); // The actual data store
+        Inventory inventory = new Inventory(createCatalog()); // The actual data store
+
+        // Stock alerts are delivered off the sale path; the console logger replaces the old inline prints
+        StockEventBus stockEvents = new StockEventBus();
+        stockEvents.subscribe(new StockEventLogger());
+        inventory.setStockEventBus(stockEvents);
+        Runtime.getRuntime().addShutdownHook(new Thread(stockEvents::close, "stock-events-shutdown"));
 
         AuthenticationService authService = new AuthenticationService(); // Handles logins
         
-        InventoryService inventoryService = new InventoryService(inventory); // Manages inventory operations + sample data
-        
-        TransactionService transactionService = new TransactionService(inventoryService); // Manages sales/returns
+        InventoryService inventoryService = new InventoryService(inventory,
+                new TemporaryItemStore(TEMP_ITEMS_MAX, Duration.ofMinutes(TEMP_ITEMS_TTL_MINUTES))); // Manages inventory operations + sample data
+
+        // 2. Load inventory (snapshot + delta log, or sample data on first start)
+        //    This happens before the journal is replayed so receipts resolve to inventory items
+        DurabilityMode durability = durabilityMode(); // Shared by the journal and the stock delta log
+        InventorySnapshotStore inventoryStore = openInventoryStore(inventory, durability);
+        inventory.loadLowStockItems(); // A catalog file's low/out of stock items, for the stock reports
+        if (inventoryStore == null || inventory.size() == 0) {
+            inventoryService.initializeInventory(); // Add sample items via the service
+        } else {
+            inventoryService.reportStockStatus();
+        }
+        if (inventoryStore != null) {
+            inventoryStore.attach(inventory, SNAPSHOT_INTERVAL_SECONDS);
+        }
+
+        if (IMPORT_FILE != null) {
+            startCatalogImport(inventoryService, Paths.get(IMPORT_FILE));
+        }
+        if (CATALOG_FILE != null) {
+            startSearchIndexing(inventoryService); // Items of the catalog file are only indexed once loaded
+        }
 
-        // 2. Load initial data (Sample Data)
-        inventoryService.initializeInventory(); // Add sample items via the service
+        TransactionJournal journal = openJournal(durability);
+        TransactionService transactionService = new TransactionService(inventoryService, journal,
+                Duration.ofDays(RETURN_WINDOW_DAYS)); // Manages sales/returns
 
 
         // 3. Create and Show GUI on the Event Dispatch Thread
@@ -39,4 +109,103 @@ public class MainApp {
 
         System.out.println("POS System Initialized.");
     }
+
+    private static ItemCatalog createCatalog() {
+        if (CATALOG_FILE != null) {
+            try {
+                return MappedItemCatalog.open(Paths.get(CATALOG_FILE));
+            } catch (IOException e) {
+                System.err.println("Couldn't open catalog file " + CATALOG_FILE + ", starting without it: " + e.getMessage());
+            }
+        }
+        if (CATALOG.trim().equalsIgnoreCase("hash")) {
+            return new HashItemCatalog();
+        }
+        if (!CATALOG.trim().equalsIgnoreCase("numeric")) {
+            System.err.println("Unknown catalog '" + CATALOG + "', using the numeric catalog.");
+        }
+        return new NumericItemCatalog();
+    }
+
+    /** Imports the catalog file on a background thread, so the registers can be used meanwhile. */
+    private static void startCatalogImport(InventoryService inventoryService, Path file) {
+        Thread importer = new Thread(() -> {
+            try {
+                System.out.println(inventoryService.importCatalog(file));
+            } catch (IOException e) {
+                System.err.println("Catalog import from " + file + " failed: " + e.getMessage());
+            }
+        }, "catalog-import");
+        importer.setDaemon(true);
+        importer.start();
+    }
+
+    private static void startSearchIndexing(InventoryService inventoryService) {
+        Thread indexer = new Thread(() -> {
+            long start = System.nanoTime();
+            inventoryService.indexAllItemsForSearch();
+            System.out.println("Name search index built in " + (System.nanoTime() - start) / 1_000_000 + " ms.");
+        }, "search-index");
+        indexer.setDaemon(true);
+        indexer.start();
+    }
+
+    /** Starts the asynchronous log writer; if it cannot start, records are discarded. */
+    private static void startLogging() {
+        try {
+            LogManager.configure(System.getProperties());
+            LogManager.start(LOG_DIR, "pos", LOG_MAX_FILE_BYTES, LOG_MAX_FILES, LOG_RING_CAPACITY);
+            Runtime.getRuntime().addShutdownHook(new Thread(LogManager::shutdown, "log-shutdown"));
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Couldn't start logging, transaction logs will not be written: " + e.getMessage());
+        }
+    }
+
+    /** Parses pos.journal.mode; an unknown mode falls back to PER_SALE. */
+    private static DurabilityMode durabilityMode() {
+        try {
+            return DurabilityMode.valueOf(JOURNAL_MODE.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown journal mode '" + JOURNAL_MODE + "', using " + DurabilityMode.PER_SALE + ".");
+            return DurabilityMode.PER_SALE;
+        }
+    }
+
+    /** Opens the inventory store and recovers the inventory from it, or returns null if it cannot be used. */
+    private static InventorySnapshotStore openInventoryStore(Inventory inventory, DurabilityMode durability) {
+        try {
+            InventorySnapshotStore store = new InventorySnapshotStore(DATA_DIR.resolve("inventory"), durability,
+                    JOURNAL_BATCH_MILLIS);
+            store.recover(inventory);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    store.close(); // Writes a final snapshot
+                } catch (IOException e) {
+                    System.err.println("Failed to close inventory store: " + e.getMessage());
+                }
+            }, "inventory-shutdown"));
+            return store;
+        } catch (IOException e) {
+            System.err.println("Couldn't open inventory store, stock changes will not be persisted: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Opens the transaction journal, or returns null (in-memory receipts only) if it cannot be opened. */
+    private static TransactionJournal openJournal(DurabilityMode mode) {
+        try {
+            TransactionJournal journal = new TransactionJournal(DATA_DIR.resolve("journal"), mode, JOURNAL_BATCH_MILLIS);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    System.err.println("Failed to close transaction journal: " + e.getMessage());
+                }
+            }, "journal-shutdown"));
+            return journal;
+        } catch (IOException e) {
+            System.err.println("Couldn't open transaction journal, receipts will not be persisted: " + e.getMessage());
+            return null;
+        }
+    }
 }
\ No newline at end of file
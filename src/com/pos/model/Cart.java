@@ -0,0 +1,171 @@
+package com.pos.model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The items of a transaction that is still being built (independent of the UI).
+ * Lines keep their scan order, a barcode index finds an existing line in O(1), and the
+ * running total is updated with each change instead of being re-summed. Variable-measure
+ * packages (see addMeasured) get a line each and are not in the barcode index.
+ * All lines are priced at the price book version that was current when the first item was
+ * added, so a mass price change published mid-basket does not mix old and new prices.
+ * Not thread-safe: a cart belongs to one register.
+ */
+public class Cart {
+    private final List<CartLine> lines = new ArrayList<>();
+    private final Map<String, Integer> lineIndexByBarcode = new HashMap<>(); // Barcode -> position in lines
+    private final Map<String, Integer> measuredCountByBarcode = new HashMap<>(); // Barcode -> variable-measure packages
+    private long total; // In cents
+    private final PriceBook priceBook;
+    private PriceBook.Version priceVersion; // Pinned by the first add, released by clear()
+
+    // A cart with its own price book (lines use the items' current prices)
+    public Cart() {
+        this(new PriceBook());
+    }
+
+    // A cart priced from an inventory's price book (see Inventory.getPriceBook)
+    public Cart(PriceBook priceBook) {
+        if (priceBook == null) throw new IllegalArgumentException("Price book cannot be null");
+        this.priceBook = priceBook;
+    }
+
+    /**
+     * Adds quantity of an item, merging with the existing line for the same barcode.
+     * return The position of the line that was added or updated.
+     */
+    public int add(Item item, int quantity) {
+        if (item == null) throw new IllegalArgumentException("Item cannot be null");
+        if (quantity <= 0) throw new IllegalArgumentException("Quantity must be positive");
+
+        Integer index = lineIndexByBarcode.get(item.getBarcode());
+        CartLine line;
+        if (index != null) {
+            line = lines.get(index);
+            line.addQuantity(quantity);
+        } else {
+            if (priceVersion == null) {
+                priceVersion = priceBook.pin();
+            }
+            index = lines.size();
+            line = new CartLine(item, quantity, priceVersion.priceOf(item), priceVersion.getNumber());
+            lines.add(line);
+            lineIndexByBarcode.put(item.getBarcode(), index);
+        }
+        total += Money.times(line.getUnitPrice(), quantity);
+        return index;
+    }
+
+    /**
+     * Adds one variable-measure package as its own line, priced from its label: the printed
+     * price, or the weight times the item's price per kilogram (rounded to the cent).
+     * param measure PRICE or WEIGHT (see Gs1).
+     * param value The price in cents or the weight in grams decoded from the label.
+     * return The position of the new line.
+     */
+    public int addMeasured(Item item, Gs1.Measure measure, int value) {
+        if (item == null) throw new IllegalArgumentException("Item cannot be null");
+        if (measure == null || measure == Gs1.Measure.NONE) throw new IllegalArgumentException("Not a variable-measure label");
+        if (value < 0) throw new IllegalArgumentException("Measured value cannot be negative");
+
+        if (priceVersion == null) {
+            priceVersion = priceBook.pin();
+        }
+        long unitPrice = measure == Gs1.Measure.PRICE ? value
+                : Math.addExact(Math.multiplyExact(priceVersion.priceOf(item), (long) value), 500) / 1000;
+        lines.add(new CartLine(item, 1, unitPrice, priceVersion.getNumber(), measure, value));
+        measuredCountByBarcode.merge(item.getBarcode(), 1, Integer::sum);
+        total += unitPrice;
+        return lines.size() - 1;
+    }
+
+    /** Returns the position of the line for a barcode, or -1 if it is not in the cart. */
+    public int indexOf(String barcode) {
+        Integer index = lineIndexByBarcode.get(barcode);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Returns the units of an item the cart will take from stock: the quantity of its line plus one
+     * per variable-measure package (0 if none).
+     */
+    public int quantityOf(String barcode) {
+        int index = indexOf(barcode);
+        return (index >= 0 ? lines.get(index).getQuantity() : 0) + measuredCountByBarcode.getOrDefault(barcode, 0);
+    }
+
+    /** Returns the position of the last variable-measure package of an item with this label value, or -1. */
+    public int lastIndexOfMeasured(String barcode, int measuredValue) {
+        for (int i = lines.size() - 1; i >= 0; i--) {
+            CartLine line = lines.get(i);
+            if (line.isMeasured() && line.getMeasuredValue() == measuredValue && line.getItem().getBarcode().equals(barcode)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public CartLine getLine(int index) {
+        return lines.get(index);
+    }
+
+    /** Removes the line for a barcode (not variable-measure lines, see remove(int)). return true if a line was removed. */
+    public boolean remove(String barcode) {
+        Integer index = lineIndexByBarcode.get(barcode);
+        if (index == null) {
+            return false;
+        }
+        remove((int) index);
+        return true;
+    }
+
+    /**
+     * Removes the line at a position (any line, including a variable-measure package).
+     * return The removed line.
+     * throws IndexOutOfBoundsException if there is no line at that position.
+     */
+    public CartLine remove(int index) {
+        CartLine removed = lines.remove(index);
+        total -= removed.getSubtotal();
+        String barcode = removed.getItem().getBarcode();
+        if (removed.isMeasured()) {
+            measuredCountByBarcode.merge(barcode, -1, (count, change) -> count + change == 0 ? null : count + change);
+        } else {
+            lineIndexByBarcode.remove(barcode);
+        }
+        // Lines after the removed one moved up by one
+        for (int i = index; i < lines.size(); i++) {
+            if (!lines.get(i).isMeasured()) {
+                lineIndexByBarcode.put(lines.get(i).getItem().getBarcode(), i);
+            }
+        }
+        return removed;
+    }
+
+    public void clear() {
+        lines.clear();
+        lineIndexByBarcode.clear();
+        measuredCountByBarcode.clear();
+        total = 0;
+        priceVersion = null; // Lets the price book reclaim versions no other cart uses
+    }
+
+    public long getTotal() { return total; }
+
+    // Price book version the cart's lines are priced at (-1 until the first item is added)
+    public long getPriceVersion() { return priceVersion == null ? -1 : priceVersion.getNumber(); }
+    public int size() { return lines.size(); }
+    public boolean isEmpty() { return lines.isEmpty(); }
+
+    /** Builds the receipt lines for this cart (one TransactionItem per line). */
+    public List<TransactionItem> toTransactionItems() {
+        List<TransactionItem> items = new ArrayList<>(lines.size());
+        for (CartLine line : lines) {
+            items.add(line.toTransactionItem());
+        }
+        return items;
+    }
+}
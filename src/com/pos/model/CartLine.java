@@ -0,0 +1,45 @@
+package com.pos.model;
+
+// One line of a cart that is still being built; quantity is updated in place as the same item is scanned again
+public class CartLine {
+    private final Item item;
+    private final long unitPrice;    // In cents, at the cart's price version
+    private final long priceVersion; // Price book version the unit price was taken from
+    private final Gs1.Measure measure; // PRICE or WEIGHT: one variable-measure package, priced from its label (never merged)
+    private final int measuredValue;   // Price (cents) or weight (grams) from the label, -1 for other lines
+    private int quantity;
+
+    CartLine(Item item, int quantity, long unitPrice, long priceVersion) {
+        this(item, quantity, unitPrice, priceVersion, Gs1.Measure.NONE, -1);
+    }
+
+    CartLine(Item item, int quantity, long unitPrice, long priceVersion, Gs1.Measure measure, int measuredValue) {
+        this.item = item;
+        this.unitPrice = unitPrice;
+        this.priceVersion = priceVersion;
+        this.measure = measure;
+        this.measuredValue = measuredValue;
+        this.quantity = quantity;
+    }
+
+    public Item getItem() { return item; }
+    public long getUnitPrice() { return unitPrice; }
+    public long getPriceVersion() { return priceVersion; }
+    public int getQuantity() { return quantity; }
+    public boolean isMeasured() { return measure != Gs1.Measure.NONE; }
+    public Gs1.Measure getMeasure() { return measure; }
+    public int getMeasuredValue() { return measuredValue; }
+
+    public long getSubtotal() {
+        return Money.times(unitPrice, quantity);
+    }
+
+    void addQuantity(int delta) {
+        this.quantity += delta;
+    }
+
+    // Converts the line to an immutable receipt line (at the captured price)
+    public TransactionItem toTransactionItem() {
+        return new TransactionItem(item, quantity, unitPrice, measure, measuredValue);
+    }
+}
@@ -0,0 +1,180 @@
+package com.pos.model;
+
+import java.util.Arrays;
+
+/**
+ * GS1 barcode rules: check digits, the canonical form of a GTIN and variable-measure labels.
+ *
+ * The same product can be scanned or keyed in as UPC-A (12 digits), EAN-13, GTIN-14 or with a
+ * leading zero dropped. Items and catalog lookups use one canonical form, so every variant hits
+ * the catalog with a single probe:
+ * - a GTIN-13 starting with 0 is the UPC-A (12 digits, e.g. 012546011075),
+ * - any other GTIN-13 stays 13 digits,
+ * - a GTIN-14 with packaging indicator 0 becomes one of the above, other GTIN-14s stay 14 digits.
+ * Codes of 11 to 14 digits are only converted if their check digit is valid; everything else
+ * (internal codes such as BC001, EAN-8 and UPC-E codes, codes with a bad check digit) is used as is.
+ * A code that is already canonical is returned as the same String, so lookups allocate nothing.
+ *
+ * Variable-measure (deli/produce) labels carry a price or a weight in the code. Their GTIN-13
+ * form is: 2 prefix digits, 5 item reference digits, 5 value digits, check digit. UPC-A labels
+ * (GTIN-13 prefix 02) use a price verifier digit followed by a 4-digit price. Which prefixes are
+ * price or weight labels depends on the store (-Dpos.gs1.pricePrefixes and
+ * -Dpos.gs1.weightPrefixes, comma separated). The canonical form of such a label has its value
+ * digits zeroed (and the check digit recomputed), which is how the item is kept in the catalog.
+ */
+public final class Gs1 {
+    public enum Measure { NONE, PRICE, WEIGHT } // Weight is in grams, price in cents
+
+    private static final Measure[] MEASURE_BY_PREFIX = measuresByPrefix(
+            System.getProperty("pos.gs1.pricePrefixes", "02,20,21,22"),
+            System.getProperty("pos.gs1.weightPrefixes", "23,24,25"));
+
+    private static final int VALUE_START = 7; // Value digits are 7..11 of the GTIN-13 form
+    private static final int VALUE_END = 12;
+
+    private Gs1() { }
+
+    /**
+     * Returns the canonical form of a barcode (see the class comment), or the barcode itself
+     * if it is not a GTIN (or is already canonical).
+     */
+    public static String canonical(String barcode) {
+        if (!isGtin(barcode)) {
+            return barcode;
+        }
+        int length = barcode.length();
+        if (length == 14 && barcode.charAt(0) != '0') {
+            return barcode; // Case-level GTIN-14, no shorter form
+        }
+        int targetLength = digitOf13(barcode, 0) == 0 ? 12 : 13;
+        if (prefixMeasure(barcode) == Measure.NONE) {
+            if (length == targetLength) {
+                return barcode;
+            }
+            return length > targetLength ? barcode.substring(length - targetLength) : "0" + barcode;
+        }
+        // Variable-measure label: zero the value and recompute the check digit
+        if (length == targetLength && valueIsZero(barcode)) {
+            return barcode; // Already the item's key
+        }
+        char[] digits = new char[13];
+        for (int i = 0; i < 13; i++) {
+            digits[i] = (char) ('0' + digitOf13(barcode, i));
+        }
+        for (int i = VALUE_START; i < VALUE_END; i++) {
+            digits[i] = '0';
+        }
+        int sum = 0;
+        for (int i = 11, weight = 3; i >= 0; i--, weight = 4 - weight) {
+            sum += (digits[i] - '0') * weight;
+        }
+        digits[12] = (char) ('0' + (10 - sum % 10) % 10);
+        return new String(digits, 13 - targetLength, targetLength);
+    }
+
+    /**
+     * The kind of value a variable-measure label carries, or NONE (also for codes that are not
+     * GTINs or have a bad check digit).
+     */
+    public static Measure measureOf(String barcode) {
+        if (!isGtin(barcode) || (barcode.length() == 14 && barcode.charAt(0) != '0')) {
+            return Measure.NONE;
+        }
+        return prefixMeasure(barcode);
+    }
+
+    /**
+     * The price (in cents) or weight (in grams) in a variable-measure label.
+     * return The value, or -1 if the barcode is not a variable-measure label.
+     */
+    public static int measuredValue(String barcode) {
+        if (measureOf(barcode) == Measure.NONE) {
+            return -1;
+        }
+        // UPC-A labels: digit 7 is the price verifier, the price is 4 digits
+        int start = digitOf13(barcode, 0) == 0 ? VALUE_START + 1 : VALUE_START;
+        int value = 0;
+        for (int i = start; i < VALUE_END; i++) {
+            value = value * 10 + digitOf13(barcode, i);
+        }
+        return value;
+    }
+
+    /** True if the barcode looks like a GTIN (11 to 14 digits), whether or not its check digit is valid. */
+    public static boolean looksLikeGtin(String barcode) {
+        if (barcode == null || barcode.length() < 11 || barcode.length() > 14) {
+            return false;
+        }
+        for (int i = 0; i < barcode.length(); i++) {
+            char c = barcode.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** True if the last digit of an all-digit code is its GS1 check digit (any length from 2 digits). */
+    public static boolean hasValidCheckDigit(String digits) {
+        int length = digits.length();
+        if (length < 2) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = length - 2, weight = 3; i >= 0; i--, weight = 4 - weight) {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            sum += (c - '0') * weight;
+        }
+        char check = digits.charAt(length - 1);
+        return check >= '0' && check <= '9' && (10 - sum % 10) % 10 == check - '0';
+    }
+
+    // 11 to 14 digits with a valid check digit
+    private static boolean isGtin(String barcode) {
+        return looksLikeGtin(barcode) && hasValidCheckDigit(barcode);
+    }
+
+    private static Measure prefixMeasure(String gtin) {
+        return MEASURE_BY_PREFIX[digitOf13(gtin, 0) * 10 + digitOf13(gtin, 1)];
+    }
+
+    private static boolean valueIsZero(String gtin) {
+        for (int i = VALUE_START; i < VALUE_END; i++) {
+            if (digitOf13(gtin, i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Digit i of the code's GTIN-13 form (the code is right-aligned, missing digits are 0)
+    private static int digitOf13(String barcode, int i) {
+        int index = barcode.length() - 13 + i;
+        return index < 0 ? 0 : barcode.charAt(index) - '0';
+    }
+
+    private static Measure[] measuresByPrefix(String pricePrefixes, String weightPrefixes) {
+        Measure[] measures = new Measure[100];
+        Arrays.fill(measures, Measure.NONE);
+        mark(measures, pricePrefixes, Measure.PRICE);
+        mark(measures, weightPrefixes, Measure.WEIGHT);
+        return measures;
+    }
+
+    private static void mark(Measure[] measures, String prefixes, Measure measure) {
+        for (String prefix : prefixes.split(",")) {
+            prefix = prefix.trim();
+            if (prefix.isEmpty()) {
+                continue;
+            }
+            if (prefix.length() != 2 || !Character.isDigit(prefix.charAt(0)) || !Character.isDigit(prefix.charAt(1))) {
+                System.err.println("Ignoring GS1 prefix '" + prefix + "' (expected two digits).");
+                continue;
+            }
+            measures[Integer.parseInt(prefix)] = measure;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.pos.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// Catalog keyed by the barcode string (works for any barcode)
+public class HashItemCatalog implements ItemCatalog {
+    private final Map<String, Item> items = new ConcurrentHashMap<>();
+
+    @Override
+    public Item get(String barcode) {
+        return barcode == null ? null : items.get(barcode);
+    }
+
+    @Override
+    public Item putIfAbsent(Item item) {
+        return items.putIfAbsent(item.getBarcode(), item);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Item> action) {
+        items.values().forEach(action);
+    }
+}
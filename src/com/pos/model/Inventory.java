@@ -1,42 +1,192 @@
 package com.pos.model;
+import com.pos.events.StockEvent;
+import com.pos.events.StockEventBus;
+
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap; // Thread-safe for potential future enhancements
-import java.util.stream.Collectors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 public class Inventory {
-    private final Map<String, Item> items; // Barcode -> Item mapping
-    private static final int LOW_STOCK_THRESHOLD = 10; // Example threshold
+    private final ItemCatalog items; // Barcode -> Item mapping
+    private final StockLevelIndex stockLevels = new StockLevelIndex(); // Low/out of stock buckets
+    private final PriceBook priceBook = new PriceBook(); // Versioned prices, so carts see price changes all at once
+    private final List<InventoryListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile StockEventBus stockEvents; // Receives stock alerts; none means alerts are not reported
 
     public Inventory() {
-        this.items = new ConcurrentHashMap<>();
+        this(new HashItemCatalog());
+    }
+
+    // Uses the given catalog to store items (e.g. NumericItemCatalog for large UPC/EAN catalogs, or a MappedItemCatalog)
+    public Inventory(ItemCatalog catalog) {
+        if (catalog == null) {
+            throw new IllegalArgumentException("Catalog cannot be null.");
+        }
+        this.items = catalog;
+        // Items a lazily loading catalog creates on first lookup still need to be in the stock level index
+        catalog.setItemLoadedCallback(item -> item.attachStockLevelIndex(stockLevels));
+        catalog.forEachLoaded(item -> item.attachStockLevelIndex(stockLevels));
+    }
+
+    // --- Listeners ---
+
+    public void addListener(InventoryListener listener) {
+        if (listener != null) {
+            listeners.add(listener);
+        }
+    }
+
+    public void removeListener(InventoryListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts a group of related changes made by the calling thread (e.g. every line of one sale).
+     * Listeners that persist changes may defer syncing them until the matching endBatch, so the
+     * group costs one sync instead of one per change. Call endBatch in a finally block; batches may nest.
+     */
+    public void beginBatch() {
+        for (InventoryListener listener : listeners) {
+            listener.batchStarted();
+        }
+    }
+
+    // Ends the calling thread's group of changes started by beginBatch
+    public void endBatch() {
+        for (InventoryListener listener : listeners) {
+            listener.batchFinished();
+        }
+    }
+
+    // Stock alerts (low stock, out of stock, restocked) are only queued on the bus, listeners run off the sale path
+    public void setStockEventBus(StockEventBus stockEvents) {
+        this.stockEvents = stockEvents;
+    }
+
+    public StockEventBus getStockEventBus() {
+        return stockEvents;
     }
 
     // --- Item Management ---
 
     public void addItem(Item item) {
         if (item != null) {
-            // If item exists, maybe update? For now, let's assume adding new only or use restock
-             if(items.containsKey(item.getBarcode())){
+            // If item exists, maybe update? For now, let's assume adding new only or use restock (or updateItem)
+             if (addItemIfAbsent(item) != null) {
                 System.out.println("Warning: Item with barcode " + item.getBarcode() + " already exists. Use restockItem to add quantity.");
-                // Optional: Update details like name/price if needed
-                // Item existingItem = items.get(item.getBarcode());
-                // existingItem.setName(item.getName());
-                // existingItem.setPrice(item.getPrice());
-             } else {
-                items.put(item.getBarcode(), item);
              }
         }
     }
 
+    // Adds the item unless its barcode is taken; returns the existing item (nothing is printed), or null if it was added
+    public Item addItemIfAbsent(Item item) {
+        Item existing = items.putIfAbsent(item);
+        if (existing == null) {
+            item.attachStockLevelIndex(stockLevels);
+            for (InventoryListener listener : listeners) {
+                listener.itemAdded(item);
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Changes an item's name and price (listeners are only notified if something changed).
+     * return false if the item is not in the inventory.
+     * throws IllegalArgumentException if the name is empty or the price is negative.
+     */
+    public boolean updateItem(String barcode, String name, long priceCents) {
+        Item item = getItem(barcode);
+        if (item == null) {
+            return false;
+        }
+        Item.validate(barcode, name, priceCents, 0);
+        if (!item.getName().equals(name) || item.getPriceCents() != priceCents) {
+            item.setName(name);
+            if (item.getPriceCents() != priceCents) {
+                priceBook.publish(PriceBook.newBatch().setPrice(item, priceCents));
+            }
+            for (InventoryListener listener : listeners) {
+                listener.itemUpdated(item);
+            }
+        }
+        return true;
+    }
+
+    public PriceBook getPriceBook() {
+        return priceBook;
+    }
+
+    /**
+     * Publishes a batch of price changes as one price book version (see PriceBook) and notifies listeners.
+     * return The new price version.
+     * throws IllegalArgumentException if an item in the batch is not in this inventory.
+     */
+    public PriceBook.Version publishPrices(PriceBook.Batch batch) {
+        for (Item item : batch.items()) {
+            if (items.get(item.getBarcode()) != item) {
+                throw new IllegalArgumentException("Item " + item.getBarcode() + " is not in the inventory.");
+            }
+        }
+        long versionBefore = priceBook.getCurrentVersion();
+        PriceBook.Version version = priceBook.publish(batch);
+        if (version.getNumber() != versionBefore) {
+            for (Item item : batch.items()) {
+                for (InventoryListener listener : listeners) {
+                    listener.itemUpdated(item);
+                }
+            }
+        }
+        return version;
+    }
+
+    // Sets an item's stock to a counted quantity (atomically, lanes may be selling it); false if the item is not in the inventory
+    public boolean setStock(String barcode, int quantity) {
+        Item item = getItem(barcode);
+        if (item == null) {
+            return false;
+        }
+        long previous = item.replaceStock(quantity);
+        if (previous != Item.NO_CHANGE) {
+            int delta = quantity - Item.quantityOf(previous);
+            for (InventoryListener listener : listeners) {
+                listener.stockChanged(item, delta, quantity, Item.versionOf(previous) + 1);
+            }
+            checkLowStockWarning(item);
+        }
+        return true;
+    }
+
     public Optional<Item> findItemByBarcode(String barcode) {
-        return Optional.ofNullable(items.get(barcode)); // Return an Optional to avoid null checks
+        return Optional.ofNullable(getItem(barcode)); // Return an Optional to avoid null checks
+    }
+
+    // Same lookup without the Optional, for the scan and checkout paths; null if the item is not in the inventory.
+    // Any GS1 form of the barcode finds the item (see Gs1.canonical).
+    public Item getItem(String barcode) {
+        return items.get(Gs1.canonical(barcode));
     }
 
     public List<Item> getAllItems() {
-        return new ArrayList<>(items.values()); // Return a copy of the item list
+        List<Item> copy = new ArrayList<>(items.size()); // Return a copy of the item list
+        items.forEach(copy::add);
+        return copy;
+    }
+
+    // Visits every item without copying the catalog (weakly consistent while sales continue)
+    public void forEachItem(Consumer<Item> action) {
+        items.forEach(action);
+    }
+
+    // Visits the items that exist as objects (a lazily loading catalog skips items never looked up)
+    public void forEachLoadedItem(Consumer<Item> action) {
+        items.forEachLoaded(action);
+    }
+
+    public int size() {
+        return items.size();
     }
 
     // --- Stock Operations ---
@@ -44,18 +194,27 @@ public class Inventory {
     // Restock
 
     public boolean sellItem(String barcode, int quantity) {
-        Optional<Item> itemOpt = findItemByBarcode(barcode); // Find item by barcode
-        if (itemOpt.isPresent()) {
-            return itemOpt.get().decreaseStock(quantity); // If item exists, try to decrease stock
-        }
-        return false; // Item not found
+        Item item = getItem(barcode); // Find item by barcode
+        return item != null && sellItem(item, quantity); // If item exists, try to decrease stock
+    }
+
+    // Sells an item already looked up with getItem (it must be this inventory's item)
+    public boolean sellItem(Item item, int quantity) {
+        return quantity > 0 && changeStock(item, -quantity);
+    }
+
+    // Puts back stock taken by sellItem when the sale could not be completed (no restock messages or warnings)
+    public boolean cancelSale(String barcode, int quantity) {
+        Item item = getItem(barcode);
+        return item != null && quantity > 0 && changeStock(item, quantity);
     }
 
     public boolean restockItem(String barcode, int quantity) { // Restock item by barcode
         Optional<Item> itemOpt = findItemByBarcode(barcode); // Find item by barcode
         if (itemOpt.isPresent()) { // If item exists, increase stock
-            itemOpt.get().increaseStock(quantity);
-            System.out.println("Restocked " + quantity + " of item " + barcode + ". New stock: " + itemOpt.get().getQuantityInStock());
+            if (quantity > 0 && changeStock(itemOpt.get(), quantity)) {
+                publish(StockEvent.restocked(itemOpt.get(), quantity, itemOpt.get().getQuantityInStock()));
+            }
             checkLowStockWarning(itemOpt.get()); // Check stock after restocking
             return true;
         } else {
@@ -64,20 +223,53 @@ public class Inventory {
         }
     }
 
+    // Applies a stock change and notifies listeners; returns false if there was not enough stock
+    private boolean changeStock(Item item, int delta) {
+        long state = item.adjustStock(delta);
+        if (state == Item.NO_CHANGE) {
+            return false;
+        }
+        for (InventoryListener listener : listeners) {
+            listener.stockChanged(item, delta, Item.quantityOf(state), Item.versionOf(state));
+        }
+        return true;
+    }
+
     // --- Stock Checking ---
     // Check stock levels
     // Check low stock items
 
+    // Both lists come from the stock level index, so they cost time proportional to the result, not the catalog
+    // (a lazily loading catalog only adds the items it has created, see loadLowStockItems)
+
+    /**
+     * Creates the items a lazily loading catalog holds at or below their low stock threshold, so the
+     * low/out of stock lists cover the whole catalog and not only the items scanned so far.
+     * Call it after the inventory was recovered (recovered items must not be loaded from the catalog first).
+     */
+    public void loadLowStockItems() {
+        items.loadLowStockItems();
+    }
+
     public List<Item> getLowStockItems() {
-        return items.values().stream()
-                .filter(item -> item.getQuantityInStock() <= LOW_STOCK_THRESHOLD && item.getQuantityInStock() > 0)
-                .collect(Collectors.toList());
+        return stockLevels.getLowStockItems();
     }
 
     public List<Item> getOutOfStockItems() {
-        return items.values().stream()
-                .filter(item -> item.getQuantityInStock() == 0)
-                .collect(Collectors.toList());
+        return stockLevels.getOutOfStockItems();
+    }
+
+    // Sets an item's own low stock threshold; returns false if the item is not in the inventory
+    public boolean setLowStockThreshold(String barcode, int threshold) {
+        Optional<Item> itemOpt = findItemByBarcode(barcode);
+        if (itemOpt.isEmpty()) {
+            return false;
+        }
+        itemOpt.get().setLowStockThreshold(threshold);
+        for (InventoryListener listener : listeners) {
+            listener.lowStockThresholdChanged(itemOpt.get(), threshold);
+        }
+        return true;
     }
 
 
@@ -85,9 +277,9 @@ public class Inventory {
         Optional<Item> itemOpt = findItemByBarcode(barcode);
         if (itemOpt.isPresent()) {
             Item item = itemOpt.get();
-            if (item.getQuantityInStock() <= 0) {
+            if (item.isOutOfStock()) {
                  return "OUT OF STOCK";
-            } else if (item.getQuantityInStock() <= LOW_STOCK_THRESHOLD) {
+            } else if (item.isLowStock()) {
                  return "LOW STOCK (" + item.getQuantityInStock() + ")";
             } else {
                 return "In Stock (" + item.getQuantityInStock() + ")";
@@ -97,16 +289,30 @@ public class Inventory {
         }
     }
 
+    // Queues a low stock or out of stock alert if the item needs one (never blocks, see StockEventBus)
     public void checkLowStockWarning(Item item) {
-        if (item.getQuantityInStock() <= LOW_STOCK_THRESHOLD && item.getQuantityInStock() > 0) {
-            System.out.println("LOW STOCK WARNING: Item '" + item.getName() + "' (ID: " + item.getBarcode() + ") has only " + item.getQuantityInStock() + " units left!");
-            // In a real GUI app, you'd show this in the UI, not System.out
-        } else if (item.getQuantityInStock() == 0) {
-             System.out.println("OUT OF STOCK ALERT: Item '" + item.getName() + "' (ID: " + item.getBarcode() + ") is now out of stock!");
+        if (stockEvents == null) {
+            return;
+        }
+        int quantity = item.getQuantityInStock();
+        if (quantity == 0) {
+            publish(StockEvent.outOfStock(item));
+        } else if (quantity <= item.getLowStockThreshold()) {
+            publish(StockEvent.lowStock(item, quantity));
         }
     }
      // Overload to check by barcode
     public void checkLowStockWarning(String barcode) {
-        findItemByBarcode(barcode).ifPresent(this::checkLowStockWarning);
+        Item item = getItem(barcode);
+        if (item != null) {
+            checkLowStockWarning(item);
+        }
+    }
+
+    private void publish(StockEvent event) {
+        StockEventBus bus = stockEvents;
+        if (bus != null) {
+            bus.publish(event);
+        }
     }
 }
\ No newline at end of file
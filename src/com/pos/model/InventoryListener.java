@@ -0,0 +1,27 @@
+package com.pos.model;
+
+// Notified by Inventory whenever its contents change (e.g. to persist stock changes)
+public interface InventoryListener {
+
+    // Called after a new item has been added to the inventory
+    void itemAdded(Item item);
+
+    // Called after a sale or restock changed an item's stock; stockVersion is the item's version after the change
+    void stockChanged(Item item, int delta, int newQuantity, int stockVersion);
+
+    // Called after an item was given its own low stock threshold
+    default void lowStockThresholdChanged(Item item, int threshold) {
+    }
+
+    // Called after an item's name or price was changed (e.g. by a catalog import)
+    default void itemUpdated(Item item) {
+    }
+
+    // Called when the calling thread starts a group of related changes (see Inventory.beginBatch); groups may nest
+    default void batchStarted() {
+    }
+
+    // Called when the calling thread's group of changes is complete; a persisting listener makes the group durable here
+    default void batchFinished() {
+    }
+}
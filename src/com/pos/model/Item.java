@@ -1,64 +1,185 @@
 package com.pos.model;
 
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Item {
-    private final String barcode; // Unique identifier
-    private String name;
-    private double price;
-    private int quantityInStock;
+    // Used for items that were not given their own low stock threshold
+    public static final int DEFAULT_LOW_STOCK_THRESHOLD = 10;
 
-    public Item(String barcode, String name, double price, int initialQuantity) {
+    private final String barcode; // Unique identifier, in canonical GS1 form (see Gs1.canonical)
+    private volatile String name; // Can be changed by a catalog import while lanes are selling
+    private volatile long priceCents; // Price in cents (see Money)
+    // Quantity in the low 32 bits, stock version in the high 32 bits, updated together by CAS.
+    // The version is incremented on every stock change, which lets snapshots and the delta log agree on ordering.
+    private final AtomicLong stockState;
+    private volatile int lowStockThreshold = DEFAULT_LOW_STOCK_THRESHOLD;
+    // Set once the item is added to an Inventory; kept up to date on every stock change
+    private volatile StockLevelIndex stockLevelIndex;
+
+    public Item(String barcode, String name, long priceCents, int initialQuantity) {
+        validate(barcode, name, priceCents, initialQuantity);
+        this.barcode = Gs1.canonical(barcode); // UPC-A, EAN-13 and GTIN-14 forms of a product get the same key
+        this.name = name;
+        this.priceCents = priceCents;
+        this.stockState = new AtomicLong(packStockState(initialQuantity, 0));
+    }
+
+    /**
+     * Checks item fields with the same rules as the constructor (e.g. for rows of a catalog import).
+     * throws IllegalArgumentException describing the first invalid field.
+     */
+    public static void validate(String barcode, String name, long priceCents, int quantity) {
          if (barcode == null || barcode.trim().isEmpty()) {
             throw new IllegalArgumentException("Barcode cannot be empty.");
         }
          if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Item name cannot be empty.");
         }
-         if (price < 0) {
+         if (priceCents < 0) {
              throw new IllegalArgumentException("Price cannot be negative.");
          }
-         if (initialQuantity < 0) {
+         if (quantity < 0) {
              throw new IllegalArgumentException("Initial quantity cannot be negative.");
          }
-        this.barcode = barcode;
-        this.name = name;
-        this.price = price;
-        this.quantityInStock = initialQuantity;
     }
 
     // Getters
     public String getBarcode() { return barcode; }
     public String getName() { return name; }
-    public double getPrice() { return price; }
-    public int getQuantityInStock() { return quantityInStock; }
+    public long getPriceCents() { return priceCents; }
+    public int getQuantityInStock() { return quantityOf(stockState.get()); }
+    public int getStockVersion() { return versionOf(stockState.get()); }
+    public int getLowStockThreshold() { return lowStockThreshold; }
+
+    /** In stock, but at or below the item's low stock threshold. */
+    public boolean isLowStock() {
+        int quantity = getQuantityInStock();
+        return quantity > 0 && quantity <= lowStockThreshold;
+    }
+
+    public boolean isOutOfStock() {
+        return getQuantityInStock() == 0;
+    }
+
+    /**
+     * Returns quantity and stock version read together, packed into one long
+     * (use quantityOf/versionOf to unpack).
+     */
+    public long getStockState() {
+        return stockState.get();
+    }
+
+    public static int quantityOf(long stockState) { return (int) stockState; }
+    public static int versionOf(long stockState) { return (int) (stockState >>> 32); }
+
+    private static long packStockState(int quantity, int version) {
+        return ((long) version << 32) | (quantity & 0xFFFFFFFFL);
+    }
 
     // Setters (only for mutable fields)
     public void setName(String name) { this.name = name; }
-    public void setPrice(double price) {
-         if (price >= 0) {
-            this.price = price;
+    public void setPriceCents(long priceCents) {
+         if (priceCents >= 0) {
+            this.priceCents = priceCents;
          }
     }
 
+    /**
+     * Sets the stock level at or below which the item counts as low stock.
+     * Use Inventory.setLowStockThreshold for inventory items so the change is also persisted.
+     * throws IllegalArgumentException if the threshold is negative.
+     */
+    public void setLowStockThreshold(int lowStockThreshold) {
+        if (lowStockThreshold < 0) {
+            throw new IllegalArgumentException("Low stock threshold cannot be negative.");
+        }
+        this.lowStockThreshold = lowStockThreshold;
+        reindex();
+    }
+
     // Stock Management
     public boolean decreaseStock(int quantity) {
-        if (quantity > 0 && this.quantityInStock >= quantity) {
-            this.quantityInStock -= quantity;
-            return true;
-        }
-        return false; // Not enough stock or invalid quantity
+        return quantity > 0 && adjustStock(-quantity) != NO_CHANGE;
     }
 
     public void increaseStock(int quantity) {
         if (quantity > 0) {
-            this.quantityInStock += quantity;
+            adjustStock(quantity);
+        }
+    }
+
+    // Returned by adjustStock when the change was rejected
+    static final long NO_CHANGE = -1L;
+
+    /**
+     * Applies a stock change and bumps the stock version, lock-free (retries if another lane changed
+     * the stock concurrently). The check and the update are one atomic step, so stock never goes negative.
+     * return The new packed stock state, or NO_CHANGE if stock would go negative.
+     */
+    long adjustStock(int delta) {
+        while (true) {
+            long current = stockState.get();
+            long newQuantity = (long) quantityOf(current) + delta;
+            if (newQuantity < 0) {
+                return NO_CHANGE; // Not enough stock
+            }
+            if (newQuantity > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Stock for item " + barcode + " would overflow.");
+            }
+            long updated = packStockState((int) newQuantity, versionOf(current) + 1);
+            if (stockState.compareAndSet(current, updated)) {
+                reindex();
+                return updated;
+            }
+        }
+    }
+
+    /**
+     * Sets the stock to a quantity (e.g. a count from a catalog import) in one atomic step with the
+     * version bump, so a sale on another lane is never lost in between.
+     * return The packed stock state before the change, or NO_CHANGE if the stock already was that quantity.
+     */
+    long replaceStock(int quantity) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative.");
+        }
+        while (true) {
+            long current = stockState.get();
+            if (quantityOf(current) == quantity) {
+                return NO_CHANGE;
+            }
+            if (stockState.compareAndSet(current, packStockState(quantity, versionOf(current) + 1))) {
+                reindex();
+                return current;
+            }
+        }
+    }
+
+    /** Restores stock exactly as it was persisted (used when recovering inventory from disk). */
+    public void restoreStockState(int quantity, int version) {
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Quantity cannot be negative.");
+        }
+        stockState.set(packStockState(quantity, version));
+        reindex();
+    }
+
+    void attachStockLevelIndex(StockLevelIndex index) {
+        this.stockLevelIndex = index;
+        index.update(this);
+    }
+
+    private void reindex() {
+        StockLevelIndex index = stockLevelIndex;
+        if (index != null) {
+            index.update(this);
         }
     }
 
     @Override
     public String toString() {
-        return String.format("'%s' (ID: %s) - $%.2f [%d in stock]", name, barcode, price, quantityInStock);
+        return "'" + name + "' (ID: " + barcode + ") - " + Money.display(priceCents) + " [" + getQuantityInStock() + " in stock]";
     }
 
     @Override
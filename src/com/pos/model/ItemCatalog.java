@@ -0,0 +1,35 @@
+package com.pos.model;
+
+import java.util.function.Consumer;
+
+/**
+ * Barcode -> Item storage behind Inventory. Lookups must be safe to call from any number of
+ * lanes while items are being added; items are never removed.
+ */
+public interface ItemCatalog {
+
+    // Returns the item with this barcode, or null
+    Item get(String barcode);
+
+    // Adds the item unless its barcode is taken; returns the existing item, or null if it was added
+    Item putIfAbsent(Item item);
+
+    int size();
+
+    // Visits every item (weakly consistent while items are being added)
+    void forEach(Consumer<Item> action);
+
+    // Visits the items that exist as objects; catalogs that create items lazily skip the ones never looked up
+    default void forEachLoaded(Consumer<Item> action) {
+        forEach(action);
+    }
+
+    // Creates the items a lazily loading catalog holds at or below their low stock threshold (so they reach the
+    // item loaded callback); other catalogs already hold every item
+    default void loadLowStockItems() {
+    }
+
+    // Called with each item a lazily loading catalog creates on its first lookup (not for items added with putIfAbsent)
+    default void setItemLoadedCallback(Consumer<Item> callback) {
+    }
+}
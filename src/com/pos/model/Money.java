@@ -0,0 +1,119 @@
+package com.pos.model;
+
+/**
+ * Money helpers for amounts stored as a primitive long number of cents (minor units).
+ * All prices and totals in the model are cents, so arithmetic is exact and needs no
+ * boxing; formatting appends straight into a StringBuilder without String.format.
+ */
+public final class Money {
+    public static final long ZERO = 0L;
+
+    private Money() {
+        // Utility class
+    }
+
+    /** Builds an amount from whole units and cents, e.g. of(2, 50) is $2.50. */
+    public static long of(long units, int cents) {
+        if (cents < 0 || cents > 99) {
+            throw new IllegalArgumentException("Cents must be between 0 and 99.");
+        }
+        return Math.addExact(Math.multiplyExact(units, 100L), units < 0 ? -cents : cents);
+    }
+
+    /** Price times quantity (throws ArithmeticException on overflow). */
+    public static long times(long cents, int quantity) {
+        return Math.multiplyExact(cents, (long) quantity);
+    }
+
+    /** Converts a legacy double amount (e.g. from an old data file), rounding to the nearest cent. */
+    public static long fromDouble(double amount) {
+        return Math.round(amount * 100.0);
+    }
+
+    /**
+     * Parses user input such as "4.99", "$4.99", "-1.5" or "12" into cents.
+     * More than two decimals are rounded half-up to the nearest cent.
+     * throws NumberFormatException if the text is not an amount.
+     */
+    public static long parse(String text) {
+        if (text == null) {
+            throw new NumberFormatException("Amount is missing.");
+        }
+        String value = text.trim();
+        boolean negative = value.startsWith("-");
+        if (negative) {
+            value = value.substring(1).trim();
+        }
+        if (value.startsWith("$")) {
+            value = value.substring(1).trim();
+        }
+        if (value.isEmpty()) {
+            throw new NumberFormatException("Invalid amount: '" + text + "'");
+        }
+
+        long units = 0;
+        long cents = 0;
+        int decimals = -1; // -1 until the decimal point is seen
+        boolean roundUp = false;
+        boolean anyDigit = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                int digit = c - '0';
+                if (decimals < 0) {
+                    units = Math.addExact(Math.multiplyExact(units, 10L), digit);
+                } else if (decimals < 2) {
+                    cents = cents * 10 + digit;
+                    decimals++;
+                } else if (decimals == 2) {
+                    roundUp = digit >= 5;
+                    decimals++;
+                }
+            } else {
+                throw new NumberFormatException("Invalid amount: '" + text + "'");
+            }
+        }
+        if (!anyDigit) {
+            throw new NumberFormatException("Invalid amount: '" + text + "'");
+        }
+        if (decimals == 1) {
+            cents *= 10; // "4.5" means 4.50
+        }
+        long amount = Math.addExact(Math.multiplyExact(units, 100L), cents + (roundUp ? 1 : 0));
+        return negative ? -amount : amount;
+    }
+
+    /** Appends an amount as plain digits with two decimals (e.g. "-12.05") without allocating. */
+    public static StringBuilder appendTo(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            if (cents == Long.MIN_VALUE) {
+                return sb.append("-92233720368547758.08"); // Cannot be negated
+            }
+            sb.append('-');
+            cents = -cents;
+        }
+        long remainder = cents % 100;
+        sb.append(cents / 100).append('.');
+        if (remainder < 10) {
+            sb.append('0');
+        }
+        return sb.append(remainder);
+    }
+
+    /** Formats an amount as "12.34" (e.g. for table cells). */
+    public static String format(long cents) {
+        return appendTo(new StringBuilder(12), cents).toString();
+    }
+
+    /** Formats an amount with a currency sign, e.g. "$12.34" or "-$0.50". */
+    public static String display(long cents) {
+        StringBuilder sb = new StringBuilder(13);
+        if (cents < 0 && cents != Long.MIN_VALUE) {
+            return appendTo(sb.append("-$"), -cents).toString();
+        }
+        return appendTo(sb.append('$'), cents).toString();
+    }
+}
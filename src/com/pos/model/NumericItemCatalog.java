@@ -0,0 +1,176 @@
+package com.pos.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Catalog for (mostly) numeric barcodes such as UPC/EAN codes. A numeric barcode is encoded as a
+ * long (its digits plus its length, so "012546011075" and "12546011075" stay different) and kept
+ * in an open-addressing table of two parallel arrays, long keys and Item references. A lookup
+ * hashes a long and probes an array instead of hashing a String and following map nodes, and
+ * each SKU costs two array slots instead of a map node plus a key String.
+ * Barcodes that are not all digits (or too long) go to a ConcurrentHashMap on the side.
+ *
+ * Lookups are lock-free. Adds are serialized (they are rare next to scans): a new entry's item is
+ * written before its key is published, and growing the table builds a new one and swaps it in,
+ * so readers always see either a complete entry or none.
+ */
+public class NumericItemCatalog implements ItemCatalog {
+    static final int MAX_DIGITS = 17;              // 10^17 < 2^57, leaving the bits above for the length
+    private static final int LENGTH_SHIFT = 57;
+    private static final long NOT_NUMERIC = 0L;    // Never a valid key (every key has a length of at least 1)
+    private static final int MIN_CAPACITY = 16;
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private volatile Table table;
+    private final Map<String, Item> otherItems = new ConcurrentHashMap<>(); // Non-numeric barcodes
+    private volatile int numericCount; // Only written while holding the lock
+
+    public NumericItemCatalog() {
+        this(MIN_CAPACITY);
+    }
+
+    // Sizes the table up front so loading a large catalog does not grow it repeatedly
+    public NumericItemCatalog(int expectedItems) {
+        if (expectedItems < 0) {
+            throw new IllegalArgumentException("Expected item count cannot be negative.");
+        }
+        this.table = new Table(capacityFor(expectedItems));
+    }
+
+    /**
+     * Encodes a barcode of 1 to 17 digits as a long key.
+     * return The key, or 0 if the barcode is not numeric (or too long).
+     */
+    static long encode(String barcode) {
+        int length = barcode.length();
+        if (length == 0 || length > MAX_DIGITS) {
+            return NOT_NUMERIC;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            char c = barcode.charAt(i);
+            if (c < '0' || c > '9') {
+                return NOT_NUMERIC;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return ((long) length << LENGTH_SHIFT) | value;
+    }
+
+    @Override
+    public Item get(String barcode) {
+        if (barcode == null) {
+            return null;
+        }
+        long key = encode(barcode);
+        return key == NOT_NUMERIC ? otherItems.get(barcode) : table.get(key);
+    }
+
+    @Override
+    public Item putIfAbsent(Item item) {
+        long key = encode(item.getBarcode());
+        if (key == NOT_NUMERIC) {
+            return otherItems.putIfAbsent(item.getBarcode(), item);
+        }
+        synchronized (this) {
+            Table current = table;
+            Item existing = current.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            if ((numericCount + 1) * 2L > current.keys.length) { // Keep the table at most half full
+                current = current.grow();
+                table = current;
+            }
+            current.insert(key, item);
+            numericCount++;
+            return null;
+        }
+    }
+
+    @Override
+    public int size() {
+        return numericCount + otherItems.size();
+    }
+
+    @Override
+    public void forEach(Consumer<Item> action) {
+        table.forEach(action);
+        otherItems.values().forEach(action);
+    }
+
+    private static int capacityFor(int items) {
+        long capacity = Math.max(MIN_CAPACITY, Long.highestOneBit(Math.max(1, items * 2L - 1)) << 1);
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Catalog too large: " + items + " items.");
+        }
+        return (int) capacity;
+    }
+
+    // Spreads the decimal key over the table (consecutive barcodes would otherwise cluster)
+    private static int slotOf(long key, int mask) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private static final class Table {
+        final long[] keys;
+        final Item[] items;
+        final int mask;
+
+        Table(int capacity) {
+            this.keys = new long[capacity];
+            this.items = new Item[capacity];
+            this.mask = capacity - 1;
+        }
+
+        Item get(long key) {
+            for (int i = slotOf(key, mask); ; i = (i + 1) & mask) {
+                long slotKey = (long) KEYS.getAcquire(keys, i);
+                if (slotKey == key) {
+                    return items[i];
+                }
+                if (slotKey == NOT_NUMERIC) {
+                    return null;
+                }
+            }
+        }
+
+        // Caller holds the catalog's lock and has checked that the key is absent
+        void insert(long key, Item item) {
+            int i = slotOf(key, mask);
+            while (keys[i] != NOT_NUMERIC) {
+                i = (i + 1) & mask;
+            }
+            items[i] = item;
+            KEYS.setRelease(keys, i, key); // Publishes the item along with the key
+        }
+
+        Table grow() {
+            if (keys.length >= 1 << 30) {
+                throw new IllegalStateException("Catalog is full.");
+            }
+            Table bigger = new Table(keys.length << 1);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != NOT_NUMERIC) {
+                    bigger.insert(keys[i], items[i]);
+                }
+            }
+            return bigger; // Published by the volatile write of the table field
+        }
+
+        void forEach(Consumer<Item> action) {
+            for (int i = 0; i < keys.length; i++) {
+                if ((long) KEYS.getAcquire(keys, i) != NOT_NUMERIC) {
+                    action.accept(items[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.pos.model;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Versioned prices for the items of an Inventory, so a mass price change is seen all at once.
+ *
+ * Current prices live in the items themselves. Each published batch of changes becomes a new
+ * version that remembers the prices it replaced (its undo map). A cart pins the version that
+ * was current when it was opened and prices every line at that version: the item's current
+ * price, unless a later version replaced it, in which case the oldest such undo entry holds
+ * the price at the pinned version. Most carts are pinned at the current version, so this is
+ * a single field read.
+ *
+ * Publishing (read-copy-update): the new version, with its undo map, is linked in first, then
+ * the item prices are written, then the version becomes current. Lines priced while the batch
+ * is being written still see the old prices through the undo map. Versions only link to newer
+ * versions, so once no cart pins a version (or an older one) the garbage collector reclaims it
+ * with its undo map.
+ */
+public class PriceBook {
+    private volatile Version current = new Version(0, Collections.emptyMap());
+
+    /** A published set of prices. Pin one by keeping a reference; release it by dropping the reference. */
+    public static final class Version {
+        private final long number;
+        private final Map<String, Long> replacedPrices; // Barcode -> price before this version
+        private volatile Version next;                  // Newer version, once published
+
+        private Version(long number, Map<String, Long> replacedPrices) {
+            this.number = number;
+            this.replacedPrices = replacedPrices;
+        }
+
+        public long getNumber() {
+            return number;
+        }
+
+        /** The item's price (in cents) as of this version. */
+        public long priceOf(Item item) {
+            long price = item.getPriceCents(); // Read before the newer versions, see the class comment
+            for (Version newer = next; newer != null; newer = newer.next) {
+                Long replaced = newer.replacedPrices.get(item.getBarcode());
+                if (replaced != null) {
+                    return replaced;
+                }
+            }
+            return price;
+        }
+    }
+
+    /** Returns the current version (for a cart to price all its lines at). */
+    public Version pin() {
+        return current;
+    }
+
+    public long getCurrentVersion() {
+        return current.number;
+    }
+
+    /** Collects price changes to be published together. Not thread-safe. */
+    public static final class Batch {
+        private final Map<Item, Long> prices = new LinkedHashMap<>();
+
+        /**
+         * Sets the new price of an item (the last price set for an item wins).
+         * throws IllegalArgumentException if the price is negative.
+         */
+        public Batch setPrice(Item item, long priceCents) {
+            if (item == null) {
+                throw new IllegalArgumentException("Item cannot be null.");
+            }
+            if (priceCents < 0) {
+                throw new IllegalArgumentException("Price cannot be negative.");
+            }
+            prices.put(item, priceCents);
+            return this;
+        }
+
+        public int size() {
+            return prices.size();
+        }
+
+        Map<Item, Long> prices() {
+            return prices;
+        }
+
+        Iterable<Item> items() {
+            return prices.keySet();
+        }
+    }
+
+    public static Batch newBatch() {
+        return new Batch();
+    }
+
+    /**
+     * Publishes a batch of price changes as one new version. Carts pinned at older versions keep
+     * their prices; carts opened afterwards see every change of the batch.
+     * Use Inventory.publishPrices for inventory items so the changes are also persisted.
+     * return The new version, or the current one if the batch changes no price.
+     */
+    public synchronized Version publish(Batch batch) {
+        Map<String, Long> replaced = new HashMap<>();
+        for (Map.Entry<Item, Long> change : batch.prices().entrySet()) {
+            Item item = change.getKey();
+            if (item.getPriceCents() != change.getValue()) {
+                replaced.put(item.getBarcode(), item.getPriceCents());
+            }
+        }
+        Version previous = current;
+        if (replaced.isEmpty()) {
+            return previous;
+        }
+        Version version = new Version(previous.number + 1, replaced);
+        previous.next = version; // Old prices are reachable before any item changes
+        for (Map.Entry<Item, Long> change : batch.prices().entrySet()) {
+            change.getKey().setPriceCents(change.getValue());
+        }
+        current = version;
+        return version;
+    }
+}
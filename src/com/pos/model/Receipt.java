@@ -5,25 +5,36 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.UUID; // For unique IDs
 
 public class Receipt {
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private final String receiptId;
     private final LocalDateTime timestamp;
     private final List<TransactionItem> items;
-    private double totalAmount; // Calculated total
+    private long totalAmount; // Calculated total, in cents
     private final Employee processedBy;
     private final TransactionType type;
     private final String originalReceiptId; // For RETURN transactions
 
-    // Constructor for PURCHASE
+    // Constructor for PURCHASE (ID from the default generator)
     public Receipt(List<TransactionItem> items, Employee processedBy) {
-        this(items, processedBy, TransactionType.PURCHASE, null);
+        this(ReceiptIdGenerator.getDefault().next(), items, processedBy);
+    }
+
+    // Constructor for PURCHASE with an ID from a ReceiptIdGenerator
+    public Receipt(String receiptId, List<TransactionItem> items, Employee processedBy) {
+        this(receiptId, items, processedBy, TransactionType.PURCHASE, null);
     }
 
-    // Constructor for RETURN
-    public Receipt(List<TransactionItem> returnedItems, Employee processedBy, String originalReceiptId, double refundAmount) {
-         this(returnedItems, processedBy, TransactionType.RETURN, originalReceiptId);
+    // Constructor for RETURN (ID from the default generator)
+    public Receipt(List<TransactionItem> returnedItems, Employee processedBy, String originalReceiptId, long refundAmount) {
+        this(ReceiptIdGenerator.getDefault().next(), returnedItems, processedBy, originalReceiptId, refundAmount);
+    }
+
+    // Constructor for RETURN with an ID from a ReceiptIdGenerator
+    public Receipt(String receiptId, List<TransactionItem> returnedItems, Employee processedBy, String originalReceiptId, long refundAmount) {
+         this(receiptId, returnedItems, processedBy, TransactionType.RETURN, originalReceiptId);
          // For returns, the totalAmount is typically negative (representing refund)
          // The refundAmount might be custom (manager) or calculated (cashier)
          this.totalAmount = -Math.abs(refundAmount); // Ensure it's negative
@@ -31,7 +42,10 @@ public class Receipt {
 
 
     // Private common constructor
-    private Receipt(List<TransactionItem> items, Employee processedBy, TransactionType type, String originalReceiptId) {
+    private Receipt(String receiptId, List<TransactionItem> items, Employee processedBy, TransactionType type, String originalReceiptId) {
+        if (receiptId == null || receiptId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Receipt ID cannot be empty.");
+        }
         if (items == null || items.isEmpty()) {
             throw new IllegalArgumentException("Receipt must contain at least one item.");
         }
@@ -42,7 +56,7 @@ public class Receipt {
             throw new IllegalArgumentException("Original Receipt ID is required for returns.");
         }
 
-        this.receiptId = UUID.randomUUID().toString().substring(0, 8).toUpperCase(); // Short unique ID
+        this.receiptId = receiptId;
         this.timestamp = LocalDateTime.now();
         this.items = new ArrayList<>(items); // Copy the list
         this.processedBy = processedBy;
@@ -55,9 +69,42 @@ public class Receipt {
         }
     }
 
+    // Restoring constructor (used when replaying persisted receipts - keeps the original ID, time and total)
+    private Receipt(String receiptId, LocalDateTime timestamp, List<TransactionItem> items, Employee processedBy,
+                    TransactionType type, String originalReceiptId, long totalAmount) {
+        this.receiptId = receiptId;
+        this.timestamp = timestamp;
+        this.items = new ArrayList<>(items);
+        this.processedBy = processedBy;
+        this.type = type;
+        this.originalReceiptId = originalReceiptId;
+        this.totalAmount = totalAmount;
+    }
+
+    /**
+     * Rebuilds a receipt exactly as it was originally recorded (e.g. from the transaction journal).
+     * Unlike the public constructors, no new ID or timestamp is generated and the total is not recalculated.
+     */
+    public static Receipt restore(String receiptId, LocalDateTime timestamp, List<TransactionItem> items, Employee processedBy,
+                                  TransactionType type, String originalReceiptId, long totalAmount) {
+        if (receiptId == null || receiptId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Receipt ID cannot be empty.");
+        }
+        if (timestamp == null || type == null) {
+            throw new IllegalArgumentException("Timestamp and transaction type are required.");
+        }
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Receipt must contain at least one item.");
+        }
+        if (processedBy == null) {
+            throw new IllegalArgumentException("Processed by employee cannot be null.");
+        }
+        return new Receipt(receiptId, timestamp, items, processedBy, type, originalReceiptId, totalAmount);
+    }
+
 
     private void calculateTotal() {
-        this.totalAmount = 0.0;
+        this.totalAmount = 0;
         for (TransactionItem item : items) {
             this.totalAmount += item.getSubtotal();
         }
@@ -67,21 +114,21 @@ public class Receipt {
     public String getReceiptId() { return receiptId; }
     public LocalDateTime getTimestamp() { return timestamp; }
     public List<TransactionItem> getItems() { return Collections.unmodifiableList(items); } // Return immutable view
-    public double getTotalAmount() { return totalAmount; }
+    public long getTotalAmount() { return totalAmount; } // In cents
     public Employee getProcessedBy() { return processedBy; }
     public TransactionType getType() { return type; }
     public String getOriginalReceiptId() { return originalReceiptId; }
 
 
+    // For repeated rendering (reprints, printers, email) use com.pos.receipt.ReceiptRenderer, which reuses its buffers
     public String getFormattedReceipt() {
-        StringBuilder sb = new StringBuilder();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        StringBuilder sb = new StringBuilder(256 + items.size() * 48);
 
         sb.append("========================================\n");
         sb.append("          ").append(type).append(" RECEIPT\n");
         sb.append("========================================\n");
         sb.append("Receipt ID: ").append(receiptId).append("\n");
-        sb.append("Timestamp:  ").append(timestamp.format(formatter)).append("\n");
+        sb.append("Timestamp:  ").append(timestamp.format(TIMESTAMP_FORMAT)).append("\n");
         sb.append("Processed By: ").append(processedBy.getName()).append(" (").append(processedBy.getEmployeeId()).append(")\n");
         if (type == TransactionType.RETURN && originalReceiptId != null) {
              sb.append("Original Purchase ID: ").append(originalReceiptId).append("\n");
@@ -89,13 +136,13 @@ public class Receipt {
         sb.append("----------------------------------------\n");
         sb.append("Items:\n");
         for (TransactionItem item : items) {
-            sb.append("- ").append(item.toString()).append("\n");
+            item.appendTo(sb.append("- ")).append("\n");
         }
         sb.append("----------------------------------------\n");
         if (type == TransactionType.PURCHASE) {
-             sb.append(String.format("TOTAL AMOUNT: $%.2f\n", totalAmount));
+             Money.appendTo(sb.append("TOTAL AMOUNT: $"), totalAmount).append("\n");
         } else { // RETURN
-             sb.append(String.format("TOTAL REFUND: $%.2f\n", Math.abs(totalAmount))); // Display as positive refund
+             Money.appendTo(sb.append("TOTAL REFUND: $"), Math.abs(totalAmount)).append("\n"); // Display as positive refund
         }
         sb.append("========================================\n");
 
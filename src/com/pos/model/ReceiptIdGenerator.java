@@ -0,0 +1,191 @@
+package com.pos.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates short, unique, monotonic receipt IDs such as "01-0000A7" (node 01) or
+ * "01E007-0000A7" (node 01, lane LANE007).
+ *
+ * The part before the dash identifies the store node (and lane), so IDs from different stores
+ * and registers never collide. A lane is identified by the last four letters or digits of its
+ * ID, where lane names differ; two lanes that would share a prefix are refused (see
+ * registerLane) instead of sharing a counter. The part after the dash is a per-prefix counter in Crockford base 32
+ * (digits and letters without I, L, O, U, so it is easy to read back and type), at least six
+ * characters long. Each prefix has its own lock-free counter, so lanes never contend with each
+ * other. Counters restart from the highest ID seen in the transaction journal (see observe()).
+ */
+public class ReceiptIdGenerator {
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int MIN_COUNTER_DIGITS = 6;
+    private static final int MAX_LANE_CHARS = 4;
+    private static final char SEPARATOR = '-';
+
+    // Node of this process, e.g. -Dpos.nodeId=07 for the seventh store
+    private static final ReceiptIdGenerator DEFAULT = new ReceiptIdGenerator(System.getProperty("pos.nodeId", "01"));
+
+    private final String nodeId;
+    private final Sequence nodeSequence; // IDs without a lane
+    private final Map<String, Sequence> sequencesByPrefix = new ConcurrentHashMap<>();
+    // Lane IDs as passed in, so the prefix is only built the first time a lane asks for an ID
+    private final Map<String, Sequence> sequencesByLane = new ConcurrentHashMap<>();
+    // Lane prefix -> the lane's letters and digits, to detect two lanes mapping to one prefix
+    private final Map<String, String> lanesByPrefix = new ConcurrentHashMap<>();
+
+    /**
+     * param nodeId Exactly two letters or digits identifying the store node.
+     * throws IllegalArgumentException if the node ID is not two letters or digits.
+     */
+    public ReceiptIdGenerator(String nodeId) {
+        if (nodeId == null || nodeId.length() != 2 || !isAlphanumeric(nodeId)) {
+            throw new IllegalArgumentException("Node ID must be exactly two letters or digits.");
+        }
+        this.nodeId = nodeId.toUpperCase();
+        this.nodeSequence = new Sequence(this.nodeId);
+        sequencesByPrefix.put(this.nodeId, nodeSequence);
+    }
+
+    public static ReceiptIdGenerator getDefault() {
+        return DEFAULT;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /** Next ID for the node itself (no lane). */
+    public String next() {
+        return nodeSequence.next();
+    }
+
+    /**
+     * Next ID for a lane. The lane ID is upper-cased and cut to its last four letters or digits;
+     * a lane ID without any (or null) uses the node's own counter.
+     * throws IllegalArgumentException if another lane already uses the same prefix (see registerLane).
+     */
+    public String next(String laneId) {
+        if (laneId == null) {
+            return next();
+        }
+        Sequence sequence = sequencesByLane.get(laneId); // Lock-free on the common path
+        if (sequence == null) {
+            sequence = sequencesByLane.computeIfAbsent(laneId, key -> sequenceFor(registerLane(key)));
+        }
+        return sequence.next();
+    }
+
+    /**
+     * Claims the receipt ID prefix of a lane, so a clash is found when the lane opens rather than
+     * at its first sale. Registering the same lane again is allowed.
+     * return The lane's prefix (node ID plus the lane's last four letters or digits).
+     * throws IllegalArgumentException if a different lane already uses the prefix, e.g. "NORTH-1001"
+     *        and "SOUTH-1001".
+     */
+    public String registerLane(String laneId) {
+        String code = laneCode(laneId);
+        String prefix = nodeId + code.substring(Math.max(0, code.length() - MAX_LANE_CHARS));
+        if (code.isEmpty()) {
+            return prefix; // Uses the node's own counter
+        }
+        String owner = lanesByPrefix.putIfAbsent(prefix, code);
+        if (owner != null && !owner.equals(code)) {
+            throw new IllegalArgumentException("Lane '" + laneId + "' would share receipt ID prefix " + prefix
+                    + " with lane " + owner + "; lane IDs must differ in their last " + MAX_LANE_CHARS + " letters or digits.");
+        }
+        return prefix;
+    }
+
+    private Sequence sequenceFor(String prefix) {
+        Sequence sequence = sequencesByPrefix.get(prefix);
+        return sequence != null ? sequence : sequencesByPrefix.computeIfAbsent(prefix, Sequence::new);
+    }
+
+    // The lane ID's letters and digits, upper-cased
+    private static String laneCode(String laneId) {
+        StringBuilder code = new StringBuilder(laneId.length());
+        for (int i = 0; i < laneId.length(); i++) {
+            char c = Character.toUpperCase(laneId.charAt(i));
+            if ((c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z')) {
+                code.append(c);
+            }
+        }
+        return code.toString();
+    }
+
+    private static String format(String prefix, long counter) {
+        char[] digits = new char[13]; // 64 bits in base 32
+        int start = digits.length;
+        do {
+            digits[--start] = ALPHABET[(int) (counter & 31)];
+            counter >>>= 5;
+        } while (counter != 0);
+        while (digits.length - start < MIN_COUNTER_DIGITS) {
+            digits[--start] = '0';
+        }
+        char[] id = new char[prefix.length() + 1 + digits.length - start];
+        prefix.getChars(0, prefix.length(), id, 0);
+        id[prefix.length()] = SEPARATOR;
+        System.arraycopy(digits, start, id, prefix.length() + 1, digits.length - start);
+        return new String(id);
+    }
+
+    /**
+     * Moves the counter of the ID's prefix past an ID that already exists (e.g. replayed from the
+     * journal), so it is never generated again. IDs of other nodes and old-style IDs are ignored.
+     */
+    public void observe(String receiptId) {
+        int separator = receiptId == null ? -1 : receiptId.lastIndexOf(SEPARATOR);
+        if (separator < nodeId.length() || !receiptId.startsWith(nodeId)) {
+            return;
+        }
+        long value = 0;
+        for (int i = separator + 1; i < receiptId.length(); i++) {
+            int digit = digitOf(receiptId.charAt(i));
+            if (digit < 0 || value >>> 59 != 0) {
+                return; // Not one of ours
+            }
+            value = (value << 5) | digit;
+        }
+        long seen = value;
+        sequenceFor(receiptId.substring(0, separator)).counter.accumulateAndGet(seen, Math::max);
+    }
+
+    /** Upper-cases and trims an ID typed at the register, so "01-00a7k " finds "01-00A7K". */
+    public static String normalize(String receiptId) {
+        return receiptId == null ? null : receiptId.trim().toUpperCase();
+    }
+
+    private static int digitOf(char c) {
+        for (int i = 0; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // One prefix (node or node + lane) and its counter
+    private static final class Sequence {
+        final String prefix;
+        final AtomicLong counter = new AtomicLong();
+
+        Sequence(String prefix) {
+            this.prefix = prefix;
+        }
+
+        String next() {
+            return format(prefix, counter.incrementAndGet());
+        }
+    }
+
+    private static boolean isAlphanumeric(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = Character.toUpperCase(value.charAt(i));
+            if (!((c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,64 @@
+package com.pos.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the low stock and out of stock items of an Inventory in two buckets, updated by each
+ * item whenever its stock or low stock threshold changes. Queries copy one bucket, so they cost
+ * time proportional to the number of matching items instead of a scan of the whole catalog.
+ */
+final class StockLevelIndex {
+    private final Set<Item> lowStock = ConcurrentHashMap.newKeySet();   // 0 < quantity <= threshold
+    private final Set<Item> outOfStock = ConcurrentHashMap.newKeySet(); // quantity == 0
+
+    /**
+     * Moves the item to the bucket matching its current stock.
+     * Two lanes can change the same item at once and update the buckets in the opposite order,
+     * so the item's state is re-read afterwards and the update repeated until it was not stale.
+     */
+    void update(Item item) {
+        while (true) {
+            long state = item.getStockState();
+            int threshold = item.getLowStockThreshold();
+            int quantity = Item.quantityOf(state);
+
+            if (quantity == 0) {
+                place(item, outOfStock, lowStock);
+            } else if (quantity <= threshold) {
+                place(item, lowStock, outOfStock);
+            } else {
+                discard(item, lowStock);
+                discard(item, outOfStock);
+            }
+
+            if (item.getStockState() == state && item.getLowStockThreshold() == threshold) {
+                return;
+            }
+        }
+    }
+
+    // contains() is lock-free, so items that stay in the same bucket (most sales) never lock a bin
+    private static void place(Item item, Set<Item> into, Set<Item> from) {
+        if (!into.contains(item)) {
+            into.add(item);
+        }
+        discard(item, from);
+    }
+
+    private static void discard(Item item, Set<Item> from) {
+        if (from.contains(item)) {
+            from.remove(item);
+        }
+    }
+
+    List<Item> getLowStockItems() {
+        return new ArrayList<>(lowStock);
+    }
+
+    List<Item> getOutOfStockItems() {
+        return new ArrayList<>(outOfStock);
+    }
+}
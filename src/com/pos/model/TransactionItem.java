@@ -4,7 +4,9 @@ package com.pos.model;
 public class TransactionItem {
     private final Item item; // Reference to the inventory item
     private final int quantity;
-    private final double priceAtTransaction; // Price might change later in inventory
+    private final long priceAtTransaction; // In cents; price might change later in inventory
+    private final Gs1.Measure measure;     // PRICE or WEIGHT: one variable-measure package, identified by its label value
+    private final int measuredValue;       // Price (cents) or weight (grams) from the label, -1 for other lines
 
     public TransactionItem(Item item, int quantity) {
         if (item == null) throw new IllegalArgumentException("Item cannot be null");
@@ -12,7 +14,28 @@ public class TransactionItem {
 
         this.item = item;
         this.quantity = quantity;
-        this.priceAtTransaction = item.getPrice(); // Capture current price
+        this.priceAtTransaction = item.getPriceCents(); // Capture current price
+        this.measure = Gs1.Measure.NONE;
+        this.measuredValue = -1;
+    }
+
+    // Use an explicit price (e.g. a price captured on an earlier receipt)
+    public TransactionItem(Item item, int quantity, long priceAtTransaction) {
+        this(item, quantity, priceAtTransaction, Gs1.Measure.NONE, -1);
+    }
+
+    // A variable-measure package (price or weight label), or a plain line if measure is NONE
+    public TransactionItem(Item item, int quantity, long priceAtTransaction, Gs1.Measure measure, int measuredValue) {
+        if (item == null) throw new IllegalArgumentException("Item cannot be null");
+        if (quantity <= 0) throw new IllegalArgumentException("Quantity must be positive");
+        if (priceAtTransaction < 0) throw new IllegalArgumentException("Price cannot be negative");
+        if (measure == null) throw new IllegalArgumentException("Measure cannot be null");
+
+        this.item = item;
+        this.quantity = quantity;
+        this.priceAtTransaction = priceAtTransaction;
+        this.measure = measure;
+        this.measuredValue = measure == Gs1.Measure.NONE ? -1 : measuredValue;
     }
 
     public Item getItem() {
@@ -23,17 +46,38 @@ public class TransactionItem {
         return quantity;
     }
 
-    public double getPriceAtTransaction() {
+    public boolean isMeasured() {
+        return measure != Gs1.Measure.NONE;
+    }
+
+    public Gs1.Measure getMeasure() {
+        return measure;
+    }
+
+    // Price (cents) or weight (grams) from the package's label, -1 for other lines
+    public int getMeasuredValue() {
+        return measuredValue;
+    }
+
+    // Price per unit in cents
+    public long getPriceAtTransaction() {
         return priceAtTransaction;
     }
 
-    public double getSubtotal() {
-        return priceAtTransaction * quantity;
+    // Line total in cents
+    public long getSubtotal() {
+        return Money.times(priceAtTransaction, quantity);
+    }
+
+    // Appends "2 x Apple @ $0.50 = $1.00" without creating intermediate strings
+    public StringBuilder appendTo(StringBuilder sb) {
+        sb.append(quantity).append(" x ").append(item.getName()).append(" @ $");
+        Money.appendTo(sb, priceAtTransaction).append(" = $");
+        return Money.appendTo(sb, getSubtotal());
     }
 
     @Override
     public String toString() {
-        return String.format("%d x %s @ $%.2f = $%.2f",
-                quantity, item.getName(), priceAtTransaction, getSubtotal());
+        return appendTo(new StringBuilder(64)).toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,59 @@
+package com.pos.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a catalog import: row counts and the rows that were rejected.
+ * Only the first MAX_REPORTED_ERRORS rejected rows are kept, the rest are only counted.
+ */
+public class CatalogImportReport {
+    public static final int MAX_REPORTED_ERRORS = 1000;
+
+    private long rowsRead;
+    private long added;
+    private long updated;
+    private long unchanged;
+    private long errorCount;
+    private long elapsedMillis;
+    private final List<RowError> errors = new ArrayList<>();
+
+    // A rejected row; row numbers start at 1 (the CSV header counts as a row)
+    public record RowError(long row, String barcode, String message) {
+        @Override
+        public String toString() {
+            return "Row " + row + (barcode == null ? "" : " (" + barcode + ")") + ": " + message;
+        }
+    }
+
+    void rowRead() { rowsRead++; }
+    void itemAdded() { added++; }
+    void itemUpdated() { updated++; }
+    void itemUnchanged() { unchanged++; }
+
+    void error(RowError error) {
+        errorCount++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    void finished(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getRowsRead() { return rowsRead; }
+    public long getAdded() { return added; }
+    public long getUpdated() { return updated; }
+    public long getUnchanged() { return unchanged; }
+    public long getErrorCount() { return errorCount; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    public List<RowError> getErrors() { return Collections.unmodifiableList(errors); }
+
+    @Override
+    public String toString() {
+        return "Catalog import: " + rowsRead + " row(s) read, " + added + " added, " + updated + " updated, "
+                + unchanged + " unchanged, " + errorCount + " rejected in " + elapsedMillis + " ms.";
+    }
+}
@@ -0,0 +1,394 @@
+package com.pos.persistence;
+
+import com.pos.model.Inventory;
+import com.pos.model.Item;
+import com.pos.model.Money;
+import com.pos.model.PriceBook;
+import com.pos.persistence.CatalogImportReport.RowError;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports (upserts) a catalog file into a live Inventory: new barcodes are added, known ones get
+ * the file's name, price and stock (and low stock threshold, if given).
+ *
+ * Rows are read as a stream and cut into chunks that worker threads parse and validate (with
+ * Item's own rules) in parallel. Chunks are then applied in file order by the calling thread,
+ * so the last row wins if a barcode appears twice, and only a bounded number of chunks is in
+ * memory at any time. Stock is set with the inventory's atomic stock updates, so lanes can keep
+ * selling during an import. Price changes of existing items are collected and published as one
+ * price book version at the end, so no basket mixes old and new prices. The whole import is one
+ * inventory batch (see Inventory.beginBatch), so a persisting listener syncs its changes once at
+ * the end instead of once per row. Bad rows are reported in the CatalogImportReport and skipped.
+ *
+ * CSV: barcode,name,price,quantity[,lowStockThreshold] per line, price in dollars ("2.50"),
+ * fields with commas or quotes in double quotes (quotes doubled), an optional header line
+ * starting with "barcode". A field cannot contain a line break.
+ *
+ * Binary: [int magic][int format] then per row
+ * [short barcodeLen][barcode][short nameLen][name][long priceCents][int quantity][int lowStockThreshold (-1 = keep)]
+ * with UTF-8 strings, until the end of the file.
+ */
+public class CatalogImporter {
+    public static final int BINARY_MAGIC = 0x504F5343; // "POSC"
+    private static final int BINARY_FORMAT = 1;
+    private static final int CHUNK_ROWS = 4096;
+    private static final int KEEP_THRESHOLD = -1;
+    private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+    private final Inventory inventory;
+    private final int threads;
+
+    public CatalogImporter(Inventory inventory) {
+        this(inventory, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /** param threads Number of parsing threads (the calling thread applies the rows). */
+    public CatalogImporter(Inventory inventory, int threads) {
+        if (inventory == null) {
+            throw new IllegalArgumentException("Inventory cannot be null.");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one import thread is needed.");
+        }
+        this.inventory = inventory;
+        this.threads = threads;
+    }
+
+    // A parsed row; error is set if the row is rejected
+    private record Row(long number, String barcode, String name, long priceCents, int quantity, int threshold, String error) {
+        static Row rejected(long number, String barcode, String error) {
+            return new Row(number, barcode, null, 0, 0, KEEP_THRESHOLD, error);
+        }
+    }
+
+    /** Imports a CSV or binary file (binary files are recognized by their magic number). */
+    public CatalogImportReport importFile(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            in.mark(Integer.BYTES);
+            byte[] head = in.readNBytes(Integer.BYTES);
+            in.reset();
+            if (head.length == Integer.BYTES && ByteBuffer.wrap(head).getInt() == BINARY_MAGIC) {
+                return importBinary(in);
+            }
+            return importCsv(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+    }
+
+    // --- CSV ---
+
+    public CatalogImportReport importCsv(Reader source) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source, 1 << 16);
+        try (Pipeline pipeline = new Pipeline()) {
+            long rowNumber = 0;
+            List<String> lines = new ArrayList<>(CHUNK_ROWS);
+            long firstRow = 1;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rowNumber++;
+                if (rowNumber == 1 && line.regionMatches(true, 0, "barcode", 0, "barcode".length())) {
+                    firstRow = 2; // Header
+                    continue;
+                }
+                lines.add(line);
+                if (lines.size() == CHUNK_ROWS) {
+                    pipeline.submit(csvChunk(lines, firstRow));
+                    lines = new ArrayList<>(CHUNK_ROWS);
+                    firstRow = rowNumber + 1;
+                }
+            }
+            if (!lines.isEmpty()) {
+                pipeline.submit(csvChunk(lines, firstRow));
+            }
+            return pipeline.finish();
+        }
+    }
+
+    private static Callable<List<Row>> csvChunk(List<String> lines, long firstRow) {
+        return () -> {
+            List<Row> rows = new ArrayList<>(lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                if (!line.isBlank()) {
+                    rows.add(parseCsvRow(firstRow + i, line));
+                }
+            }
+            return rows;
+        };
+    }
+
+    private static Row parseCsvRow(long number, String line) {
+        List<String> fields = new ArrayList<>(5);
+        String error = splitCsv(line, fields);
+        String barcode = fields.isEmpty() ? null : fields.get(0).trim();
+        if (error != null) {
+            return Row.rejected(number, barcode, error);
+        }
+        if (fields.size() < 4 || fields.size() > 5) {
+            return Row.rejected(number, barcode, "Expected barcode,name,price,quantity[,lowStockThreshold] but found "
+                    + fields.size() + " field(s).");
+        }
+        long price;
+        try {
+            price = Money.parse(fields.get(2));
+        } catch (NumberFormatException e) {
+            return Row.rejected(number, barcode, "Invalid price '" + fields.get(2).trim() + "'.");
+        }
+        int quantity;
+        try {
+            quantity = Integer.parseInt(fields.get(3).trim());
+        } catch (NumberFormatException e) {
+            return Row.rejected(number, barcode, "Invalid quantity '" + fields.get(3).trim() + "'.");
+        }
+        int threshold = KEEP_THRESHOLD;
+        if (fields.size() == 5 && !fields.get(4).isBlank()) {
+            try {
+                threshold = Integer.parseInt(fields.get(4).trim());
+            } catch (NumberFormatException e) {
+                return Row.rejected(number, barcode, "Invalid low stock threshold '" + fields.get(4).trim() + "'.");
+            }
+        }
+        return validated(new Row(number, barcode, fields.get(1).trim(), price, quantity, threshold, null));
+    }
+
+    // Splits one CSV line into fields; returns an error message, or null
+    private static String splitCsv(String line, List<String> fields) {
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return quoted ? "Unterminated quoted field." : null;
+    }
+
+    // --- Binary ---
+
+    public CatalogImportReport importBinary(InputStream source) throws IOException {
+        DataInputStream in = new DataInputStream(source instanceof BufferedInputStream ? source : new BufferedInputStream(source, 1 << 16));
+        if (in.readInt() != BINARY_MAGIC || in.readInt() != BINARY_FORMAT) {
+            throw new IOException("Not a binary catalog import file (or an unsupported format).");
+        }
+        try (Pipeline pipeline = new Pipeline()) {
+            long rowNumber = 0;
+            List<Row> rows = new ArrayList<>(CHUNK_ROWS);
+            byte[] scratch = new byte[256];
+            while (true) {
+                int barcodeLength;
+                try {
+                    barcodeLength = in.readUnsignedShort();
+                } catch (EOFException e) {
+                    break; // Clean end of file
+                }
+                rowNumber++;
+                try {
+                    String barcode = readString(in, barcodeLength, scratch);
+                    String name = readString(in, in.readUnsignedShort(), scratch);
+                    rows.add(new Row(rowNumber, barcode, name, in.readLong(), in.readInt(), in.readInt(), null));
+                } catch (EOFException e) {
+                    rows.add(Row.rejected(rowNumber, null, "Truncated record at the end of the file."));
+                    break;
+                }
+                if (rows.size() == CHUNK_ROWS) {
+                    pipeline.submit(binaryChunk(rows));
+                    rows = new ArrayList<>(CHUNK_ROWS);
+                }
+            }
+            if (!rows.isEmpty()) {
+                pipeline.submit(binaryChunk(rows));
+            }
+            return pipeline.finish();
+        }
+    }
+
+    private static String readString(DataInputStream in, int length, byte[] scratch) throws IOException {
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        in.readFully(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static Callable<List<Row>> binaryChunk(List<Row> rows) {
+        return () -> {
+            List<Row> checked = new ArrayList<>(rows.size());
+            for (Row row : rows) {
+                checked.add(row.error() == null ? validated(row) : row);
+            }
+            return checked;
+        };
+    }
+
+    /** Writes items in the binary import format (e.g. to move a catalog between stores). */
+    public static void writeBinary(Path file, Collection<Item> items) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(BINARY_MAGIC);
+            out.writeInt(BINARY_FORMAT);
+            for (Item item : items) {
+                byte[] barcode = item.getBarcode().getBytes(StandardCharsets.UTF_8);
+                byte[] name = item.getName().getBytes(StandardCharsets.UTF_8);
+                if (barcode.length > 0xFFFF || name.length > 0xFFFF) {
+                    throw new IOException("Barcode or name too long for the import format: " + item.getBarcode());
+                }
+                out.writeShort(barcode.length);
+                out.write(barcode);
+                out.writeShort(name.length);
+                out.write(name);
+                out.writeLong(item.getPriceCents());
+                out.writeInt(item.getQuantityInStock());
+                out.writeInt(item.getLowStockThreshold());
+            }
+        }
+    }
+
+    // --- Validation and applying ---
+
+    // Same rules as the Item constructor, plus the threshold
+    private static Row validated(Row row) {
+        try {
+            Item.validate(row.barcode(), row.name(), row.priceCents(), row.quantity());
+        } catch (IllegalArgumentException e) {
+            return Row.rejected(row.number(), row.barcode(), e.getMessage());
+        }
+        if (row.threshold() < KEEP_THRESHOLD) {
+            return Row.rejected(row.number(), row.barcode(), "Low stock threshold cannot be negative.");
+        }
+        return row;
+    }
+
+    private void apply(Row row, CatalogImportReport report, PriceBook.Batch priceChanges) {
+        report.rowRead();
+        if (row.error() != null) {
+            report.error(new RowError(row.number(), row.barcode(), row.error()));
+            return;
+        }
+        Item existing = inventory.findItemByBarcode(row.barcode()).orElse(null);
+        if (existing == null) {
+            Item item = new Item(row.barcode(), row.name(), row.priceCents(), row.quantity());
+            if (row.threshold() != KEEP_THRESHOLD) {
+                item.setLowStockThreshold(row.threshold());
+            }
+            existing = inventory.addItemIfAbsent(item);
+            if (existing == null) {
+                report.itemAdded();
+                return;
+            }
+        }
+        boolean changed = !existing.getName().equals(row.name()) || existing.getPriceCents() != row.priceCents()
+                || existing.getQuantityInStock() != row.quantity()
+                || (row.threshold() != KEEP_THRESHOLD && existing.getLowStockThreshold() != row.threshold());
+        if (!changed) {
+            report.itemUnchanged();
+            return;
+        }
+        if (!existing.getName().equals(row.name())) {
+            inventory.updateItem(row.barcode(), row.name(), existing.getPriceCents());
+        }
+        if (existing.getPriceCents() != row.priceCents()) {
+            priceChanges.setPrice(existing, row.priceCents());
+        }
+        if (existing.getQuantityInStock() != row.quantity()) {
+            inventory.setStock(row.barcode(), row.quantity()); // Name or price only changes log no stock delta
+        }
+        if (row.threshold() != KEEP_THRESHOLD && existing.getLowStockThreshold() != row.threshold()) {
+            inventory.setLowStockThreshold(row.barcode(), row.threshold());
+        }
+        report.itemUpdated();
+    }
+
+    // Parses chunks on the worker threads and applies them in order on the calling thread
+    private final class Pipeline implements AutoCloseable {
+        private final long startNanos = System.nanoTime();
+        private final CatalogImportReport report = new CatalogImportReport();
+        private final ArrayDeque<Future<List<Row>>> pending = new ArrayDeque<>();
+        private final PriceBook.Batch priceChanges = PriceBook.newBatch();
+        private final ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "catalog-import-" + THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        // Rows are applied on the calling thread, so its changes form one batch until close()
+        Pipeline() {
+            inventory.beginBatch();
+        }
+
+        void submit(Callable<List<Row>> chunk) throws IOException {
+            pending.add(workers.submit(chunk));
+            while (pending.size() > threads * 2) { // Bounds how far reading runs ahead of applying
+                applyNext();
+            }
+        }
+
+        private void applyNext() throws IOException {
+            List<Row> rows;
+            try {
+                rows = pending.poll().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Catalog import interrupted.");
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Catalog import failed: " + e.getCause(), e.getCause());
+            }
+            for (Row row : rows) {
+                apply(row, report, priceChanges);
+            }
+        }
+
+        CatalogImportReport finish() throws IOException {
+            while (!pending.isEmpty()) {
+                applyNext();
+            }
+            if (priceChanges.size() > 0) {
+                inventory.publishPrices(priceChanges);
+            }
+            report.finished((System.nanoTime() - startNanos) / 1_000_000);
+            return report;
+        }
+
+        @Override
+        public void close() {
+            workers.shutdownNow();
+            inventory.endBatch();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.pos.persistence;
+
+// Controls when journal writes are forced to disk
+public enum DurabilityMode {
+    PER_SALE, // Every append waits until its record is on disk (concurrent appends share one sync)
+    BATCHED   // Appends return immediately, a background thread syncs every N milliseconds
+}
@@ -0,0 +1,513 @@
+package com.pos.persistence;
+
+import com.pos.model.Inventory;
+import com.pos.model.InventoryListener;
+import com.pos.model.Item;
+import com.pos.model.Money;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Persists the Inventory as periodic compact binary snapshots plus a log of the stock
+ * changes (deltas) made since the last snapshot.
+ *
+ * Every item carries a stock version that is bumped on each change. Snapshots record
+ * (quantity, version) per item and delta records carry the version they produced, so on
+ * recovery a delta is applied only if its version is newer than the snapshot's. This lets
+ * snapshots be written in the background while sales keep changing stock.
+ *
+ * The previous snapshot and its delta segments are kept until a newer snapshot is on disk, so
+ * if the latest snapshot fails its checksum, recovery falls back to the previous one (the bad
+ * file is renamed to *.corrupt).
+ *
+ * With a MappedItemCatalog only the items it has loaded are written; the rest are still as in
+ * its catalog file.
+ *
+ * Snapshot file layout (snapshot-NNNNNNNN.bin, where N is the first delta segment to replay):
+ * [int magic][int format][int itemCount] then per item
+ * [short barcodeLen][barcode][short nameLen][name][long priceCents][int quantity][int version][int lowStockThreshold],
+ * followed by [long crc32] of everything before it.
+ */
+public class InventorySnapshotStore implements InventoryListener, Closeable {
+    private static final int SNAPSHOT_MAGIC = 0x504F5349; // "POSI"
+    private static final int SNAPSHOT_FORMAT = 3;        // Prices as long cents, with low stock thresholds
+    private static final int NO_THRESHOLD_FORMAT = 2;    // Prices as long cents, default thresholds
+    private static final int LEGACY_DOUBLE_FORMAT = 1;   // Prices as doubles, default thresholds
+    private static final String DELTA_PREFIX = "delta";
+    private static final long DELTA_SYNC_MILLIS = 100;
+
+    private static final byte RECORD_LEGACY_ITEM_ADDED = 1; // Price as a double
+    private static final byte RECORD_STOCK_CHANGED = 2;
+    private static final byte RECORD_ITEM_ADDED = 3;
+    private static final byte RECORD_THRESHOLD_CHANGED = 4;
+    private static final byte RECORD_ITEM_UPDATED = 5;      // New name and price
+
+    private final Path directory;
+    private final SegmentedLog deltaLog;
+    private final ScheduledExecutorService snapshotScheduler;
+    private final AtomicLong changeCount = new AtomicLong(); // Changes logged (or failed to log) since the store was opened
+    private final ThreadLocal<int[]> batchDepth = ThreadLocal.withInitial(() -> new int[1]); // Open batches per thread
+    private long changeCountAtLastSnapshot;
+    private Inventory inventory;
+
+    public InventorySnapshotStore(Path directory) throws IOException {
+        this(directory, DurabilityMode.PER_SALE, DELTA_SYNC_MILLIS);
+    }
+
+    /**
+     * Opens (or creates) the store in the given directory.
+     * param deltaDurability How stock changes are synced. Stock is only ever rebuilt from the snapshot and
+     *        the delta log (never from receipts), so use the transaction journal's mode: with BATCHED deltas
+     *        behind a PER_SALE journal, a crash keeps the last receipts but loses their stock changes.
+     * param batchIntervalMillis Sync interval for BATCHED mode (ignored for PER_SALE).
+     */
+    public InventorySnapshotStore(Path directory, DurabilityMode deltaDurability, long batchIntervalMillis) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        // In PER_SALE mode concurrent lanes share one sync (group commit, see SegmentedLog)
+        this.deltaLog = new SegmentedLog(directory, DELTA_PREFIX, deltaDurability, batchIntervalMillis);
+        this.snapshotScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inventory-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // --- Recovery ---
+
+    /**
+     * Loads the latest snapshot into the (empty) inventory and replays the deltas written after it.
+     * return true if any persisted state was found, false if the inventory needs to be seeded.
+     */
+    public boolean recover(Inventory target) throws IOException {
+        long startNanos = System.nanoTime();
+        List<Path> snapshots = listSnapshots();
+        snapshots.sort(Comparator.comparingLong(InventorySnapshotStore::snapshotNumber).reversed());
+        Path snapshot = null;
+        long firstDeltaSegment = 0;
+        int snapshotItems = 0;
+        // If a snapshot fails its checks, the previous one is used (its deltas are kept, see snapshot())
+        List<Path> bad = new ArrayList<>();
+        for (Path candidate : snapshots) {
+            try {
+                snapshotItems = loadSnapshot(candidate, target);
+                snapshot = candidate;
+                firstDeltaSegment = snapshotNumber(candidate);
+                break;
+            } catch (IOException e) {
+                System.err.println("Warning: " + e.getMessage());
+                bad.add(candidate);
+            }
+        }
+        if (snapshot == null && !bad.isEmpty()) {
+            throw new IOException("No usable inventory snapshot in " + directory + ".");
+        }
+        bad.forEach(InventorySnapshotStore::setAside); // Only once a fallback was loaded
+        int deltas = replayDeltas(firstDeltaSegment, target);
+
+        if (snapshot == null && deltas == 0) {
+            return false;
+        }
+        System.out.printf("Recovered %d item(s) from snapshot and %d stock change(s) from the delta log in %d ms.%n",
+                snapshotItems, deltas, (System.nanoTime() - startNanos) / 1_000_000);
+        return true;
+    }
+
+    // Renames a bad snapshot so it is neither loaded again nor counted as the previous snapshot
+    private static void setAside(Path snapshot) {
+        try {
+            Files.move(snapshot, snapshot.resolveSibling(snapshot.getFileName() + ".corrupt"),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Warning: Could not set aside snapshot " + snapshot.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    private int loadSnapshot(Path path, Inventory target) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < 20) {
+                throw new IOException("Snapshot " + path.getFileName() + " is truncated.");
+            }
+            int dataLength = buffer.capacity() - Long.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().limit(dataLength));
+            if (crc.getValue() != buffer.getLong(dataLength)) {
+                throw new IOException("Snapshot " + path.getFileName() + " is corrupt (checksum mismatch).");
+            }
+            int magic = buffer.getInt();
+            int format = buffer.getInt();
+            if (magic != SNAPSHOT_MAGIC || (format != SNAPSHOT_FORMAT
+                    && format != NO_THRESHOLD_FORMAT && format != LEGACY_DOUBLE_FORMAT)) {
+                throw new IOException("Snapshot " + path.getFileName() + " has an unsupported format.");
+            }
+
+            int count = buffer.getInt();
+            byte[] scratch = new byte[256]; // Reused for every string to avoid per-item temporary arrays
+            for (int i = 0; i < count; i++) {
+                String barcode = readString(buffer, scratch);
+                String name = readString(buffer, scratch);
+                long price = format == LEGACY_DOUBLE_FORMAT ? Money.fromDouble(buffer.getDouble()) : buffer.getLong();
+                int quantity = buffer.getInt();
+                int version = buffer.getInt();
+                int threshold = format == SNAPSHOT_FORMAT ? buffer.getInt() : Item.DEFAULT_LOW_STOCK_THRESHOLD;
+
+                Item item = new Item(barcode, name, price, quantity);
+                item.restoreStockState(quantity, version);
+                item.setLowStockThreshold(threshold);
+                target.addItem(item);
+            }
+            return count;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer, byte[] scratch) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        buffer.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Replays deltas in two passes: first items added after the snapshot, then stock changes,
+     * summed per item. A stock change only counts if its version is newer than the version the
+     * item was loaded with (the deltas themselves may be logged slightly out of order).
+     */
+    private int replayDeltas(long fromSegment, Inventory target) throws IOException {
+        List<ByteBuffer> stockRecords = new ArrayList<>();
+        byte[] scratch = new byte[256];
+        int[] count = {0};
+
+        deltaLog.replay(fromSegment, payload -> {
+            ByteBuffer record = ByteBuffer.wrap(payload);
+            byte type = record.get();
+            String barcode = readString(record, scratch);
+            if (type == RECORD_ITEM_ADDED || type == RECORD_LEGACY_ITEM_ADDED) {
+                if (target.findItemByBarcode(barcode).isEmpty()) {
+                    String name = readString(record, scratch);
+                    long price = type == RECORD_LEGACY_ITEM_ADDED ? Money.fromDouble(record.getDouble()) : record.getLong();
+                    int quantity = record.getInt();
+                    int version = record.getInt();
+                    Item item = new Item(barcode, name, price, quantity);
+                    item.restoreStockState(quantity, version);
+                    target.addItem(item);
+                }
+            } else if (type == RECORD_STOCK_CHANGED) {
+                stockRecords.add(record);
+            } else if (type == RECORD_THRESHOLD_CHANGED) {
+                int threshold = record.getInt();
+                target.findItemByBarcode(barcode).ifPresent(item -> item.setLowStockThreshold(threshold));
+            } else if (type == RECORD_ITEM_UPDATED) {
+                String name = readString(record, scratch);
+                long price = record.getLong();
+                // Through the inventory, so listeners (the search index) and the price book see the change
+                target.updateItem(barcode, name, price);
+            }
+            count[0]++;
+        });
+
+        // Items still carry the version they were loaded with until the summed changes are applied below
+        Map<Item, int[]> pending = new HashMap<>(); // item -> {summed delta, highest version}
+        for (ByteBuffer record : stockRecords) {
+            record.position(1);
+            String barcode = readString(record, scratch);
+            int delta = record.getInt();
+            int version = record.getInt();
+            Item item = target.findItemByBarcode(barcode).orElse(null);
+            if (item == null) {
+                System.err.println("Warning: Delta log references unknown item " + barcode + ", skipping.");
+                continue;
+            }
+            if (version - item.getStockVersion() <= 0) {
+                continue; // Already included in the snapshot
+            }
+            int[] change = pending.computeIfAbsent(item, key -> new int[]{0, key.getStockVersion()});
+            change[0] += delta;
+            if (version - change[1] > 0) {
+                change[1] = version;
+            }
+        }
+        for (Map.Entry<Item, int[]> entry : pending.entrySet()) {
+            Item item = entry.getKey();
+            int quantity = Math.max(0, item.getQuantityInStock() + entry.getValue()[0]);
+            item.restoreStockState(quantity, entry.getValue()[1]);
+        }
+        return count[0];
+    }
+
+    // --- Live persistence ---
+
+    /**
+     * Starts logging the inventory's changes and writes a snapshot every intervalSeconds
+     * (only when something changed). An initial snapshot is written right away.
+     */
+    public void attach(Inventory inventory, long intervalSeconds) {
+        if (this.inventory != null) {
+            throw new IllegalStateException("Snapshot store is already attached to an inventory.");
+        }
+        this.inventory = inventory;
+        inventory.addListener(this);
+        snapshotScheduler.execute(this::snapshotQuietly);
+        snapshotScheduler.scheduleWithFixedDelay(() -> {
+            if (changeCount.get() != changeCountAtLastSnapshot) {
+                snapshotQuietly();
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void itemAdded(Item item) {
+        long state = item.getStockState();
+        byte[] barcode = item.getBarcode().getBytes(StandardCharsets.UTF_8);
+        byte[] name = item.getName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(1 + 2 + barcode.length + 2 + name.length + 8 + 4 + 4);
+        record.put(RECORD_ITEM_ADDED);
+        record.putShort((short) barcode.length).put(barcode);
+        record.putShort((short) name.length).put(name);
+        record.putLong(item.getPriceCents());
+        record.putInt(Item.quantityOf(state));
+        record.putInt(Item.versionOf(state));
+        appendDelta(record.array());
+        if (item.getLowStockThreshold() != Item.DEFAULT_LOW_STOCK_THRESHOLD) {
+            lowStockThresholdChanged(item, item.getLowStockThreshold());
+        }
+    }
+
+    @Override
+    public void stockChanged(Item item, int delta, int newQuantity, int stockVersion) {
+        byte[] barcode = item.getBarcode().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(1 + 2 + barcode.length + 4 + 4);
+        record.put(RECORD_STOCK_CHANGED);
+        record.putShort((short) barcode.length).put(barcode);
+        record.putInt(delta);
+        record.putInt(stockVersion);
+        appendDelta(record.array());
+    }
+
+    @Override
+    public void lowStockThresholdChanged(Item item, int threshold) {
+        byte[] barcode = item.getBarcode().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(1 + 2 + barcode.length + 4);
+        record.put(RECORD_THRESHOLD_CHANGED);
+        record.putShort((short) barcode.length).put(barcode);
+        record.putInt(threshold);
+        appendDelta(record.array());
+    }
+
+    @Override
+    public void itemUpdated(Item item) {
+        byte[] barcode = item.getBarcode().getBytes(StandardCharsets.UTF_8);
+        byte[] name = item.getName().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(1 + 2 + barcode.length + 2 + name.length + 8);
+        record.put(RECORD_ITEM_UPDATED);
+        record.putShort((short) barcode.length).put(barcode);
+        record.putShort((short) name.length).put(name);
+        record.putLong(item.getPriceCents());
+        appendDelta(record.array());
+    }
+
+    @Override
+    public void batchStarted() {
+        batchDepth.get()[0]++;
+    }
+
+    @Override
+    public void batchFinished() {
+        int[] depth = batchDepth.get();
+        if (depth[0] == 0) {
+            return; // Batch started before the store was attached
+        }
+        if (--depth[0] > 0 || deltaLog.getMode() != DurabilityMode.PER_SALE) {
+            return;
+        }
+        try {
+            deltaLog.sync(); // Concurrent lanes still share one sync (group commit)
+        } catch (IOException e) {
+            changeCount.incrementAndGet(); // Make sure the next scheduled snapshot captures the state
+            System.err.println("Warning: Failed to sync inventory changes: " + e.getMessage());
+        }
+    }
+
+    // Inside a batch the record is only written; batchFinished syncs the whole batch at once
+    private void appendDelta(byte[] record) {
+        // Counted even if the append fails, so the next scheduled snapshot captures the change
+        changeCount.incrementAndGet();
+        try {
+            if (batchDepth.get()[0] > 0) {
+                deltaLog.appendDeferred(record);
+            } else {
+                deltaLog.append(record);
+            }
+        } catch (IOException e) {
+            // Never fail a sale because the delta log is unavailable; the next snapshot captures the state
+            System.err.println("Warning: Failed to log inventory change: " + e.getMessage());
+        }
+    }
+
+    // --- Snapshots ---
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException e) {
+            System.err.println("Warning: Inventory snapshot failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes a snapshot of the attached inventory without blocking sales.
+     * The delta log is rolled first, so every change missing from the snapshot is in the new segment.
+     */
+    public synchronized void snapshot() throws IOException {
+        if (inventory == null) {
+            throw new IllegalStateException("Snapshot store is not attached to an inventory.");
+        }
+        long changesBefore = changeCount.get();
+        long firstDeltaSegment = deltaLog.roll();
+
+        Path temp = directory.resolve("snapshot.tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(new UncloseableChannelStream(channel), 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+
+            // Items can be added while we iterate, so copy the references first to get a stable count.
+            // Items a mapped catalog never loaded still match its file, so they are left out.
+            List<Item> items = new ArrayList<>(inventory.size());
+            inventory.forEachLoadedItem(items::add);
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_FORMAT);
+            out.writeInt(items.size());
+            for (Item item : items) {
+                long state = item.getStockState();
+                writeString(out, item.getBarcode());
+                writeString(out, item.getName());
+                out.writeLong(item.getPriceCents());
+                out.writeInt(Item.quantityOf(state));
+                out.writeInt(Item.versionOf(state));
+                out.writeInt(item.getLowStockThreshold());
+            }
+            out.flush();
+            long crc = checked.getChecksum().getValue();
+            out.writeLong(crc);
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(temp, directory.resolve(String.format("snapshot-%08d.bin", firstDeltaSegment)),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory(); // The rename itself must be durable before anything older is deleted
+        changeCountAtLastSnapshot = changesBefore;
+
+        // The previous snapshot and its deltas are kept as a fallback (see recover); anything older is obsolete
+        long previous = -1;
+        for (Path old : listSnapshots()) {
+            long number = snapshotNumber(old);
+            if (number < firstDeltaSegment && number > previous) {
+                previous = number;
+            }
+        }
+        if (previous < 0) {
+            return;
+        }
+        for (Path old : listSnapshots()) {
+            if (snapshotNumber(old) < previous) {
+                Files.deleteIfExists(old);
+            }
+        }
+        deltaLog.deleteSegmentsBefore(previous);
+    }
+
+    private void syncDirectory() {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Some platforms (e.g. Windows) cannot open or force a directory; the rename is still atomic there
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("Value too long for snapshot: " + value.substring(0, 32) + "...");
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private List<Path> listSnapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "snapshot-*.bin")) {
+            stream.forEach(snapshots::add);
+        }
+        return snapshots;
+    }
+
+    private static long snapshotNumber(Path path) {
+        String fileName = path.getFileName().toString();
+        return Long.parseLong(fileName.substring("snapshot-".length(), fileName.length() - ".bin".length()));
+    }
+
+    /** Stops background snapshots, writes a final snapshot and closes the delta log. */
+    @Override
+    public void close() throws IOException {
+        snapshotScheduler.shutdown();
+        try {
+            snapshotScheduler.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (inventory != null) {
+            inventory.removeListener(this);
+            snapshot();
+        }
+        deltaLog.close();
+    }
+
+    // Lets buffered streams write to a channel that we close (and force) ourselves
+    private static final class UncloseableChannelStream extends OutputStream {
+        private final FileChannel channel;
+
+        UncloseableChannelStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.pos.persistence;
+
+import com.pos.model.Item;
+import com.pos.model.ItemCatalog;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * A read-only catalog file that is memory-mapped and queried in place. Opening it reads only the
+ * header, and an Item is created the first time its barcode is looked up. After that the Item
+ * holds the live stock, which is persisted by the snapshot store as usual. Several register
+ * processes on one host can map the same file and share its pages in the OS page cache.
+ *
+ * File layout (all offsets are from the start of the file):
+ * [int magic][int format][int recordCount][int slotCount][int slotsOffset][int recordsOffset][int stringsOffset][int 0]
+ * then slotCount int slots (record number + 1, 0 = empty), an open-addressing hash table over
+ * String.hashCode() of the barcodes,
+ * then recordCount fixed-width records of RECORD_BYTES:
+ * [int barcodeHash][int barcodeOffset][short barcodeLength][short nameLength][int nameOffset][long priceCents][int quantity][int lowStockThreshold]
+ * then the UTF-8 barcodes and names the records point to.
+ *
+ * Items added with putIfAbsent (new items, or items recovered from a snapshot) take precedence
+ * over the file's record for the same barcode. The file is limited to 2 GB.
+ */
+public class MappedItemCatalog implements ItemCatalog, Closeable {
+    private static final int MAGIC = 0x504F534D; // "POSM"
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 32;
+    private static final int RECORD_BYTES = 32;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer; // Only absolute reads, so it is shared by all threads
+    private final int recordCount;
+    private final int slotMask;
+    private final int slotsOffset;
+    private final int recordsOffset;
+
+    private final Map<String, Item> loaded = new ConcurrentHashMap<>(); // Looked up or added so far
+    private final AtomicInteger addedCount = new AtomicInteger();     // Added items that are not in the file
+    private volatile Consumer<Item> loadedCallback = item -> { };
+
+    private MappedItemCatalog(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+        this.channel = channel;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+            throw new IOException("Not a catalog file (or an unsupported format).");
+        }
+        this.recordCount = buffer.getInt(8);
+        int slotCount = buffer.getInt(12);
+        this.slotsOffset = buffer.getInt(16);
+        this.recordsOffset = buffer.getInt(20);
+        if (Integer.bitCount(slotCount) != 1 || recordCount >= slotCount
+                || (long) recordsOffset + (long) recordCount * RECORD_BYTES > buffer.capacity()) {
+            throw new IOException("Catalog file is corrupt (bad header).");
+        }
+        this.slotMask = slotCount - 1;
+    }
+
+    /** Maps a catalog file written by write(). */
+    public static MappedItemCatalog open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Catalog file " + file.getFileName() + " is larger than 2 GB.");
+            }
+            return new MappedItemCatalog(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // --- Lookups ---
+
+    @Override
+    public Item get(String barcode) {
+        if (barcode == null) {
+            return null;
+        }
+        Item item = loaded.get(barcode);
+        if (item != null) {
+            return item;
+        }
+        int record = recordOf(barcode);
+        return record < 0 ? null : load(record, barcode);
+    }
+
+    // Creates the Item for a record; if another lane got there first, its Item wins
+    private Item load(int record, String barcode) {
+        int position = recordsOffset + record * RECORD_BYTES;
+        Item item = new Item(barcode, readString(buffer.getInt(position + 12), buffer.getShort(position + 10) & 0xFFFF),
+                buffer.getLong(position + 16), buffer.getInt(position + 24));
+        item.setLowStockThreshold(buffer.getInt(position + 28));
+        Item existing = loaded.putIfAbsent(barcode, item);
+        if (existing != null) {
+            return existing;
+        }
+        loadedCallback.accept(item);
+        return item;
+    }
+
+    // Record number of the barcode, or -1 if it is not in the file
+    private int recordOf(String barcode) {
+        int hash = barcode.hashCode();
+        for (int slot = spread(hash) & slotMask; ; slot = (slot + 1) & slotMask) {
+            int record = buffer.getInt(slotsOffset + slot * Integer.BYTES) - 1;
+            if (record < 0) {
+                return -1;
+            }
+            int position = recordsOffset + record * RECORD_BYTES;
+            if (buffer.getInt(position) == hash
+                    && matches(buffer.getInt(position + 4), buffer.getShort(position + 8) & 0xFFFF, barcode)) {
+                return record;
+            }
+        }
+    }
+
+    private boolean matches(int offset, int length, String barcode) {
+        if (length != barcode.length()) {
+            // Only possible for non-ASCII barcodes, whose UTF-8 form is longer than the string
+            return length > barcode.length() && readString(offset, length).equals(barcode);
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(offset + i) != barcode.charAt(i)) {
+                return barcode.chars().anyMatch(c -> c >= 0x80) && readString(offset, length).equals(barcode);
+            }
+        }
+        return true;
+    }
+
+    private String readString(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // --- ItemCatalog ---
+
+    @Override
+    public Item putIfAbsent(Item item) {
+        Item existing = loaded.putIfAbsent(item.getBarcode(), item);
+        if (existing == null && recordOf(item.getBarcode()) < 0) {
+            addedCount.incrementAndGet();
+        }
+        return existing;
+    }
+
+    @Override
+    public int size() {
+        return recordCount + addedCount.get();
+    }
+
+    /** Visits every item, creating the ones never looked up (touches the whole file). */
+    @Override
+    public void forEach(Consumer<Item> action) {
+        for (int record = 0; record < recordCount; record++) {
+            int position = recordsOffset + record * RECORD_BYTES;
+            String barcode = readString(buffer.getInt(position + 4), buffer.getShort(position + 8) & 0xFFFF);
+            Item item = loaded.get(barcode);
+            action.accept(item != null ? item : load(record, barcode));
+        }
+        for (Item item : loaded.values()) {
+            if (recordOf(item.getBarcode()) < 0) {
+                action.accept(item); // Added, not in the file
+            }
+        }
+    }
+
+    /**
+     * Creates the items whose stock in the file is at or below their threshold (only the fixed-width
+     * records are read, and only the matching items are created). Items already looked up or added,
+     * e.g. recovered from a snapshot, keep their live stock.
+     */
+    @Override
+    public void loadLowStockItems() {
+        for (int record = 0; record < recordCount; record++) {
+            int position = recordsOffset + record * RECORD_BYTES;
+            if (buffer.getInt(position + 24) <= buffer.getInt(position + 28)) {
+                String barcode = readString(buffer.getInt(position + 4), buffer.getShort(position + 8) & 0xFFFF);
+                if (!loaded.containsKey(barcode)) {
+                    load(record, barcode);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void forEachLoaded(Consumer<Item> action) {
+        loaded.values().forEach(action);
+    }
+
+    @Override
+    public void setItemLoadedCallback(Consumer<Item> callback) {
+        this.loadedCallback = callback == null ? item -> { } : callback;
+    }
+
+    /** Unmaps nothing (the JVM releases the mapping), but closes the file. */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // --- Writing ---
+
+    /**
+     * Writes items (with their current price, stock and threshold) as a catalog file.
+     * The file is written to a temporary file first and moved into place, so a register that
+     * opens it never sees a partial file.
+     * throws IOException if the file cannot be written or would exceed 2 GB.
+     */
+    public static void write(Path file, Collection<Item> items) throws IOException {
+        int count = items.size();
+        long slots = Math.max(16, Long.highestOneBit(Math.max(1, count * 2L - 1)) << 1); // At most half full
+        if (slots > 1 << 28) {
+            throw new IOException("Too many items for a catalog file: " + count);
+        }
+        Item[] records = items.toArray(new Item[0]);
+        byte[][] barcodes = new byte[count][];
+        byte[][] names = new byte[count][];
+        long stringBytes = 0;
+        for (int i = 0; i < count; i++) {
+            barcodes[i] = records[i].getBarcode().getBytes(StandardCharsets.UTF_8);
+            names[i] = records[i].getName().getBytes(StandardCharsets.UTF_8);
+            if (barcodes[i].length > 0xFFFF || names[i].length > 0xFFFF) {
+                throw new IOException("Barcode or name too long for the catalog: " + records[i].getBarcode());
+            }
+            stringBytes += barcodes[i].length + names[i].length;
+        }
+        long slotsOffset = HEADER_BYTES;
+        long recordsOffset = slotsOffset + slots * Integer.BYTES;
+        long stringsOffset = recordsOffset + (long) count * RECORD_BYTES;
+        if (stringsOffset + stringBytes > Integer.MAX_VALUE) {
+            throw new IOException("Catalog file would be larger than 2 GB.");
+        }
+
+        int[] table = new int[(int) slots];
+        int mask = table.length - 1;
+        for (int i = 0; i < count; i++) {
+            int slot = spread(records[i].getBarcode().hashCode()) & mask;
+            while (table[slot] != 0) {
+                if (records[table[slot] - 1].getBarcode().equals(records[i].getBarcode())) {
+                    throw new IOException("Duplicate barcode in catalog: " + records[i].getBarcode());
+                }
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(count);
+            out.writeInt(table.length);
+            out.writeInt((int) slotsOffset);
+            out.writeInt((int) recordsOffset);
+            out.writeInt((int) stringsOffset);
+            out.writeInt(0);
+            for (int slot : table) {
+                out.writeInt(slot);
+            }
+            long stringOffset = stringsOffset;
+            for (int i = 0; i < count; i++) {
+                Item item = records[i];
+                long state = item.getStockState();
+                out.writeInt(item.getBarcode().hashCode());
+                out.writeInt((int) stringOffset);
+                out.writeShort(barcodes[i].length);
+                out.writeShort(names[i].length);
+                out.writeInt((int) (stringOffset + barcodes[i].length));
+                out.writeLong(item.getPriceCents());
+                out.writeInt(Item.quantityOf(state));
+                out.writeInt(item.getLowStockThreshold());
+                stringOffset += barcodes[i].length + names[i].length;
+            }
+            for (int i = 0; i < count; i++) {
+                out.write(barcodes[i]);
+                out.write(names[i]);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,115 @@
+package com.pos.persistence;
+
+import com.pos.model.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Binary encoding of a Receipt for the transaction journal
+public final class ReceiptCodec {
+    private static final byte FORMAT_VERSION = 3;        // Amounts as long cents, variable-measure label values
+    private static final byte NO_MEASURE_VERSION = 2;    // Amounts as long cents
+    private static final byte LEGACY_DOUBLE_VERSION = 1; // Amounts as doubles
+
+    private ReceiptCodec() {
+        // Utility class
+    }
+
+    /**
+     * Encodes a receipt into a self-contained byte array.
+     * Each line stores barcode, name and captured price so the receipt can be rebuilt
+     * even if the item no longer exists in inventory, followed by the measure (byte ordinal)
+     * and, for a variable-measure package, its label value.
+     */
+    public static byte[] encode(Receipt receipt) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + receipt.getItems().size() * 48);
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeByte(FORMAT_VERSION);
+        out.writeByte(receipt.getType().ordinal());
+        out.writeUTF(receipt.getReceiptId());
+        // LocalDateTime has no zone, so UTC is only used as a fixed reference to get a lossless number
+        out.writeLong(receipt.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(receipt.getTimestamp().getNano());
+
+        Employee employee = receipt.getProcessedBy();
+        out.writeUTF(employee.getEmployeeId());
+        out.writeUTF(employee.getName());
+        out.writeUTF(employee.getRole());
+
+        String originalReceiptId = receipt.getOriginalReceiptId();
+        out.writeBoolean(originalReceiptId != null);
+        if (originalReceiptId != null) {
+            out.writeUTF(originalReceiptId);
+        }
+        out.writeLong(receipt.getTotalAmount());
+
+        List<TransactionItem> items = receipt.getItems();
+        out.writeInt(items.size());
+        for (TransactionItem line : items) {
+            out.writeUTF(line.getItem().getBarcode());
+            out.writeUTF(line.getItem().getName());
+            out.writeInt(line.getQuantity());
+            out.writeLong(line.getPriceAtTransaction());
+            out.writeByte(line.getMeasure().ordinal());
+            if (line.isMeasured()) {
+                out.writeInt(line.getMeasuredValue());
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Rebuilds a receipt from bytes produced by encode().
+     * param itemLookup Resolves a barcode to the live Item (or null if unknown). Unknown items
+     *                  are recreated as detached items with no stock.
+     */
+    public static Receipt decode(byte[] data, Function<String, Item> itemLookup) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION && version != NO_MEASURE_VERSION && version != LEGACY_DOUBLE_VERSION) {
+            throw new IOException("Unsupported receipt format version: " + version);
+        }
+        boolean legacy = version == LEGACY_DOUBLE_VERSION;
+        TransactionType type = TransactionType.values()[in.readByte()];
+        String receiptId = in.readUTF();
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+
+        String employeeId = in.readUTF();
+        String employeeName = in.readUTF();
+        String role = in.readUTF();
+        Employee employee = "Manager".equals(role) ? new Manager(employeeId, employeeName) : new Cashier(employeeId, employeeName);
+
+        String originalReceiptId = in.readBoolean() ? in.readUTF() : null;
+        long totalAmount = legacy ? Money.fromDouble(in.readDouble()) : in.readLong();
+
+        int lineCount = in.readInt();
+        List<TransactionItem> items = new ArrayList<>(lineCount);
+        for (int i = 0; i < lineCount; i++) {
+            String barcode = in.readUTF();
+            String name = in.readUTF();
+            int quantity = in.readInt();
+            long price = legacy ? Money.fromDouble(in.readDouble()) : in.readLong();
+            Gs1.Measure measure = version == FORMAT_VERSION ? Gs1.Measure.values()[in.readByte()] : Gs1.Measure.NONE;
+            int measuredValue = measure == Gs1.Measure.NONE ? -1 : in.readInt();
+
+            Item item = itemLookup.apply(barcode);
+            if (item == null) {
+                item = new Item(barcode, name, price, 0); // Item no longer known, keep it for the receipt only
+            }
+            items.add(new TransactionItem(item, quantity, price, measure, measuredValue));
+        }
+
+        return Receipt.restore(receiptId, timestamp, items, employee, type, originalReceiptId, totalAmount);
+    }
+}
@@ -0,0 +1,352 @@
+package com.pos.persistence;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log stored as a series of fixed-size, memory-mapped segment files
+ * (prefix-00000001.log, prefix-00000002.log, ...).
+ *
+ * Record layout: [int length][int crc32][payload]. A length of 0 marks the end of the
+ * written data (new segments are zero-filled), and a CRC mismatch marks a torn write.
+ *
+ * Durability uses group commit: in PER_SALE mode an appending thread waits until its record
+ * has been forced to disk, but a single force covers every record written before it started,
+ * so a burst of appends from several lanes costs one sync. In BATCHED mode a background
+ * thread forces the log every batchIntervalMillis and appends never wait.
+ */
+public class SegmentedLog implements Closeable {
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024; // 16 MB per segment
+    private static final int RECORD_HEADER_SIZE = 8; // length + crc
+
+    private final Path directory;
+    private final String prefix;
+    private final int segmentSize;
+    private final DurabilityMode mode;
+
+    // --- Write state (guarded by writeLock) ---
+    private final Object writeLock = new Object();
+    private long segmentNumber;
+    private MappedByteBuffer segment;
+    private final List<MappedByteBuffer> unsyncedSegments = new ArrayList<>(); // Rolled segments not yet forced
+    private long writtenCount; // Number of records appended so far
+    private boolean closed;
+
+    // --- Sync state (guarded by syncLock) ---
+    private final Object syncLock = new Object();
+    private volatile long durableCount; // Number of records known to be on disk
+
+    private final ScheduledExecutorService syncScheduler; // Only used in BATCHED mode
+
+    /**
+     * Opens (or creates) a log in the given directory and positions it after the last valid record.
+     * param batchIntervalMillis Sync interval for BATCHED mode (ignored for PER_SALE).
+     */
+    public SegmentedLog(Path directory, String prefix, DurabilityMode mode, long batchIntervalMillis, int segmentSize) throws IOException {
+        if (directory == null || prefix == null || prefix.isEmpty() || mode == null) {
+            throw new IllegalArgumentException("Directory, prefix and durability mode are required.");
+        }
+        if (segmentSize <= RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size is too small: " + segmentSize);
+        }
+        if (mode == DurabilityMode.BATCHED && batchIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Batch interval must be positive for BATCHED durability.");
+        }
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        this.mode = mode;
+
+        Files.createDirectories(directory);
+        List<Long> segments = listSegments();
+        if (segments.isEmpty()) {
+            openSegment(1, 0);
+        } else {
+            long last = segments.get(segments.size() - 1);
+            openSegment(last, findEndOfRecords(segmentPath(last)));
+        }
+
+        if (mode == DurabilityMode.BATCHED) {
+            syncScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, prefix + "-sync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            syncScheduler.scheduleWithFixedDelay(this::backgroundSync, batchIntervalMillis, batchIntervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            syncScheduler = null;
+        }
+    }
+
+    public SegmentedLog(Path directory, String prefix, DurabilityMode mode, long batchIntervalMillis) throws IOException {
+        this(directory, prefix, mode, batchIntervalMillis, DEFAULT_SEGMENT_SIZE);
+    }
+
+    // --- Appending ---
+
+    /**
+     * Appends one record. In PER_SALE mode this returns only after the record is durable.
+     * throws IOException if the record cannot be written or synced.
+     */
+    public void append(byte[] payload) throws IOException {
+        long recordNumber = write(payload);
+        if (mode == DurabilityMode.PER_SALE) {
+            awaitDurable(recordNumber);
+        }
+    }
+
+    /**
+     * Appends one record without waiting for it to be durable, even in PER_SALE mode. Call sync()
+     * once a group of records is written (e.g. all the stock changes of one sale).
+     * throws IOException if the record cannot be written.
+     */
+    public void appendDeferred(byte[] payload) throws IOException {
+        write(payload);
+    }
+
+    private long write(byte[] payload) throws IOException {
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        if (recordSize > segmentSize) {
+            throw new IOException("Record of " + payload.length + " bytes does not fit in a " + segmentSize + " byte segment.");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        synchronized (writeLock) {
+            if (closed) {
+                throw new IOException("Log '" + prefix + "' is closed.");
+            }
+            if (segment.remaining() < recordSize) {
+                rollSegment();
+            }
+            int start = segment.position();
+            // Write payload and CRC before the length, so a crash mid-write never exposes a partial record
+            segment.putInt(start + 4, (int) crc.getValue());
+            segment.put(start + RECORD_HEADER_SIZE, payload);
+            segment.putInt(start, payload.length);
+            segment.position(start + recordSize);
+            return ++writtenCount;
+        }
+    }
+
+    /** Waits until the given record has been forced to disk, performing the sync if no one else is. */
+    private void awaitDurable(long recordNumber) throws IOException {
+        if (durableCount >= recordNumber) {
+            return;
+        }
+        synchronized (syncLock) {
+            // While we waited for the lock, another thread's sync may already have covered our record
+            if (durableCount < recordNumber) {
+                syncPending();
+            }
+        }
+    }
+
+    /** Forces every record written so far to disk. */
+    public void sync() throws IOException {
+        synchronized (syncLock) {
+            syncPending();
+        }
+    }
+
+    // Caller must hold syncLock
+    private void syncPending() throws IOException {
+        long target;
+        int rolled;
+        List<MappedByteBuffer> toForce;
+        synchronized (writeLock) {
+            target = writtenCount;
+            if (target == durableCount) {
+                return;
+            }
+            rolled = unsyncedSegments.size();
+            toForce = new ArrayList<>(unsyncedSegments);
+            toForce.add(segment);
+        }
+        try {
+            for (MappedByteBuffer buffer : toForce) {
+                buffer.force();
+            }
+        } catch (RuntimeException e) {
+            // The rolled segments stay listed, so the next sync forces them again
+            throw new IOException("Failed to sync log '" + prefix + "'.", e);
+        }
+        synchronized (writeLock) {
+            // Only syncs remove entries (under syncLock), so the first ones are those just forced
+            unsyncedSegments.subList(0, rolled).clear();
+        }
+        durableCount = target;
+    }
+
+    private void backgroundSync() {
+        try {
+            sync();
+        } catch (IOException e) {
+            System.err.println("Warning: Background sync of log '" + prefix + "' failed: " + e.getMessage());
+        }
+    }
+
+    // --- Segments ---
+
+    /**
+     * Starts a new segment even if the current one still has room.
+     * return The number of the new segment. Records appended from now on are in this segment or later ones.
+     */
+    public long roll() throws IOException {
+        synchronized (writeLock) {
+            rollSegment();
+            return segmentNumber;
+        }
+    }
+
+    /** Deletes all segments numbered below the given one (e.g. once a snapshot covers them). */
+    public void deleteSegmentsBefore(long firstSegmentToKeep) throws IOException {
+        for (long number : listSegments()) {
+            if (number < firstSegmentToKeep && number != currentSegmentNumber()) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        }
+    }
+
+    public long currentSegmentNumber() {
+        synchronized (writeLock) {
+            return segmentNumber;
+        }
+    }
+
+    // Caller must hold writeLock
+    private void rollSegment() throws IOException {
+        unsyncedSegments.add(segment);
+        openSegment(segmentNumber + 1, 0);
+    }
+
+    // Caller must hold writeLock (or be the constructor)
+    private void openSegment(long number, int position) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segment.position(position);
+        segmentNumber = number;
+    }
+
+    // --- Reading ---
+
+    /**
+     * Reads every valid record from the given segment onwards, in append order.
+     * Reading a segment stops at its end marker or at the first torn/corrupt record.
+     */
+    public void replay(long fromSegment, Consumer<byte[]> consumer) throws IOException {
+        for (long number : listSegments()) {
+            if (number < fromSegment) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (true) {
+                    byte[] payload = readRecord(buffer);
+                    if (payload == null) {
+                        break;
+                    }
+                    consumer.accept(payload);
+                }
+            }
+        }
+    }
+
+    public void replay(Consumer<byte[]> consumer) throws IOException {
+        replay(0, consumer);
+    }
+
+    /** Reads the record at the buffer's position, or returns null at the end of valid data. */
+    private static byte[] readRecord(MappedByteBuffer buffer) {
+        if (buffer.remaining() < RECORD_HEADER_SIZE) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt(start);
+        if (length <= 0 || length > buffer.remaining() - RECORD_HEADER_SIZE) {
+            return null;
+        }
+        int expectedCrc = buffer.getInt(start + 4);
+        byte[] payload = new byte[length];
+        buffer.get(start + RECORD_HEADER_SIZE, payload);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != expectedCrc) {
+            return null; // Torn write
+        }
+        buffer.position(start + RECORD_HEADER_SIZE + length);
+        return payload;
+    }
+
+    private int findEndOfRecords(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (readRecord(buffer) != null) {
+                // Skip over valid records
+            }
+            return buffer.position();
+        }
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "-*.log")) {
+            for (Path path : stream) {
+                String fileName = path.getFileName().toString();
+                String number = fileName.substring(prefix.length() + 1, fileName.length() - ".log".length());
+                try {
+                    numbers.add(Long.parseLong(number));
+                } catch (NumberFormatException e) {
+                    System.err.println("Warning: Ignoring unexpected file in log directory: " + fileName);
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s-%08d.log", prefix, number));
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    /** Stops background syncing and forces any remaining records to disk. */
+    @Override
+    public void close() throws IOException {
+        if (syncScheduler != null) {
+            syncScheduler.shutdown();
+        }
+        synchronized (syncLock) {
+            synchronized (writeLock) {
+                if (closed) {
+                    return;
+                }
+            }
+            syncPending();
+            synchronized (writeLock) {
+                closed = true;
+            }
+        }
+    }
+}
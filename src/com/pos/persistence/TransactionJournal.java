@@ -0,0 +1,72 @@
+package com.pos.persistence;
+
+import com.pos.model.Item;
+import com.pos.model.Receipt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Durable, append-only journal of completed receipts (sales and returns).
+ * Receipts are encoded with ReceiptCodec and appended to a memory-mapped SegmentedLog,
+ * so they survive restarts and crashes and can be replayed into the receipt store at startup.
+ */
+public class TransactionJournal implements Closeable {
+    private static final String SEGMENT_PREFIX = "journal";
+
+    private final SegmentedLog log;
+
+    /**
+     * Opens (or creates) the journal in the given directory.
+     * param mode                PER_SALE to wait for every receipt to reach disk, BATCHED to sync in the background.
+     * param batchIntervalMillis Sync interval for BATCHED mode (ignored for PER_SALE).
+     */
+    public TransactionJournal(Path directory, DurabilityMode mode, long batchIntervalMillis) throws IOException {
+        this.log = new SegmentedLog(directory, SEGMENT_PREFIX, mode, batchIntervalMillis);
+    }
+
+    /** Appends a completed receipt. Depending on the durability mode, returns once it is on disk. */
+    public void append(Receipt receipt) throws IOException {
+        log.append(ReceiptCodec.encode(receipt));
+    }
+
+    /**
+     * Replays every journaled receipt in the order it was written.
+     * param itemLookup Resolves a barcode to the live inventory Item (or null if unknown).
+     * return The number of receipts replayed.
+     */
+    public int replay(Function<String, Item> itemLookup, Consumer<Receipt> consumer) throws IOException {
+        int[] count = {0};
+        try {
+            log.replay(payload -> {
+                try {
+                    consumer.accept(ReceiptCodec.decode(payload, itemLookup));
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count[0];
+    }
+
+    /** Forces all journaled receipts to disk. */
+    public void sync() throws IOException {
+        log.sync();
+    }
+
+    public DurabilityMode getMode() {
+        return log.getMode();
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+}
@@ -0,0 +1,56 @@
+package com.pos.receipt;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * ESC/POS byte stream for thermal receipt printers: initialises the printer, prints emphasized
+ * lines in bold and feeds and cuts the paper at the end. Text is sent as ASCII; other characters
+ * are printed as '?' since printer code pages vary.
+ */
+public class EscPosOutput implements ReceiptOutput {
+    private static final byte ESC = 0x1B;
+    private static final byte GS = 0x1D;
+    private static final int FEED_LINES_BEFORE_CUT = 4;
+
+    @Override
+    public Charset charset() {
+        return StandardCharsets.US_ASCII;
+    }
+
+    @Override
+    public int begin(byte[] out, int position) {
+        out[position++] = ESC; // Initialise printer
+        out[position++] = '@';
+        return position;
+    }
+
+    @Override
+    public int end(byte[] out, int position) {
+        out[position++] = ESC; // Feed n lines
+        out[position++] = 'd';
+        out[position++] = FEED_LINES_BEFORE_CUT;
+        out[position++] = GS;  // Partial cut
+        out[position++] = 'V';
+        out[position++] = 1;
+        return position;
+    }
+
+    @Override
+    public int emphasis(byte[] out, int position, boolean on) {
+        out[position++] = ESC;
+        out[position++] = 'E';
+        out[position++] = (byte) (on ? 1 : 0);
+        return position;
+    }
+
+    @Override
+    public int text(byte[] out, int position, CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            out[position++] = c >= 0x20 && c < 0x7F || c == '\n' ? (byte) c : (byte) '?';
+        }
+        return position;
+    }
+}
@@ -0,0 +1,56 @@
+package com.pos.receipt;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+// UTF-8 text without any control codes (reprint dialogs, email bodies, logs)
+public class PlainTextOutput implements ReceiptOutput {
+
+    @Override
+    public Charset charset() {
+        return StandardCharsets.UTF_8;
+    }
+
+    @Override
+    public int begin(byte[] out, int position) {
+        return position;
+    }
+
+    @Override
+    public int end(byte[] out, int position) {
+        return position;
+    }
+
+    @Override
+    public int emphasis(byte[] out, int position, boolean on) {
+        return position;
+    }
+
+    // Hand-rolled UTF-8 so no encoder or temporary array is needed
+    @Override
+    public int text(byte[] out, int position, CharSequence text) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                out[position++] = (byte) c;
+            } else if (c < 0x800) {
+                out[position++] = (byte) (0xC0 | (c >> 6));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                out[position++] = (byte) (0xF0 | (codePoint >> 18));
+                out[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                out[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                out[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out[position++] = '?'; // Unpaired surrogate, same replacement String.getBytes uses
+            } else {
+                out[position++] = (byte) (0xE0 | (c >> 12));
+                out[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,36 @@
+package com.pos.receipt;
+
+import java.nio.charset.Charset;
+
+/**
+ * Target encoding for rendered receipts (plain text, a printer's command language, ...).
+ * Implementations write straight into the renderer's byte array at the given position and
+ * return the new position; the renderer guarantees the room (see the MAX_ constants).
+ */
+public interface ReceiptOutput {
+
+    // Most bytes begin, end or emphasis may write
+    int MAX_CONTROL_BYTES = 16;
+
+    // Most bytes text may write per char
+    int MAX_BYTES_PER_CHAR = 3;
+
+    // Charset used for template literals and for decoding rendered bytes back to text
+    Charset charset();
+
+    // Written once before the receipt (e.g. printer initialisation)
+    int begin(byte[] out, int position);
+
+    // Written once after the receipt (e.g. paper feed and cut)
+    int end(byte[] out, int position);
+
+    // Switches emphasis (bold) on or off; outputs without styling write nothing
+    int emphasis(byte[] out, int position, boolean on);
+
+    // Encodes text
+    int text(byte[] out, int position, CharSequence text);
+
+    default byte[] encode(String literal) {
+        return literal.getBytes(charset());
+    }
+}
@@ -0,0 +1,240 @@
+package com.pos.receipt;
+
+import com.pos.model.Employee;
+import com.pos.model.Receipt;
+import com.pos.model.TransactionItem;
+import com.pos.model.TransactionType;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Renders receipts from a compiled ReceiptTemplate for one ReceiptOutput.
+ *
+ * Template literals are encoded once when the renderer is created; numbers, amounts and the
+ * timestamp are written digit by digit into a reusable byte array, so rendering allocates
+ * nothing per receipt line. A renderer reuses its own buffers, so it is not thread-safe: use
+ * one per thread (or lane).
+ */
+public class ReceiptRenderer {
+    private static final int INITIAL_BUFFER_BYTES = 4096;
+
+    private final ReceiptTemplate template;
+    private final ReceiptOutput output;
+    private final byte[][] literals;    // Template literals encoded for the output
+    private final byte[] totalAmountLabel;
+    private final byte[] totalRefundLabel;
+    private final byte[] digits = new byte[20]; // Scratch for writing numbers
+    private byte[] bytes = new byte[INITIAL_BUFFER_BYTES];
+    private int position;
+    private ByteBuffer view = ByteBuffer.wrap(bytes); // Reused unless the array grows
+
+    public ReceiptRenderer(ReceiptTemplate template, ReceiptOutput output) {
+        if (template == null || output == null) {
+            throw new IllegalArgumentException("Template and output cannot be null.");
+        }
+        this.template = template;
+        this.output = output;
+        this.literals = new byte[template.ops.length][];
+        for (int i = 0; i < literals.length; i++) {
+            if (template.literals[i] != null) {
+                literals[i] = output.encode(template.literals[i]);
+            }
+        }
+        this.totalAmountLabel = output.encode("TOTAL AMOUNT");
+        this.totalRefundLabel = output.encode("TOTAL REFUND");
+    }
+
+    public static ReceiptRenderer plainText() {
+        return new ReceiptRenderer(ReceiptTemplate.DEFAULT, new PlainTextOutput());
+    }
+
+    public static ReceiptRenderer escPos() {
+        return new ReceiptRenderer(ReceiptTemplate.DEFAULT, new EscPosOutput());
+    }
+
+    public ReceiptOutput getOutput() {
+        return output;
+    }
+
+    /**
+     * Renders into the renderer's own buffer.
+     * return A read-only buffer over the rendered bytes; valid until the next call.
+     */
+    public ByteBuffer render(Receipt receipt) {
+        renderBytes(receipt);
+        if (view.array() != bytes) {
+            view = ByteBuffer.wrap(bytes);
+        }
+        view.clear().limit(position);
+        return view.asReadOnlyBuffer();
+    }
+
+    /**
+     * Renders into the caller's buffer, starting at its position (e.g. a direct buffer reused for device writes).
+     * throws BufferOverflowException if the receipt does not fit (nothing is written then).
+     */
+    public void render(Receipt receipt, ByteBuffer out) {
+        renderBytes(receipt);
+        if (out.remaining() < position) {
+            throw new BufferOverflowException();
+        }
+        out.put(bytes, 0, position);
+    }
+
+    private void renderBytes(Receipt receipt) {
+        List<TransactionItem> items = receipt.getItems();
+        int[] ops = template.ops;
+        int line = 0;
+        position = 0;
+
+        ensure(ReceiptOutput.MAX_CONTROL_BYTES);
+        position = output.begin(bytes, position);
+        for (int pc = 0; pc < ops.length; pc++) {
+            switch (ops[pc]) {
+                case ReceiptTemplate.LITERAL -> putLiteral(literals[pc]);
+                case ReceiptTemplate.FIELD -> writeField(template.fields[pc], receipt, items, line);
+                case ReceiptTemplate.ITEMS_BEGIN -> {
+                    if (line >= items.size()) {
+                        pc = template.jumps[pc] - 1; // No lines, skip the block
+                    }
+                }
+                case ReceiptTemplate.ITEMS_END -> {
+                    if (++line < items.size()) {
+                        pc = template.jumps[pc]; // Loop continues right after ITEMS_BEGIN
+                    }
+                }
+                case ReceiptTemplate.EMPHASIS_ON, ReceiptTemplate.EMPHASIS_OFF -> {
+                    ensure(ReceiptOutput.MAX_CONTROL_BYTES);
+                    position = output.emphasis(bytes, position, ops[pc] == ReceiptTemplate.EMPHASIS_ON);
+                }
+                case ReceiptTemplate.IF_ORIGINAL -> {
+                    if (receipt.getOriginalReceiptId() == null) {
+                        pc = template.jumps[pc] - 1;
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown template operation " + ops[pc]);
+            }
+        }
+        ensure(ReceiptOutput.MAX_CONTROL_BYTES);
+        position = output.end(bytes, position);
+    }
+
+    private void writeField(ReceiptTemplate.Field field, Receipt receipt, List<TransactionItem> items, int line) {
+        Employee employee = receipt.getProcessedBy();
+        boolean isReturn = receipt.getType() == TransactionType.RETURN;
+        switch (field) {
+            case TYPE -> putText(receipt.getType().name());
+            case ID -> putText(receipt.getReceiptId());
+            case TIME -> writeTimestamp(receipt.getTimestamp());
+            case EMPLOYEE -> putText(employee.getName());
+            case EMPLOYEE_ID -> putText(employee.getEmployeeId());
+            case ORIGINAL -> putText(receipt.getOriginalReceiptId());
+            case TOTAL_LABEL -> putLiteral(isReturn ? totalRefundLabel : totalAmountLabel);
+            case TOTAL -> writeMoney(isReturn ? Math.abs(receipt.getTotalAmount()) : receipt.getTotalAmount());
+            case QTY -> writeNumber(items.get(line).getQuantity(), 1);
+            case NAME -> putText(items.get(line).getItem().getName());
+            case PRICE -> writeMoney(items.get(line).getPriceAtTransaction());
+            case SUBTOTAL -> writeMoney(items.get(line).getSubtotal());
+        }
+    }
+
+    private void ensure(int extra) {
+        if (position + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, position + extra));
+        }
+    }
+
+    private void putLiteral(byte[] literal) {
+        ensure(literal.length);
+        System.arraycopy(literal, 0, bytes, position, literal.length);
+        position += literal.length;
+    }
+
+    private void putText(String text) {
+        ensure(text.length() * ReceiptOutput.MAX_BYTES_PER_CHAR);
+        position = output.text(bytes, position, text);
+    }
+
+    // Digits, '-', '.', ':' and ' ' are the same byte in every supported output (all ASCII based)
+
+    // yyyy-MM-dd HH:mm:ss
+    private void writeTimestamp(LocalDateTime time) {
+        writeNumber(time.getYear(), 4);
+        putAscii('-');
+        writeNumber(time.getMonthValue(), 2);
+        putAscii('-');
+        writeNumber(time.getDayOfMonth(), 2);
+        putAscii(' ');
+        writeNumber(time.getHour(), 2);
+        putAscii(':');
+        writeNumber(time.getMinute(), 2);
+        putAscii(':');
+        writeNumber(time.getSecond(), 2);
+    }
+
+    // Same format as Money.format: "12.34", "-0.50"
+    private void writeMoney(long cents) {
+        if (cents < 0) {
+            putAscii('-');
+            cents = -cents; // Long.MIN_VALUE cents cannot occur (Money.times fails on overflow)
+        }
+        writeNumber(cents / 100, 1);
+        putAscii('.');
+        writeNumber(cents % 100, 2);
+    }
+
+    private void putAscii(char c) {
+        ensure(1);
+        bytes[position++] = (byte) c;
+    }
+
+    // Writes a non-negative number, zero-padded to minDigits
+    private void writeNumber(long value, int minDigits) {
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + (value % 10));
+            value /= 10;
+        } while (value > 0);
+        while (digits.length - start < minDigits) {
+            digits[--start] = '0';
+        }
+        int length = digits.length - start;
+        ensure(length);
+        System.arraycopy(digits, start, bytes, position, length);
+        position += length;
+    }
+
+    /** Renders a receipt and writes it to a channel (a file, socket or printer device). */
+    public void writeTo(Receipt receipt, WritableByteChannel channel) throws IOException {
+        ByteBuffer rendered = render(receipt);
+        while (rendered.hasRemaining()) {
+            channel.write(rendered);
+        }
+    }
+
+    /**
+     * Appends a rendered receipt to a file or printer device (e.g. /dev/usb/lp0).
+     * A plain file works as a stand-in for a printer.
+     */
+    public void printTo(Receipt receipt, Path device) throws IOException {
+        try (FileChannel channel = FileChannel.open(device, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            writeTo(receipt, channel);
+        }
+    }
+
+    /** Renders a receipt as text (allocates the String; meant for dialogs and email bodies). */
+    public String renderToString(Receipt receipt) {
+        renderBytes(receipt);
+        return new String(bytes, 0, position, output.charset());
+    }
+}
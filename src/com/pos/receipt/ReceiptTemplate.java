@@ -0,0 +1,200 @@
+package com.pos.receipt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A receipt layout compiled once into a flat list of operations, so rendering is a simple loop
+ * with no parsing or formatting.
+ *
+ * Template syntax:
+ *  - {field} inserts a value: type, id, time, employee, employeeId, original, totalLabel, total,
+ *    and inside an item block qty, name, price, subtotal.
+ *  - {items} ... {/items} repeats its content for every receipt line.
+ *  - A line containing {original} is left out when the receipt has no original receipt.
+ *  - A line starting with ^ is emphasized (bold on printers that support it).
+ */
+public final class ReceiptTemplate {
+
+    // Same layout as Receipt.getFormattedReceipt()
+    public static final ReceiptTemplate DEFAULT = compile(
+            "========================================\n" +
+            "^          {type} RECEIPT\n" +
+            "========================================\n" +
+            "Receipt ID: {id}\n" +
+            "Timestamp:  {time}\n" +
+            "Processed By: {employee} ({employeeId})\n" +
+            "Original Purchase ID: {original}\n" +
+            "----------------------------------------\n" +
+            "Items:\n" +
+            "{items}- {qty} x {name} @ ${price} = ${subtotal}\n{/items}" +
+            "----------------------------------------\n" +
+            "^{totalLabel}: ${total}\n" +
+            "========================================\n");
+
+    enum Field {
+        TYPE("type", false), ID("id", false), TIME("time", false), EMPLOYEE("employee", false),
+        EMPLOYEE_ID("employeeId", false), ORIGINAL("original", false), TOTAL_LABEL("totalLabel", false),
+        TOTAL("total", false), QTY("qty", true), NAME("name", true), PRICE("price", true), SUBTOTAL("subtotal", true);
+
+        final String placeholder;
+        final boolean perLine; // Only valid inside {items}
+
+        Field(String placeholder, boolean perLine) {
+            this.placeholder = placeholder;
+            this.perLine = perLine;
+        }
+
+        static Field of(String placeholder) {
+            for (Field field : values()) {
+                if (field.placeholder.equals(placeholder)) {
+                    return field;
+                }
+            }
+            throw new IllegalArgumentException("Unknown receipt template field: {" + placeholder + "}");
+        }
+    }
+
+    // Operation codes
+    static final int LITERAL = 0;
+    static final int FIELD = 1;
+    static final int ITEMS_BEGIN = 2;     // Jumps past ITEMS_END if there are no lines
+    static final int ITEMS_END = 3;       // Jumps back to ITEMS_BEGIN while lines remain
+    static final int EMPHASIS_ON = 4;
+    static final int EMPHASIS_OFF = 5;
+    static final int IF_ORIGINAL = 6;     // Jumps past the line if there is no original receipt
+
+    final int[] ops;
+    final String[] literals; // For LITERAL
+    final Field[] fields;    // For FIELD
+    final int[] jumps;       // For ITEMS_BEGIN, ITEMS_END and IF_ORIGINAL
+
+    private ReceiptTemplate(List<Integer> ops, List<String> literals, List<Field> fields, List<Integer> jumps) {
+        int size = ops.size();
+        this.ops = new int[size];
+        this.literals = new String[size];
+        this.fields = new Field[size];
+        this.jumps = new int[size];
+        for (int i = 0; i < size; i++) {
+            this.ops[i] = ops.get(i);
+            this.literals[i] = literals.get(i);
+            this.fields[i] = fields.get(i);
+            this.jumps[i] = jumps.get(i);
+        }
+    }
+
+    /**
+     * Compiles a template (see the class comment for the syntax).
+     * throws IllegalArgumentException if the template has an unknown field, a per-line field
+     *         outside {items}, or unbalanced {items} blocks.
+     */
+    public static ReceiptTemplate compile(String source) {
+        if (source == null || source.isEmpty()) {
+            throw new IllegalArgumentException("Receipt template cannot be empty.");
+        }
+        Builder builder = new Builder();
+        int lineStart = 0;
+        while (lineStart < source.length()) {
+            int newline = source.indexOf('\n', lineStart);
+            int lineEnd = newline < 0 ? source.length() : newline + 1;
+            builder.line(source.substring(lineStart, lineEnd));
+            lineStart = lineEnd;
+        }
+        return builder.build();
+    }
+
+    private static final class Builder {
+        private final List<Integer> ops = new ArrayList<>();
+        private final List<String> literals = new ArrayList<>();
+        private final List<Field> fields = new ArrayList<>();
+        private final List<Integer> jumps = new ArrayList<>();
+        private int itemsBegin = -1;
+        private int mergeBarrier; // Literals before this index belong to a skippable line and are not merged into
+
+        void line(String line) {
+            int conditional = -1;
+            if (line.contains("{" + Field.ORIGINAL.placeholder + "}")) {
+                conditional = add(IF_ORIGINAL, null, null);
+            }
+            boolean emphasized = line.startsWith("^");
+            if (emphasized) {
+                add(EMPHASIS_ON, null, null);
+                line = line.substring(1);
+            }
+
+            int position = 0;
+            while (position < line.length()) {
+                int open = line.indexOf('{', position);
+                if (open < 0) {
+                    literal(line.substring(position));
+                    break;
+                }
+                int close = line.indexOf('}', open);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed '{' in receipt template line: " + line.trim());
+                }
+                literal(line.substring(position, open));
+                token(line.substring(open + 1, close));
+                position = close + 1;
+            }
+
+            if (emphasized) {
+                add(EMPHASIS_OFF, null, null);
+            }
+            if (conditional >= 0) {
+                jumps.set(conditional, ops.size());
+                mergeBarrier = ops.size(); // The next line must not be merged into the skippable one
+            }
+        }
+
+        private void token(String name) {
+            if (name.equals("items")) {
+                if (itemsBegin >= 0) {
+                    throw new IllegalArgumentException("{items} blocks cannot be nested.");
+                }
+                itemsBegin = add(ITEMS_BEGIN, null, null);
+            } else if (name.equals("/items")) {
+                if (itemsBegin < 0) {
+                    throw new IllegalArgumentException("{/items} without {items}.");
+                }
+                int end = add(ITEMS_END, null, null);
+                jumps.set(end, itemsBegin);
+                jumps.set(itemsBegin, end + 1);
+                itemsBegin = -1;
+            } else {
+                Field field = Field.of(name);
+                if (field.perLine && itemsBegin < 0) {
+                    throw new IllegalArgumentException("{" + name + "} can only be used inside {items}.");
+                }
+                add(FIELD, null, field);
+            }
+        }
+
+        private void literal(String text) {
+            if (text.isEmpty()) {
+                return;
+            }
+            int last = ops.size() - 1;
+            if (last >= mergeBarrier && ops.get(last) == LITERAL) {
+                literals.set(last, literals.get(last) + text); // Merge adjacent literals
+            } else {
+                add(LITERAL, text, null);
+            }
+        }
+
+        private int add(int op, String literal, Field field) {
+            ops.add(op);
+            literals.add(literal);
+            fields.add(field);
+            jumps.add(-1);
+            return ops.size() - 1;
+        }
+
+        ReceiptTemplate build() {
+            if (itemsBegin >= 0) {
+                throw new IllegalArgumentException("{items} without {/items}.");
+            }
+            return new ReceiptTemplate(ops, literals, fields, jumps);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.pos.service;
+
+import com.pos.model.Employee;
+import com.pos.model.Receipt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless engine running many checkout lanes (registers, self-checkout kiosks) against one
+ * shared InventoryService and TransactionService in the same store process.
+ *
+ * Lanes build their carts independently; commits go through the lock-free stock reservation
+ * and the concurrent receipt store, so throughput grows with the number of cores. Lanes that
+ * do not have their own thread can hand commits to the engine's worker pool (commitAsync).
+ */
+public class CheckoutEngine implements AutoCloseable {
+    private final InventoryService inventoryService;
+    private final TransactionService transactionService;
+    private final Map<String, CheckoutLane> lanes = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+
+    public CheckoutEngine(InventoryService inventoryService, TransactionService transactionService) {
+        this(inventoryService, transactionService, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CheckoutEngine(InventoryService inventoryService, TransactionService transactionService, int workerThreads) {
+        if (inventoryService == null || transactionService == null) {
+            throw new IllegalArgumentException("InventoryService and TransactionService cannot be null.");
+        }
+        if (workerThreads <= 0) {
+            throw new IllegalArgumentException("Worker thread count must be positive.");
+        }
+        this.inventoryService = inventoryService;
+        this.transactionService = transactionService;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerThreads, runnable -> {
+            Thread thread = new Thread(runnable, "checkout-worker-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Opens a lane for the given employee.
+     * throws IllegalArgumentException if the lane ID is empty, the employee is missing, the lane is already open,
+     *         or its receipt ID prefix is taken by another lane (see ReceiptIdGenerator.registerLane).
+     */
+    public CheckoutLane openLane(String laneId, Employee employee) {
+        if (laneId == null || laneId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Lane ID cannot be empty.");
+        }
+        if (employee == null) {
+            throw new IllegalArgumentException("A lane must be opened by an employee.");
+        }
+        transactionService.registerLane(laneId);
+        CheckoutLane lane = new CheckoutLane(laneId, employee, inventoryService, transactionService);
+        if (lanes.putIfAbsent(laneId, lane) != null) {
+            throw new IllegalArgumentException("Lane " + laneId + " is already open.");
+        }
+        return lane;
+    }
+
+    public Optional<CheckoutLane> getLane(String laneId) {
+        return Optional.ofNullable(lanes.get(laneId));
+    }
+
+    /** Closes a lane, discarding any cart that was not committed. return true if the lane was open. */
+    public boolean closeLane(String laneId) {
+        CheckoutLane lane = lanes.remove(laneId);
+        if (lane == null) {
+            return false;
+        }
+        lane.voidTransaction();
+        return true;
+    }
+
+    public List<CheckoutLane> getOpenLanes() {
+        return new ArrayList<>(lanes.values());
+    }
+
+    /**
+     * Commits a lane's cart on the engine's worker pool.
+     * The future fails with a CompletionException wrapping the TransactionException if the sale fails.
+     */
+    public CompletableFuture<Receipt> commitAsync(CheckoutLane lane) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return lane.commit();
+            } catch (TransactionService.TransactionException e) {
+                throw new CompletionException(e);
+            }
+        }, workers);
+    }
+
+    public InventoryService getInventoryService() {
+        return inventoryService;
+    }
+
+    public TransactionService getTransactionService() {
+        return transactionService;
+    }
+
+    /** Closes all lanes and stops the worker pool (waiting briefly for running commits). */
+    @Override
+    public void close() {
+        lanes.keySet().forEach(this::closeLane);
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.pos.service;
+
+import com.pos.model.Cart;
+import com.pos.model.CartLine;
+import com.pos.model.Employee;
+import com.pos.model.Gs1;
+import com.pos.model.Item;
+import com.pos.model.Receipt;
+import com.pos.model.TransactionItem;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A headless checkout lane (register or self-checkout kiosk) building one cart at a time.
+ * Several lanes share the same InventoryService and TransactionService; each lane's cart
+ * is private to it, so lanes never block each other while scanning.
+ *
+ * Methods are synchronized so a lane can safely be driven from more than one thread
+ * (e.g. a UI thread and a scanner thread), but normally only one thread uses a lane.
+ */
+public class CheckoutLane {
+    private final String laneId;
+    private final Employee employee;
+    private final InventoryService inventoryService;
+    private final TransactionService transactionService;
+
+    // Items for the transaction currently being built
+    private final Cart cart;
+    // Reused by every scan (scans are serialized by the lane's lock)
+    private final ItemLookup scanLookup = new ItemLookup();
+
+    CheckoutLane(String laneId, Employee employee, InventoryService inventoryService, TransactionService transactionService) {
+        this.laneId = laneId;
+        this.employee = employee;
+        this.inventoryService = inventoryService;
+        this.transactionService = transactionService;
+        this.cart = new Cart(inventoryService.getPriceBook());
+    }
+
+    public String getLaneId() { return laneId; }
+    public Employee getEmployee() { return employee; }
+
+    /**
+     * Adds a scanned item to the cart, merging it with an existing line for the same barcode.
+     * Stock is only checked here (it is taken when the sale is committed).
+     *
+     * param barcode  The scanned barcode (main inventory or temporary item).
+     * param quantity Quantity to add (must be positive).
+     * return The cart line after the scan.
+     * throws TransactionService.TransactionException if the item is unknown or there is not enough stock.
+     */
+    public synchronized CartLine scan(String barcode, int quantity) throws TransactionService.TransactionException {
+        if (quantity <= 0) {
+            throw new TransactionService.TransactionException("Quantity must be positive.");
+        }
+        ItemLookup lookup = inventoryService.lookup(barcode, scanLookup);
+        if (!lookup.isFound()) {
+            throw new TransactionService.TransactionException("Item with barcode '" + barcode + "' not found.");
+        }
+        Item item = lookup.getItem();
+
+        if (lookup.isMeasured()) {
+            // A variable-measure label is one package with its own price or weight
+            if (quantity != 1) {
+                throw new TransactionService.TransactionException("A price or weight label is scanned one package at a time.");
+            }
+            // Packages of the item already in the cart take stock too
+            int available = lookup.getAvailableStock();
+            if (available < cart.quantityOf(item.getBarcode()) + 1) {
+                throw new TransactionService.TransactionException(available < 1 ? "'" + item.getName() + "' is out of stock."
+                        : "Not enough stock for another package of '" + item.getName() + "'. Available: " + available);
+            }
+            return cart.getLine(cart.addMeasured(item, lookup.getMeasure(), lookup.getMeasuredValue()));
+        }
+
+        int newQuantity = quantity + cart.quantityOf(item.getBarcode());
+        int available = lookup.getAvailableStock();
+        if (available < newQuantity) {
+            throw new TransactionService.TransactionException("Not enough stock for '" + item.getName() +
+                    "'. Requested total: " + newQuantity + ", Available: " + available);
+        }
+
+        return cart.getLine(cart.add(item, quantity));
+    }
+
+    public CartLine scan(String barcode) throws TransactionService.TransactionException {
+        return scan(barcode, 1);
+    }
+
+    /**
+     * Removes a scanned item from the cart: the line for the barcode (any GS1 form of it), or for a
+     * price or weight label, the last package scanned with that label.
+     * return true if a line was removed.
+     */
+    public synchronized boolean removeItem(String barcode) {
+        String key = Gs1.canonical(barcode);
+        if (Gs1.measureOf(barcode) != Gs1.Measure.NONE) {
+            int index = cart.lastIndexOfMeasured(key, Gs1.measuredValue(barcode));
+            if (index >= 0) {
+                cart.remove(index);
+                return true;
+            }
+        }
+        return cart.remove(key);
+    }
+
+    /**
+     * Removes the cart line at a position (in scan order, as in getItems), e.g. a mis-scanned package.
+     * return false if there is no line at that position.
+     */
+    public synchronized boolean removeLine(int index) {
+        if (index < 0 || index >= cart.size()) {
+            return false;
+        }
+        cart.remove(index);
+        return true;
+    }
+
+    /**
+     * Completes the sale for the current cart and starts a new, empty cart.
+     * If the sale fails the cart is kept so it can be corrected and committed again.
+     */
+    public synchronized Receipt commit() throws TransactionService.TransactionException {
+        Receipt receipt = transactionService.processSale(cart.toTransactionItems(), employee, laneId);
+        cart.clear();
+        return receipt;
+    }
+
+    /** Discards the current cart. */
+    public synchronized void voidTransaction() {
+        cart.clear();
+    }
+
+    /** Returns a copy of the current cart as receipt lines. */
+    public synchronized List<TransactionItem> getItems() {
+        return Collections.unmodifiableList(cart.toTransactionItems());
+    }
+
+    public synchronized long getTotal() {
+        return cart.getTotal();
+    }
+
+    public synchronized boolean isEmpty() {
+        return cart.isEmpty();
+    }
+}
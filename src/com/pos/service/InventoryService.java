@@ -1,24 +1,37 @@
 package com.pos.service;
 
+import com.pos.events.StockEventBus;
+import com.pos.events.StockEventListener;
+import com.pos.logging.LogManager;
+import com.pos.logging.Logger;
 import com.pos.model.Inventory;
 import com.pos.model.Item;
 import com.pos.model.Employee;
+import com.pos.model.Gs1;
 import com.pos.model.Manager;
+import com.pos.model.Money;
+import com.pos.model.PriceBook;
 import com.pos.model.Cashier;
+import com.pos.model.TransactionItem;
+import com.pos.persistence.CatalogImportReport;
+import com.pos.persistence.CatalogImporter;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map; // Import Map
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap; // Keep using ConcurrentHashMap for potential future thread safety
 
 // This service acts as a facade and adds business logic around Inventory
 public class InventoryService {
+    private static final Logger log = LogManager.getLogger("inventory");
     private final Inventory inventory;
-    // New map to store items added temporarily during the session
-    private final Map<String, Item> temporaryItems;
-    // Define the threshold here, ensuring consistency with Inventory's internal logic if applicable.
-    // Making it accessible via a getter allows other parts of the app (like UI) to know the value.
-    private static final int LOW_STOCK_THRESHOLD = 10;
+    // Items keyed in for unknown barcodes (bounded, unused ones expire)
+    private final TemporaryItemStore temporaryItems;
+    // Name search for items whose label will not scan
+    private final ItemSearchIndex searchIndex = new ItemSearchIndex();
 
     /**
      * Constructor for InventoryService.
@@ -26,35 +39,55 @@ public class InventoryService {
      * throws IllegalArgumentException if inventory is null.
      */
     public InventoryService(Inventory inventory) {
+        this(inventory, new TemporaryItemStore());
+    }
+
+    /**
+     * Constructor for InventoryService with a configured temporary item store.
+     * throws IllegalArgumentException if inventory or temporaryItems is null.
+     */
+    public InventoryService(Inventory inventory, TemporaryItemStore temporaryItems) {
         if (inventory == null) {
             throw new IllegalArgumentException("Inventory cannot be null.");
         }
+        if (temporaryItems == null) {
+            throw new IllegalArgumentException("Temporary item store cannot be null.");
+        }
         this.inventory = inventory;
-        // Initialize the temporary items map
-        this.temporaryItems = new ConcurrentHashMap<>();
+        this.temporaryItems = temporaryItems;
+        // Follows new items and renames; items already loaded are indexed now (see indexAllItemsForSearch)
+        inventory.addListener(searchIndex);
+        inventory.forEachLoadedItem(searchIndex::add);
     }
 
     /**
-     * Initializes the inventory with some sample items and logs initial stock status.
+     * Seeds the inventory with some sample items and logs initial stock status.
+     * Only used on first start - afterwards the inventory is recovered from its snapshot and delta log.
      */
     public void initializeInventory() {
         // Add some sample items
-        inventory.addItem(new Item("BC001", "Apple", 0.50, 50));
-        inventory.addItem(new Item("BC002", "Banana", 0.30, 100));
-        inventory.addItem(new Item("BC003", "Orange Juice", 2.50, 30));
-        inventory.addItem(new Item("BC004", "Bread Loaf", 3.00, 8)); // Low stock item
-        inventory.addItem(new Item("BC005", "Milk Carton", 1.80, 15));
-        inventory.addItem(new Item("BC006", "Coffee Beans", 8.99, 0)); // Out of stock item
-        inventory.addItem(new Item("012546011075", "Trident Gum", 2.00, 5));
-        
-        // Optional: Log initial stock warnings at startup for visibility
+        inventory.addItem(new Item("BC001", "Apple", Money.of(0, 50), 50));
+        inventory.addItem(new Item("BC002", "Banana", Money.of(0, 30), 100));
+        inventory.addItem(new Item("BC003", "Orange Juice", Money.of(2, 50), 30));
+        inventory.addItem(new Item("BC004", "Bread Loaf", Money.of(3, 0), 8)); // Low stock item
+        inventory.addItem(new Item("BC005", "Milk Carton", Money.of(1, 80), 15));
+        inventory.addItem(new Item("BC006", "Coffee Beans", Money.of(8, 99), 0)); // Out of stock item
+        inventory.addItem(new Item("012546011075", "Trident Gum", Money.of(2, 0), 5));
+
+        reportStockStatus();
+    }
+
+    /**
+     * Logs low stock and out of stock items (used at startup for visibility).
+     */
+    public void reportStockStatus() {
         System.out.println("--- Initial Inventory Stock Check ---");
         List<Item> lowStock = getLowStockItems();
         List<Item> outOfStock = getOutOfStockItems();
         if (!lowStock.isEmpty()) {
             System.out.println("LOW STOCK WARNINGS:");
             lowStock.forEach(item -> System.out.printf("  - %s (%s): %d left (Threshold <= %d)%n",
-                    item.getName(), item.getBarcode(), item.getQuantityInStock(), LOW_STOCK_THRESHOLD));
+                    item.getName(), item.getBarcode(), item.getQuantityInStock(), item.getLowStockThreshold()));
         }
         if (!outOfStock.isEmpty()) {
             System.out.println("OUT OF STOCK ITEMS:");
@@ -68,25 +101,74 @@ public class InventoryService {
 
     /**
      * Finds an item by its barcode, checking both the main inventory and
-     * the session's temporary items.
+     * the temporary items (a temporary item found counts a hit).
      *
      * param barcode The barcode to search for.
      * return An Optional containing the Item if found in either inventory or
      *         temporary storage, otherwise Optional.empty().
      */
     public Optional<Item> findItem(String barcode) {
+        String key = Gs1.canonical(barcode); // Any GS1 form of the barcode
         // 1. Check main inventory first
-        Optional<Item> inventoryItem = inventory.findItemByBarcode(barcode);
-        if (inventoryItem.isPresent()) {
-            return inventoryItem;
-        }
+        Item item = inventory.getItem(key);
         // 2. If not in inventory, check temporary items
-        return Optional.ofNullable(temporaryItems.get(barcode));
+        return Optional.ofNullable(item != null ? item : temporaryItems.get(key));
+    }
+
+    /**
+     * Resolves a scanned barcode once into a reusable handle, checking the main inventory and then
+     * the temporary items (a temporary item found counts a hit). The barcode is brought to its
+     * canonical GS1 form first, and a variable-measure label is decoded into its price or weight.
+     * Nothing is allocated unless the barcode is a non-canonical form or a variable-measure label.
+     *
+     * param barcode The barcode to resolve.
+     * param into The handle to fill in; it is overwritten even if nothing is found.
+     * return The handle passed in.
+     */
+    public ItemLookup lookup(String barcode, ItemLookup into) {
+        String key = Gs1.canonical(barcode);
+        Gs1.Measure measure = Gs1.measureOf(barcode);
+        int measuredValue = measure == Gs1.Measure.NONE ? -1 : Gs1.measuredValue(barcode);
+        Item item = inventory.getItem(key);
+        if (item != null) {
+            return into.resolve(barcode, item, ItemLookup.Source.INVENTORY, measure, measuredValue);
+        }
+        item = temporaryItems.get(key);
+        return into.resolve(barcode, item, item != null ? ItemLookup.Source.TEMPORARY : ItemLookup.Source.NOT_FOUND,
+                measure, measuredValue);
+    }
+
+    /**
+     * Finds inventory items by name for type-ahead (every query word must start a word of the name),
+     * the items sold most in recent days first.
+     *
+     * param query The text typed so far.
+     * param limit The most items to return.
+     * return The matching items (empty for a blank query).
+     */
+    public List<Item> searchItems(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    /**
+     * Indexes every catalog item for name search. Only needed for a lazily loading catalog (items
+     * never looked up are not indexed otherwise); it creates every item, so run it in the background.
+     */
+    public void indexAllItemsForSearch() {
+        inventory.forEachItem(searchIndex::add);
+    }
+
+    /** Counts the lines of a completed sale towards the search ranking. */
+    public void recordSales(List<TransactionItem> lines, LocalDateTime time) {
+        for (TransactionItem line : lines) {
+            searchIndex.recordSale(line.getItem(), line.getQuantity(), time);
+        }
     }
 
     /**
      * Adds a new item to the temporary storage for the current application session.
      * These items are not persisted after the application closes and don't affect main inventory stock.
+     * The store is bounded, so the least recently used temporary item may be evicted.
      *
      * param item The Item object to add temporarily. Should not be null.
      * throws IllegalArgumentException if item is null or barcode already exists temporarily.
@@ -100,14 +182,53 @@ public class InventoryService {
         //    throw new IllegalArgumentException("Cannot add temporary item: Barcode '" + item.getBarcode() + "' already exists in main inventory.");
         // }
 
-        // Add to temporary map, potentially overwriting if the same barcode was added temporarily before (unlikely but possible)
-        if (temporaryItems.containsKey(item.getBarcode())) {
+        // Add to temporary store, potentially overwriting if the same barcode was added temporarily before (unlikely but possible)
+        if (temporaryItems.put(item) != null) {
             System.out.println("Warning: Overwriting existing item with barcode " + item.getBarcode());
         }
-        temporaryItems.put(item.getBarcode(), item);
         System.out.println("Added item: " + item.getBarcode() + " - " + item.getName());
     }
 
+    /**
+     * Returns the temporary items keyed in most often (at least minHits times), most hits first.
+     */
+    public List<TemporaryItemStore.Usage> getMostUsedTemporaryItems(int count, long minHits) {
+        return temporaryItems.mostUsed(count, minHits);
+    }
+
+    /**
+     * Moves temporary items into the main inventory with an opening stock, so they keep selling
+     * (open baskets that hold them reserve from that stock at checkout). A barcode that is no
+     * longer a temporary item is skipped; one that has since been added to the inventory is just
+     * dropped from the temporary items.
+     *
+     * param openingStock Barcode -> opening quantity, in the order to promote (e.g. from getMostUsedTemporaryItems).
+     * return The items added to the inventory.
+     * throws IllegalArgumentException if an opening quantity is negative (nothing is promoted).
+     */
+    public List<Item> promoteTemporaryItems(Map<String, Integer> openingStock) {
+        for (Integer quantity : openingStock.values()) {
+            if (quantity == null || quantity < 0) {
+                throw new IllegalArgumentException("Opening stock cannot be negative.");
+            }
+        }
+        List<Item> promoted = new ArrayList<>();
+        for (Map.Entry<String, Integer> promotion : openingStock.entrySet()) {
+            Item item = temporaryItems.remove(Gs1.canonical(promotion.getKey()));
+            if (item == null) {
+                continue; // Expired or evicted since it was listed
+            }
+            // Not stock-tracked until it is added, so its stock can be set directly
+            item.restoreStockState(promotion.getValue(), item.getStockVersion());
+            if (inventory.addItemIfAbsent(item) == null) {
+                promoted.add(item);
+                log.info("temporary_item_promoted", "Item " + item.getBarcode() + " (" + item.getName() + "), opening stock "
+                        + promotion.getValue());
+            }
+        }
+        return promoted;
+    }
+
     /**
      * Checks if an item with the given barcode exists in the main inventory.
      *
@@ -115,7 +236,7 @@ public class InventoryService {
      * return true if the item exists in the main inventory, false otherwise (even if it exists temporarily).
      */
     public boolean isInventoryItem(String barcode) {
-        return inventory.findItemByBarcode(barcode).isPresent();
+        return inventory.getItem(barcode) != null;
     }
 
 
@@ -146,6 +267,65 @@ public class InventoryService {
         }
     }
 
+    /**
+     * Takes stock for every main inventory line of a sale as one all-or-nothing step.
+     * Each line is taken with a lock-free compare-and-set on the item's stock, so concurrent lanes
+     * never oversell. If a line cannot be taken, the lines already taken are put back automatically.
+     * Temporary items are skipped (no stock tracked).
+     *
+     * param lines The sale lines.
+     * return null if every line was reserved, otherwise the line that failed (nothing remains reserved).
+     */
+    public TransactionItem reserveStock(List<TransactionItem> lines) {
+        inventory.beginBatch(); // The whole sale is synced to the delta log once, not once per line
+        try {
+            for (int i = 0; i < lines.size(); i++) {
+                TransactionItem line = lines.get(i);
+                String barcode = line.getItem().getBarcode();
+                Item item = inventory.getItem(barcode); // Resolved once per line
+                if (item == null) {
+                    log.debug("sale_temporary_item", barcode);
+                    continue;
+                }
+                if (!inventory.sellItem(item, line.getQuantity())) {
+                    releaseStock(lines.subList(0, i)); // Compensate the lines already taken
+                    return line;
+                }
+            }
+        } finally {
+            inventory.endBatch();
+        }
+        // Only warn once the whole sale went through
+        for (TransactionItem line : lines) {
+            inventory.checkLowStockWarning(line.getItem().getBarcode());
+        }
+        return null;
+    }
+
+    /**
+     * Puts back the stock taken by reserveStock (e.g. when the sale fails after reserving).
+     * Temporary items are skipped.
+     */
+    public void releaseStock(List<TransactionItem> lines) {
+        inventory.beginBatch();
+        try {
+            for (TransactionItem line : lines) {
+                inventory.cancelSale(line.getItem().getBarcode(), line.getQuantity());
+            }
+        } finally {
+            inventory.endBatch();
+        }
+    }
+
+    // Groups the calling thread's stock changes so they are synced once (see Inventory.beginBatch)
+    public void beginBatch() {
+        inventory.beginBatch();
+    }
+
+    public void endBatch() {
+        inventory.endBatch();
+    }
+
     /**
      * Restocks an item, increasing its stock via the Inventory object, subject to employee permissions.
      * This only applies to items in the main inventory. It will fail for temporary items.
@@ -157,11 +337,11 @@ public class InventoryService {
      */
     public boolean restock(String barcode, int quantity, Employee employee) {
         if (quantity <= 0) {
-            System.err.println("Restock failed: Quantity must be positive.");
+            log.warn("restock_failed", "Quantity must be positive.");
             return false;
         }
         if (employee == null) {
-            System.err.println("Restock failed: Employee information is missing.");
+            log.warn("restock_failed", "Employee information is missing.");
             return false;
         }
 
@@ -170,23 +350,44 @@ public class InventoryService {
                                 (employee instanceof Cashier cashier && cashier.canRestock()); // Simplified check
 
         if (!hasPermission) {
-            System.err.println("Permission Denied: Employee " + employee.getEmployeeId() + " (" + employee.getRole() + ") cannot perform restock operations.");
+            log.warn("restock_denied", "Employee " + employee.getEmployeeId() + " (" + employee.getRole() + ") cannot perform restock operations.");
             return false;
         }
 
         // IMPORTANT: Restock only works on main inventory items. restockItem handles the 'not found' check.
         boolean success = inventory.restockItem(barcode, quantity);
         if (success) {
-            System.out.println("Restock successful for inventory item: " + barcode + ", Quantity added: " + quantity);
-            inventory.checkLowStockWarning(barcode); // Check stock after successful restock
+            log.info("restock", "Item " + barcode + ", quantity added: " + quantity + ", by: " + employee.getEmployeeId());
+            // restockItem already published the restock and any remaining low stock alert
         } else {
             // restockItem logs "not found", so we don't need redundant logging here unless adding detail.
-            System.err.println("Restock failed: Item '" + barcode + "' not found in main inventory or other error occurred.");
+            log.warn("restock_failed", "Item '" + barcode + "' not found in main inventory or other error occurred.");
         }
         return success;
     }
 
-    /** Gets a list of items currently at or below the low stock threshold (but not out of stock) from main Inventory. */
+    /**
+     * Subscribes to the inventory's stock alerts (low stock, out of stock, restocked).
+     * Listeners are called on the event bus's dispatcher thread, never on the sale path.
+     * return false if the inventory has no event bus (alerts are not reported).
+     */
+    public boolean addStockEventListener(StockEventListener listener) {
+        StockEventBus bus = inventory.getStockEventBus();
+        if (bus == null) {
+            return false;
+        }
+        bus.subscribe(listener);
+        return true;
+    }
+
+    public void removeStockEventListener(StockEventListener listener) {
+        StockEventBus bus = inventory.getStockEventBus();
+        if (bus != null) {
+            bus.unsubscribe(listener);
+        }
+    }
+
+    /** Gets a list of items currently at or below their low stock threshold (but not out of stock) from main Inventory. */
     public List<Item> getLowStockItems() {
         return inventory.getLowStockItems();
     }
@@ -208,13 +409,69 @@ public class InventoryService {
         return inventory.getAllItems();
     }
 
+    /** The inventory's versioned prices (carts pin a version so a basket never mixes old and new prices). */
+    public PriceBook getPriceBook() {
+        return inventory.getPriceBook();
+    }
+
+    /**
+     * Changes the prices of several main inventory items at once (one price book version).
+     * param newPrices Barcode -> new price in cents.
+     * return false if a barcode is not in main inventory or a price is negative (nothing is changed).
+     */
+    public boolean changePrices(Map<String, Long> newPrices) {
+        PriceBook.Batch batch = PriceBook.newBatch();
+        for (Map.Entry<String, Long> change : newPrices.entrySet()) {
+            Optional<Item> item = inventory.findItemByBarcode(change.getKey());
+            if (item.isEmpty() || change.getValue() == null || change.getValue() < 0) {
+                log.warn("price_change_failed", "Invalid price change for item '" + change.getKey() + "', no prices were changed.");
+                return false;
+            }
+            batch.setPrice(item.get(), change.getValue());
+        }
+        PriceBook.Version version = inventory.publishPrices(batch);
+        log.info("price_change", batch.size() + " price(s) published as price version " + version.getNumber());
+        return true;
+    }
+
+    /**
+     * Imports (upserts) a CSV or binary catalog file into the main inventory; lanes can keep selling meanwhile.
+     * param file The catalog file (see CatalogImporter for the formats).
+     * return The import report; rejected rows are also logged as warnings.
+     * throws IOException if the file cannot be read.
+     */
+    public CatalogImportReport importCatalog(Path file) throws IOException {
+        CatalogImportReport report = new CatalogImporter(inventory).importFile(file);
+        log.info("catalog_import", report.toString());
+        for (CatalogImportReport.RowError error : report.getErrors()) {
+            log.warn("catalog_import_row", error.toString());
+        }
+        return report;
+    }
+
     /**
-     * Returns the defined low stock threshold value used by this service/system.
-     * Allows UI or other components to access the threshold consistently.
-     * return The low stock threshold quantity.
+     * Returns the low stock threshold used for items that were not given their own threshold.
+     * return The default low stock threshold quantity.
      */
     public int getLowStockThreshold() {
-        // Return the value defined in this service.
-        return LOW_STOCK_THRESHOLD;
+        return Item.DEFAULT_LOW_STOCK_THRESHOLD;
+    }
+
+    /**
+     * Sets the low stock threshold of a main inventory item (persisted with the inventory).
+     * param barcode   Barcode of the item (must exist in main inventory).
+     * param threshold Stock level at or below which the item counts as low stock (0 disables low stock warnings).
+     * return true if the threshold was set, false if the item is not in main inventory or the threshold is negative.
+     */
+    public boolean setLowStockThreshold(String barcode, int threshold) {
+        if (threshold < 0) {
+            System.err.println("Threshold update failed: Threshold cannot be negative.");
+            return false;
+        }
+        if (!inventory.setLowStockThreshold(barcode, threshold)) {
+            System.err.println("Threshold update failed: Item '" + barcode + "' not found in main inventory.");
+            return false;
+        }
+        return true;
     }
 }
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.pos.service;
+
+import com.pos.model.Gs1;
+import com.pos.model.Item;
+
+/**
+ * The result of resolving a scanned barcode: the item, where it was found and how much of it
+ * can be sold. A scan resolves the barcode once (InventoryService.lookup) and then works from
+ * this handle instead of looking the barcode up again. A variable-measure label also carries
+ * the price or weight decoded from it.
+ *
+ * A handle is meant to be reused for every scan of a register or lane, so it is not thread-safe
+ * and only holds the last barcode resolved into it.
+ */
+public final class ItemLookup {
+    public enum Source { INVENTORY, TEMPORARY, NOT_FOUND }
+
+    private String barcode;
+    private Item item;
+    private Source source = Source.NOT_FOUND;
+    private Gs1.Measure measure = Gs1.Measure.NONE;
+    private int measuredValue = -1;
+
+    // Filled in by InventoryService.lookup
+    ItemLookup resolve(String barcode, Item item, Source source, Gs1.Measure measure, int measuredValue) {
+        this.barcode = barcode;
+        this.item = item;
+        this.source = source;
+        this.measure = measure;
+        this.measuredValue = measuredValue;
+        return this;
+    }
+
+    public String getBarcode() { return barcode; }
+
+    /** The item found, or null if the barcode is unknown. */
+    public Item getItem() { return item; }
+
+    public Source getSource() { return source; }
+
+    public boolean isFound() { return source != Source.NOT_FOUND; }
+
+    public boolean isInventoryItem() { return source == Source.INVENTORY; }
+
+    /** PRICE or WEIGHT for a variable-measure label (see Gs1), otherwise NONE. */
+    public Gs1.Measure getMeasure() { return measure; }
+
+    public boolean isMeasured() { return measure != Gs1.Measure.NONE; }
+
+    /** The price (cents) or weight (grams) printed in a variable-measure label, or -1. */
+    public int getMeasuredValue() { return measuredValue; }
+
+    /**
+     * Stock that can be sold right now: the item's current stock for an inventory item,
+     * Integer.MAX_VALUE for a temporary item (stock is not tracked) and 0 if nothing was found.
+     */
+    public int getAvailableStock() {
+        return switch (source) {
+            case INVENTORY -> item.getQuantityInStock();
+            case TEMPORARY -> Integer.MAX_VALUE;
+            case NOT_FOUND -> 0;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return barcode + " -> " + source + (item == null ? "" : " " + item);
+    }
+}
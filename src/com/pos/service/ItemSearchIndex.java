@@ -0,0 +1,316 @@
+package com.pos.service;
+
+import com.pos.model.Inventory;
+import com.pos.model.InventoryListener;
+import com.pos.model.Item;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Type-ahead search over item names, ranked by recent sales.
+ *
+ * Names are lower-cased and split into words. Every word is indexed under grams: "^" plus its
+ * first letter, and every three-letter gram of "^" + word, so "^ju", "jui", "uic", "ice" for
+ * "juice". Each gram has a sorted list of the documents (items) containing it. A query matches
+ * items that have a word starting with each query word:
+ * - a query word of one or two letters is exactly one gram ("^j", "^ju"), so its list is the answer,
+ * - longer or multi-word queries walk the shortest list among their grams and check each candidate's name.
+ * Matches are ranked by a sales score with a 7-day half-life (forward decay: a sale counts
+ * 2^(age/half-life) relative to the index's start, so scores never need to be aged).
+ *
+ * The index follows the inventory as a listener (new items and renames). Sales are recorded by
+ * the TransactionService. Queries take a read lock; sales only take a small lock of their own.
+ */
+public class ItemSearchIndex implements InventoryListener {
+    public static final Duration SALES_HALF_LIFE = Duration.ofDays(7);
+    private static final char WORD_START = '^';
+    private static final int INITIAL_DOCS = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();            // Gram -> documents (write lock)
+    private final Map<String, Integer> docByBarcode = new ConcurrentHashMap<>(); // Read by sales without the lock
+    private Item[] items = new Item[INITIAL_DOCS];
+    private String[] names = new String[INITIAL_DOCS]; // Normalized name each item is indexed under
+    private int docCount;
+
+    private final Object scoreLock = new Object();
+    private volatile double[] scores = new double[INITIAL_DOCS]; // Written under scoreLock
+    private final long landmarkSeconds = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+
+    // Sorted document numbers for one gram
+    private static final class Postings {
+        int[] docs = new int[4];
+        int size;
+
+        void add(int doc) {
+            if (size > 0 && docs[size - 1] >= doc) { // Renamed item: insert in order
+                int at = Arrays.binarySearch(docs, 0, size, doc);
+                if (at >= 0) {
+                    return;
+                }
+                insertAt(-at - 1, doc);
+                return;
+            }
+            insertAt(size, doc);
+        }
+
+        private void insertAt(int at, int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, at, docs, at + 1, size - at);
+            docs[at] = doc;
+            size++;
+        }
+
+        void remove(int doc) {
+            int at = Arrays.binarySearch(docs, 0, size, doc);
+            if (at >= 0) {
+                System.arraycopy(docs, at + 1, docs, at, size - at - 1);
+                size--;
+            }
+        }
+    }
+
+    /** Registers with the inventory and indexes the items it already has. */
+    public void attach(Inventory inventory) {
+        inventory.addListener(this);
+        inventory.forEachItem(this::add);
+    }
+
+    // --- Maintenance ---
+
+    /** Indexes an item (nothing happens if it is already indexed). */
+    public void add(Item item) {
+        lock.writeLock().lock();
+        try {
+            if (docByBarcode.containsKey(item.getBarcode())) {
+                return;
+            }
+            int doc = docCount;
+            if (doc == items.length) {
+                items = Arrays.copyOf(items, doc * 2);
+                names = Arrays.copyOf(names, doc * 2);
+                synchronized (scoreLock) {
+                    scores = Arrays.copyOf(scores, doc * 2);
+                }
+            }
+            String name = normalize(item.getName());
+            items[doc] = item;
+            names[doc] = name;
+            for (String gram : grams(name)) {
+                postings.computeIfAbsent(gram, key -> new Postings()).add(doc);
+            }
+            docCount = doc + 1;
+            docByBarcode.put(item.getBarcode(), doc);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Re-indexes an item under its current name (after a rename). */
+    public void update(Item item) {
+        Integer doc = docByBarcode.get(item.getBarcode());
+        if (doc == null) {
+            add(item);
+            return;
+        }
+        String name = normalize(item.getName());
+        lock.writeLock().lock();
+        try {
+            String oldName = names[doc];
+            if (name.equals(oldName)) {
+                return;
+            }
+            Set<String> oldGrams = grams(oldName);
+            Set<String> newGrams = grams(name);
+            for (String gram : oldGrams) {
+                if (!newGrams.contains(gram)) {
+                    Postings list = postings.get(gram);
+                    list.remove(doc);
+                    if (list.size == 0) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+            for (String gram : newGrams) {
+                if (!oldGrams.contains(gram)) {
+                    postings.computeIfAbsent(gram, key -> new Postings()).add(doc);
+                }
+            }
+            names[doc] = name;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Counts a sale towards the item's ranking (weighted by how recent it is). */
+    public void recordSale(Item item, int quantity, LocalDateTime time) {
+        Integer doc = docByBarcode.get(item.getBarcode());
+        if (doc == null || quantity <= 0) {
+            return; // Temporary item, or not indexed yet
+        }
+        double ageInHalfLives = (double) (time.toEpochSecond(ZoneOffset.UTC) - landmarkSeconds) / SALES_HALF_LIFE.toSeconds();
+        double weight = quantity * Math.pow(2, ageInHalfLives);
+        synchronized (scoreLock) {
+            scores[doc] += weight;
+        }
+    }
+
+    public int size() {
+        return docByBarcode.size();
+    }
+
+    @Override
+    public void itemAdded(Item item) {
+        add(item);
+    }
+
+    @Override
+    public void stockChanged(Item item, int delta, int newQuantity, int stockVersion) {
+        // Sales are recorded by the TransactionService (stock changes also include restocks and counts)
+    }
+
+    @Override
+    public void itemUpdated(Item item) {
+        update(item);
+    }
+
+    // --- Queries ---
+
+    /**
+     * Finds items with a word starting with each word of the query, best sellers first.
+     * return Up to limit items (empty for a blank query).
+     */
+    public List<Item> search(String query, int limit) {
+        String normalized = query == null ? "" : normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String[] words = normalized.split(" ");
+        lock.readLock().lock();
+        try {
+            Postings driver = null;
+            for (String word : words) {
+                for (String gram : queryGrams(word)) {
+                    Postings list = postings.get(gram);
+                    if (list == null) {
+                        return List.of();
+                    }
+                    if (driver == null || list.size < driver.size) {
+                        driver = list;
+                    }
+                }
+            }
+            boolean checkNames = words.length > 1 || words[0].length() > 2;
+            double[] docScores = scores;
+            int[] best = new int[limit];        // Best documents so far, best first
+            double[] bestScores = new double[limit];
+            int found = 0;
+            for (int i = 0; i < driver.size; i++) {
+                int doc = driver.docs[i];
+                double score = docScores[doc];
+                if (found == limit && score <= bestScores[limit - 1]) {
+                    continue;
+                }
+                if (checkNames && !matchesAll(names[doc], words)) {
+                    continue;
+                }
+                int at = Math.min(found, limit - 1);
+                while (at > 0 && bestScores[at - 1] < score) {
+                    best[at] = best[at - 1];
+                    bestScores[at] = bestScores[at - 1];
+                    at--;
+                }
+                best[at] = doc;
+                bestScores[at] = score;
+                found = Math.min(found + 1, limit);
+            }
+            List<Item> results = new ArrayList<>(found);
+            for (int i = 0; i < found; i++) {
+                results.add(items[best[i]]);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean matchesAll(String name, String[] words) {
+        for (String word : words) {
+            if (!hasWordStartingWith(name, word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasWordStartingWith(String name, String prefix) {
+        for (int i = 0; i <= name.length() - prefix.length(); i++) {
+            if ((i == 0 || name.charAt(i - 1) == ' ') && name.startsWith(prefix, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // --- Text ---
+
+    // Lower case, words of letters and digits separated by single spaces
+    static String normalize(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            } else if (sb.length() > 0 && sb.charAt(sb.length() - 1) != ' ') {
+                sb.append(' ');
+            }
+        }
+        int length = sb.length();
+        if (length > 0 && sb.charAt(length - 1) == ' ') {
+            sb.setLength(length - 1);
+        }
+        return sb.toString();
+    }
+
+    // Grams a normalized name is indexed under
+    private static Set<String> grams(String name) {
+        Set<String> grams = new LinkedHashSet<>();
+        if (name.isEmpty()) {
+            return grams;
+        }
+        for (String word : name.split(" ")) {
+            String marked = WORD_START + word;
+            grams.add(marked.substring(0, 2));
+            for (int i = 0; i + 3 <= marked.length(); i++) {
+                grams.add(marked.substring(i, i + 3));
+            }
+        }
+        return grams;
+    }
+
+    // Grams every item matching a query word is indexed under
+    private static List<String> queryGrams(String word) {
+        String marked = WORD_START + word;
+        if (marked.length() <= 3) {
+            return List.of(marked);
+        }
+        List<String> grams = new ArrayList<>(marked.length() - 2);
+        for (int i = 0; i + 3 <= marked.length(); i++) {
+            grams.add(marked.substring(i, i + 3));
+        }
+        return grams;
+    }
+}
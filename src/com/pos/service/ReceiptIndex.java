@@ -0,0 +1,82 @@
+package com.pos.service;
+
+import com.pos.model.Receipt;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Secondary indexes over completed receipts, so time range, employee and "returns against"
+ * queries don't have to scan every receipt. All indexes are concurrent and updated without
+ * locking as lanes complete transactions; queries see every receipt added before they started.
+ */
+final class ReceiptIndex {
+    // Ordered by time, then ID (several receipts can share a timestamp)
+    private static final Comparator<TimeKey> TIME_ORDER = Comparator.comparing(TimeKey::timestamp)
+            .thenComparing(TimeKey::receiptId, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final NavigableMap<TimeKey, Receipt> byTime = new ConcurrentSkipListMap<>(TIME_ORDER);
+    // Per employee, also time ordered so "sales by X today" is a range query
+    private final Map<String, NavigableMap<TimeKey, Receipt>> byEmployee = new ConcurrentHashMap<>();
+    // Return receipts by the ID of the purchase they return items from
+    private final Map<String, Queue<Receipt>> returnsByOriginal = new ConcurrentHashMap<>();
+
+    // A null receipt ID sorts before every real ID, which makes it usable as a range bound
+    private record TimeKey(LocalDateTime timestamp, String receiptId) {
+    }
+
+    void add(Receipt receipt) {
+        TimeKey key = new TimeKey(receipt.getTimestamp(), receipt.getReceiptId());
+        byTime.put(key, receipt);
+        byEmployee.computeIfAbsent(receipt.getProcessedBy().getEmployeeId(),
+                id -> new ConcurrentSkipListMap<>(TIME_ORDER)).put(key, receipt);
+        String originalReceiptId = receipt.getOriginalReceiptId();
+        if (originalReceiptId != null) {
+            returnsByOriginal.computeIfAbsent(originalReceiptId, id -> new ConcurrentLinkedQueue<>()).add(receipt);
+        }
+    }
+
+    /** Receipts from 'from' (inclusive) to 'to' (exclusive), oldest first. */
+    List<Receipt> between(LocalDateTime from, LocalDateTime to) {
+        return rangeOf(byTime, from, to);
+    }
+
+    /** Receipts processed by an employee from 'from' (inclusive) to 'to' (exclusive), oldest first. */
+    List<Receipt> byEmployee(String employeeId, LocalDateTime from, LocalDateTime to) {
+        NavigableMap<TimeKey, Receipt> receipts = byEmployee.get(employeeId);
+        return receipts == null ? Collections.emptyList() : rangeOf(receipts, from, to);
+    }
+
+    /** All receipts processed by an employee, oldest first. */
+    List<Receipt> byEmployee(String employeeId) {
+        NavigableMap<TimeKey, Receipt> receipts = byEmployee.get(employeeId);
+        return receipts == null ? Collections.emptyList() : copyOf(receipts.values());
+    }
+
+    /** Return receipts recorded against a purchase, in the order they were added. */
+    List<Receipt> returnsFor(String originalReceiptId) {
+        Queue<Receipt> returns = returnsByOriginal.get(originalReceiptId);
+        return returns == null ? Collections.emptyList() : copyOf(returns);
+    }
+
+    private static List<Receipt> rangeOf(NavigableMap<TimeKey, Receipt> receipts, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            return Collections.emptyList();
+        }
+        return copyOf(receipts.subMap(new TimeKey(from, null), true, new TimeKey(to, null), false).values());
+    }
+
+    private static List<Receipt> copyOf(Collection<Receipt> receipts) {
+        return Collections.unmodifiableList(new ArrayList<>(receipts));
+    }
+}
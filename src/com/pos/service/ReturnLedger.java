@@ -0,0 +1,323 @@
+package com.pos.service;
+
+import com.pos.model.Gs1;
+import com.pos.model.Receipt;
+import com.pos.model.TransactionItem;
+import com.pos.model.TransactionType;
+import com.pos.service.TransactionService.TransactionException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks, per purchase receipt and barcode, how many units were sold, how many were already
+ * returned and the unit price captured at the sale, so returns can be checked and priced
+ * without looking at the receipt itself. A variable-measure package (price or weight label) has
+ * its own slot, keyed by barcode and label value, so it is refunded at its own price.
+ *
+ * Each purchase is one compact entry: the barcodes (shared with the Item objects), the captured
+ * prices and the sold/returned counts packed into one long per line. Finding the receipt is a
+ * hash lookup and finding the line is a scan of a few lines (or a small hash table for large
+ * baskets), so validation cost does not grow with the number of historical receipts.
+ * Returned quantities are claimed by CAS, so concurrent returns against the same receipt can
+ * never return more than was sold.
+ *
+ * Memory is bounded by the return window: purchases older than it are dropped as new ones are
+ * recorded (and skipped when the journal is replayed). A return against a purchase past the
+ * window is rejected like one against an unknown receipt.
+ */
+final class ReturnLedger {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Purchases in the order they were recorded (close to time order), oldest evicted first
+    private final Queue<Expiry> expiries = new ConcurrentLinkedQueue<>();
+    private final Duration returnWindow;
+
+    private record Expiry(String receiptId, LocalDateTime purchasedAt) { }
+
+    /**
+     * param returnWindow How long after a purchase its items can be returned.
+     * throws IllegalArgumentException if the window is not positive.
+     */
+    ReturnLedger(Duration returnWindow) {
+        if (returnWindow == null || returnWindow.isNegative() || returnWindow.isZero()) {
+            throw new IllegalArgumentException("Return window must be positive.");
+        }
+        this.returnWindow = returnWindow;
+    }
+
+    /** Records the lines of a purchase receipt (other receipt types and purchases past the return window are ignored). */
+    void recordSale(Receipt receipt) {
+        if (receipt.getType() != TransactionType.PURCHASE) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(returnWindow);
+        if (receipt.getTimestamp().isBefore(cutoff)) {
+            return; // Replayed from the journal, too old to be returned
+        }
+        entries.put(receipt.getReceiptId(), Entry.of(receipt.getItems(), receipt.getTimestamp()));
+        expiries.add(new Expiry(receipt.getReceiptId(), receipt.getTimestamp()));
+        for (Expiry oldest; (oldest = expiries.peek()) != null && oldest.purchasedAt().isBefore(cutoff); ) {
+            if (expiries.remove(oldest)) { // Another thread may have evicted it already
+                entries.remove(oldest.receiptId());
+            }
+        }
+    }
+
+    // The entry of a purchase that can still be returned against, or null
+    private Entry live(String originalReceiptId) {
+        Entry entry = entries.get(originalReceiptId);
+        if (entry == null || entry.purchasedAt.isBefore(LocalDateTime.now().minus(returnWindow))) {
+            return null; // Unknown, or past the window but not evicted yet
+        }
+        return entry;
+    }
+
+    /**
+     * Applies a return read back from the journal. Its lines were validated when it was processed,
+     * so nothing is rejected here (counts are only capped at the quantity sold).
+     */
+    void recordReplayedReturn(Receipt receipt) {
+        Entry entry = receipt.getOriginalReceiptId() == null ? null : entries.get(receipt.getOriginalReceiptId());
+        if (entry == null) {
+            return; // Purchase predates the journal
+        }
+        for (TransactionItem line : receipt.getItems()) {
+            int slot = entry.slotOf(keyOf(line));
+            if (slot >= 0) {
+                entry.claim(slot, line.getQuantity(), true);
+            }
+        }
+    }
+
+    /** Ledger key of a line: the barcode, or for a variable-measure package the barcode and its label value. */
+    static String keyOf(String barcode, Gs1.Measure measure, int measuredValue) {
+        return measure == Gs1.Measure.NONE ? barcode : barcode + '@' + measuredValue;
+    }
+
+    private static String keyOf(TransactionItem line) {
+        return keyOf(line.getItem().getBarcode(), line.getMeasure(), line.getMeasuredValue());
+    }
+
+    // "barcode" or "barcode (label value N)", for messages
+    private static String describe(String key) {
+        int separator = key.indexOf('@');
+        return separator < 0 ? key : key.substring(0, separator) + " (label value " + key.substring(separator + 1) + ")";
+    }
+
+    /** True if items can still be returned against the purchase (false if it is unknown or past the return window). */
+    boolean isOpen(String originalReceiptId) {
+        return live(originalReceiptId) != null;
+    }
+
+    Duration getReturnWindow() {
+        return returnWindow;
+    }
+
+    /**
+     * Units of an item that can still be returned against a receipt.
+     * param key The item's ledger key (see keyOf).
+     * return The remaining quantity, or -1 if the receipt is unknown (or past the return window) or the item was not on it.
+     */
+    int returnableQuantity(String originalReceiptId, String key) {
+        Entry entry = live(originalReceiptId);
+        int slot = entry == null ? -1 : entry.slotOf(key);
+        return slot < 0 ? -1 : entry.remaining(slot);
+    }
+
+    /**
+     * Checks a return against the original receipt and prices its lines at the captured sale prices.
+     * Nothing is claimed, so a later reserve() can still fail if another return gets there first.
+     * return The returned lines, re-priced at the prices on the original receipt.
+     * throws TransactionException if the receipt is unknown or past the return window, an item was not on it, or more
+     *         would be returned than is left.
+     */
+    List<TransactionItem> price(String originalReceiptId, List<TransactionItem> items) throws TransactionException {
+        Entry entry = entryFor(originalReceiptId);
+        Map<String, Integer> requested = requestedQuantities(originalReceiptId, entry, items);
+        for (Map.Entry<String, Integer> request : requested.entrySet()) {
+            int slot = entry.slotOf(request.getKey());
+            if (request.getValue() > entry.remaining(slot)) {
+                throw tooMany(originalReceiptId, request.getKey(), entry.remaining(slot));
+            }
+        }
+        return priced(entry, items);
+    }
+
+    /**
+     * Like price(), but also claims the returned quantities (all lines or none).
+     * Use release() to give them back if the return does not go through.
+     */
+    List<TransactionItem> reserve(String originalReceiptId, List<TransactionItem> items) throws TransactionException {
+        Entry entry = entryFor(originalReceiptId);
+        Map<String, Integer> requested = requestedQuantities(originalReceiptId, entry, items);
+        List<Map.Entry<String, Integer>> claimed = new ArrayList<>(requested.size());
+        for (Map.Entry<String, Integer> request : requested.entrySet()) {
+            int slot = entry.slotOf(request.getKey());
+            if (!entry.claim(slot, request.getValue(), false)) {
+                for (Map.Entry<String, Integer> done : claimed) {
+                    entry.claim(entry.slotOf(done.getKey()), -done.getValue(), false);
+                }
+                throw tooMany(originalReceiptId, request.getKey(), entry.remaining(slot));
+            }
+            claimed.add(request);
+        }
+        return priced(entry, items);
+    }
+
+    /** Gives back quantities claimed by reserve(). */
+    void release(String originalReceiptId, List<TransactionItem> items) {
+        Entry entry = entries.get(originalReceiptId);
+        if (entry == null) {
+            return;
+        }
+        for (TransactionItem line : items) {
+            int slot = entry.slotOf(keyOf(line));
+            if (slot >= 0) {
+                entry.claim(slot, -line.getQuantity(), false);
+            }
+        }
+    }
+
+    private Entry entryFor(String originalReceiptId) throws TransactionException {
+        Entry entry = live(originalReceiptId);
+        if (entry == null) {
+            throw new TransactionException("Original receipt " + originalReceiptId + " was not found, is not a purchase,"
+                    + " or is past the " + returnWindow.toDays() + "-day return window.");
+        }
+        return entry;
+    }
+
+    // Sums the requested quantity per ledger key (an item may be entered more than once)
+    private static Map<String, Integer> requestedQuantities(String originalReceiptId, Entry entry,
+                                                            List<TransactionItem> items) throws TransactionException {
+        Map<String, Integer> requested = new LinkedHashMap<>();
+        for (TransactionItem line : items) {
+            String key = keyOf(line);
+            if (entry.slotOf(key) < 0) {
+                throw new TransactionException("Item " + line.getItem().getName() + " (" + describe(key)
+                        + ") was not purchased on receipt " + originalReceiptId + ".");
+            }
+            requested.merge(key, line.getQuantity(), Integer::sum);
+        }
+        return requested;
+    }
+
+    private static List<TransactionItem> priced(Entry entry, List<TransactionItem> items) {
+        List<TransactionItem> priced = new ArrayList<>(items.size());
+        for (TransactionItem line : items) {
+            long price = entry.prices[entry.slotOf(keyOf(line))];
+            priced.add(new TransactionItem(line.getItem(), line.getQuantity(), price, line.getMeasure(), line.getMeasuredValue()));
+        }
+        return priced;
+    }
+
+    private static TransactionException tooMany(String originalReceiptId, String key, int remaining) {
+        return new TransactionException("Only " + remaining + " unit(s) of item " + describe(key)
+                + " can still be returned on receipt " + originalReceiptId + ".");
+    }
+
+    // One purchase receipt, one slot per distinct ledger key
+    private static final class Entry {
+        private static final int LINEAR_SCAN_LINES = 8; // Larger baskets get a hash table
+
+        final LocalDateTime purchasedAt;  // Shared with the receipt
+        final String[] barcodes;          // Ledger keys (see keyOf); plain barcodes are shared with the Item objects
+        final long[] prices;              // Captured unit price in cents
+        final AtomicLongArray quantities; // Sold in the high 32 bits, returned in the low 32 bits
+        final int[] table;                // Open addressing over barcodes (slot + 1, 0 = empty), or null
+
+        private Entry(LocalDateTime purchasedAt, String[] barcodes, long[] prices, long[] quantities) {
+            this.purchasedAt = purchasedAt;
+            this.barcodes = barcodes;
+            this.prices = prices;
+            this.quantities = new AtomicLongArray(quantities);
+            this.table = barcodes.length > LINEAR_SCAN_LINES ? buildTable(barcodes) : null;
+        }
+
+        static Entry of(List<TransactionItem> lines, LocalDateTime purchasedAt) {
+            // Lines with the same key are merged; if their prices differ, the lowest one is refunded.
+            // Variable-measure packages are keyed by their label value, so each keeps its own price.
+            Map<String, long[]> merged = new LinkedHashMap<>(); // key -> {quantity, price}
+            for (TransactionItem line : lines) {
+                long[] slot = merged.computeIfAbsent(keyOf(line),
+                        key -> new long[]{0, line.getPriceAtTransaction()});
+                slot[0] += line.getQuantity();
+                slot[1] = Math.min(slot[1], line.getPriceAtTransaction());
+            }
+            String[] barcodes = new String[merged.size()];
+            long[] prices = new long[merged.size()];
+            long[] quantities = new long[merged.size()];
+            int i = 0;
+            for (Map.Entry<String, long[]> line : merged.entrySet()) {
+                barcodes[i] = line.getKey();
+                prices[i] = line.getValue()[1];
+                quantities[i] = Math.min(line.getValue()[0], Integer.MAX_VALUE) << 32;
+                i++;
+            }
+            return new Entry(purchasedAt, barcodes, prices, quantities);
+        }
+
+        private static int[] buildTable(String[] barcodes) {
+            int[] table = new int[Integer.highestOneBit(barcodes.length * 2 - 1) << 1];
+            for (int slot = 0; slot < barcodes.length; slot++) {
+                int i = barcodes[slot].hashCode() & (table.length - 1);
+                while (table[i] != 0) {
+                    i = (i + 1) & (table.length - 1);
+                }
+                table[i] = slot + 1;
+            }
+            return table;
+        }
+
+        int slotOf(String barcode) {
+            if (table == null) {
+                for (int slot = 0; slot < barcodes.length; slot++) {
+                    if (barcodes[slot].equals(barcode)) {
+                        return slot;
+                    }
+                }
+                return -1;
+            }
+            int i = barcode.hashCode() & (table.length - 1);
+            for (int entry = table[i]; entry != 0; entry = table[i]) {
+                if (barcodes[entry - 1].equals(barcode)) {
+                    return entry - 1;
+                }
+                i = (i + 1) & (table.length - 1);
+            }
+            return -1;
+        }
+
+        int remaining(int slot) {
+            long state = quantities.get(slot);
+            return (int) (state >>> 32) - (int) state;
+        }
+
+        /** Adds to the returned count (negative to give units back); false if it would exceed the quantity sold. */
+        boolean claim(int slot, int quantity, boolean capAtSold) {
+            while (true) {
+                long state = quantities.get(slot);
+                int sold = (int) (state >>> 32);
+                long returned = (long) (int) state + quantity;
+                if (returned > sold) {
+                    if (!capAtSold) {
+                        return false;
+                    }
+                    returned = sold;
+                }
+                returned = Math.max(0, returned);
+                if (quantities.compareAndSet(slot, state, ((long) sold << 32) | returned)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
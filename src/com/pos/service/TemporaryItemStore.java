@@ -0,0 +1,149 @@
+package com.pos.service;
+
+import com.pos.model.Item;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Items keyed in by cashiers for barcodes that are not in the inventory.
+ *
+ * The store is bounded: when it holds maxItems items, adding another evicts the least recently
+ * used one. An item also expires once it has not been used (scanned or keyed in again) for the
+ * time-to-live. Keying an item in and every lookup count a hit, so the items keyed in most often
+ * can be promoted to the inventory (see InventoryService.promoteTemporaryItems).
+ *
+ * Temporary items are only looked up after an inventory miss, so a single lock is enough.
+ */
+public class TemporaryItemStore {
+    public static final int DEFAULT_MAX_ITEMS = 1000;
+    public static final Duration DEFAULT_TTL = Duration.ofHours(12);
+
+    private final int maxItems;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true); // Least recently used first
+    private long evictedCount;
+    private long expiredCount;
+
+    private static final class Entry {
+        final Item item;
+        final long addedAtMillis;
+        long hits;
+        long lastUsedNanos;
+
+        Entry(Item item, long addedAtMillis, long hits, long lastUsedNanos) {
+            this.item = item;
+            this.addedAtMillis = addedAtMillis;
+            this.hits = hits;
+            this.lastUsedNanos = lastUsedNanos;
+        }
+    }
+
+    // A temporary item with its hit count, as reported by mostUsed
+    public record Usage(Item item, long hits, long addedAtMillis) { }
+
+    public TemporaryItemStore() {
+        this(DEFAULT_MAX_ITEMS, DEFAULT_TTL);
+    }
+
+    /**
+     * param maxItems The most items kept at once.
+     * param ttl How long an unused item is kept.
+     * throws IllegalArgumentException if maxItems or ttl is not positive.
+     */
+    public TemporaryItemStore(int maxItems, Duration ttl) {
+        if (maxItems <= 0) {
+            throw new IllegalArgumentException("Maximum number of temporary items must be positive.");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Temporary item time-to-live must be positive.");
+        }
+        this.maxItems = maxItems;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /** Returns the item and counts a hit, or null if there is none (or it expired). */
+    public synchronized Item get(String barcode) {
+        Entry entry = entries.get(barcode);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (now - entry.lastUsedNanos >= ttlNanos) {
+            entries.remove(barcode);
+            expiredCount++;
+            return null;
+        }
+        entry.hits++;
+        entry.lastUsedNanos = now;
+        return entry.item;
+    }
+
+    /**
+     * Adds an item with one hit, replacing the one with the same barcode (whose hits are kept).
+     * Expired items are dropped and, if the store is full, the least recently used item is evicted.
+     * return The replaced item, or null.
+     */
+    public synchronized Item put(Item item) {
+        long now = System.nanoTime();
+        purgeExpired(now);
+        Entry previous = entries.remove(item.getBarcode());
+        entries.put(item.getBarcode(), new Entry(item, System.currentTimeMillis(),
+                previous == null ? 1 : previous.hits + 1, now));
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxItems) {
+            eldest.next();
+            eldest.remove();
+            evictedCount++;
+        }
+        return previous == null ? null : previous.item;
+    }
+
+    /** Removes an item; returns it, or null if there was none. */
+    public synchronized Item remove(String barcode) {
+        Entry entry = entries.remove(barcode);
+        return entry == null ? null : entry.item;
+    }
+
+    /** Returns up to count items with at least minHits hits, most hits first. */
+    public synchronized List<Usage> mostUsed(int count, long minHits) {
+        purgeExpired(System.nanoTime());
+        List<Usage> usages = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (entry.hits >= minHits) {
+                usages.add(new Usage(entry.item, entry.hits, entry.addedAtMillis));
+            }
+        }
+        usages.sort(Comparator.comparingLong(Usage::hits).reversed());
+        return usages.size() > count ? new ArrayList<>(usages.subList(0, Math.max(0, count))) : usages;
+    }
+
+    public synchronized int size() {
+        purgeExpired(System.nanoTime());
+        return entries.size();
+    }
+
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    public synchronized long getExpiredCount() {
+        return expiredCount;
+    }
+
+    // Entries are in order of last use, so the expired ones are all at the front
+    private void purgeExpired(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().lastUsedNanos < ttlNanos) {
+                return;
+            }
+            it.remove();
+            expiredCount++;
+        }
+    }
+}
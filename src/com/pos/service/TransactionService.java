@@ -1,25 +1,102 @@
 package com.pos.service;
 
+import com.pos.logging.LogLevel;
+import com.pos.logging.LogManager;
+import com.pos.logging.Logger;
 import com.pos.model.*; // Import necessary model classes
+import com.pos.persistence.TransactionJournal;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class TransactionService {
+    // How long after a purchase its items can be returned (older purchases are dropped from the return ledger)
+    public static final Duration DEFAULT_RETURN_WINDOW = Duration.ofDays(90);
+
+    // Sales and returns are logged as structured records off the checkout thread
+    private static final Logger log = LogManager.getLogger("transaction");
 
     private final InventoryService inventoryService;
-    // Store completed transactions (In-memory for this example)
+    // Store completed transactions (In-memory, backed by the journal if configured).
+    // Concurrent because several checkout lanes complete transactions at the same time.
     private final Map<String, Receipt> completedTransactions;
+    // Time, employee and original receipt indexes over completedTransactions
+    private final ReceiptIndex receiptIndex = new ReceiptIndex();
+    // Sold, already returned and captured price per (purchase receipt, barcode), for validating returns
+    private final ReturnLedger returnLedger;
+    // Durable record of completed receipts (null = in-memory only)
+    private final TransactionJournal journal;
+    // Hands out lane-prefixed receipt IDs; seeded from the journal so IDs are never reused after a restart
+    private final ReceiptIdGenerator receiptIds = ReceiptIdGenerator.getDefault();
 
     public TransactionService(InventoryService inventoryService) {
+        this(inventoryService, null);
+    }
+
+    /**
+     * Creates the service backed by a transaction journal.
+     * Receipts already in the journal are replayed into the receipt store.
+     * param journal The journal to append completed receipts to (may be null for in-memory only).
+     * throws IllegalStateException if the journal cannot be replayed.
+     */
+    public TransactionService(InventoryService inventoryService, TransactionJournal journal) {
+        this(inventoryService, journal, DEFAULT_RETURN_WINDOW);
+    }
+
+    /**
+     * Creates the service backed by a transaction journal, accepting returns for the given time after a purchase.
+     * Purchases replayed from the journal that are already past the window are not kept for returns.
+     * throws IllegalArgumentException if the return window is not positive.
+     */
+    public TransactionService(InventoryService inventoryService, TransactionJournal journal, Duration returnWindow) {
         if (inventoryService == null) {
             throw new IllegalArgumentException("InventoryService cannot be null.");
         }
         this.inventoryService = inventoryService;
-        this.completedTransactions = new HashMap<>(); // Using standard HashMap is fine for single-threaded Swing app
+        this.returnLedger = new ReturnLedger(returnWindow);
+        this.completedTransactions = new ConcurrentHashMap<>();
+        this.journal = journal;
+        if (journal != null) {
+            replayJournal();
+        }
+    }
+
+    private void replayJournal() {
+        try {
+            int replayed = journal.replay(barcode -> inventoryService.findItem(barcode).orElse(null),
+                    receipt -> {
+                        if (completedTransactions.putIfAbsent(receipt.getReceiptId(), receipt) == null) {
+                            receiptIndex.add(receipt);
+                            if (receipt.getType() == TransactionType.PURCHASE) {
+                                returnLedger.recordSale(receipt);
+                                inventoryService.recordSales(receipt.getItems(), receipt.getTimestamp());
+                            } else {
+                                returnLedger.recordReplayedReturn(receipt);
+                            }
+                        }
+                        receiptIds.observe(receipt.getReceiptId());
+                    });
+            System.out.println("Replayed " + replayed + " receipt(s) from the transaction journal.");
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to replay transaction journal: " + e.getMessage(), e);
+        }
+    }
+
+    /** Appends a completed receipt to the journal (if one is configured). */
+    private void journalReceipt(Receipt receipt) throws TransactionException {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.append(receipt);
+        } catch (IOException e) {
+            throw new TransactionException("Failed to record receipt " + receipt.getReceiptId() + " in the journal.", e);
+        }
     }
 
     /**
@@ -28,12 +105,154 @@ public class TransactionService {
      * return An Optional containing the Receipt if found, otherwise empty.
      */
     public Optional<Receipt> findReceiptById(String receiptId) {
-        return Optional.ofNullable(completedTransactions.get(receiptId));
+        if (receiptId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(completedTransactions.get(ReceiptIdGenerator.normalize(receiptId)));
+    }
+
+    /**
+     * Returns a receipt ID that is not used by any stored receipt. Generated IDs are unique by
+     * construction; the check only guards against receipts replayed from a journal written by
+     * another process with the same node ID.
+     */
+    private String nextReceiptId(String laneId) {
+        String receiptId = receiptIds.next(laneId);
+        while (completedTransactions.containsKey(receiptId)) {
+            receiptIds.observe(receiptId);
+            receiptId = receiptIds.next(laneId);
+        }
+        return receiptId;
+    }
+
+    /**
+     * Reserves the receipt ID prefix of a lane before it takes any sales.
+     * throws IllegalArgumentException if another lane's ID maps to the same prefix.
+     */
+    public void registerLane(String laneId) {
+        receiptIds.registerLane(laneId);
+    }
+
+    /** Stores a completed receipt; an ID is never reused, so an existing entry is never replaced. */
+    private void storeReceipt(Receipt receipt) {
+        if (completedTransactions.putIfAbsent(receipt.getReceiptId(), receipt) != null) {
+            throw new IllegalStateException("Duplicate receipt ID " + receipt.getReceiptId() + ".");
+        }
+        receiptIndex.add(receipt);
+        returnLedger.recordSale(receipt); // Ignores returns (their quantities were claimed in processReturn)
+        if (receipt.getType() == TransactionType.PURCHASE) {
+            inventoryService.recordSales(receipt.getItems(), receipt.getTimestamp()); // Search ranking
+        }
+    }
+
+    /**
+     * Checks a return against the original receipt and calculates the standard refund, priced at
+     * the prices captured on the original receipt (nothing is changed).
+     * param originalReceiptId The ID of the original purchase receipt.
+     * param itemsToReturn The items being returned.
+     * return The refund in cents.
+     * throws TransactionException If the receipt is unknown or past the return window, an item was not purchased
+     *         on it, or more units would be returned than are left on it.
+     */
+    public long calculateRefund(String originalReceiptId, List<TransactionItem> itemsToReturn) throws TransactionException {
+        if (originalReceiptId == null || originalReceiptId.trim().isEmpty()) {
+            throw new TransactionException("Original receipt ID is required for returns.");
+        }
+        if (itemsToReturn == null || itemsToReturn.isEmpty()) {
+            return 0;
+        }
+        long refund = 0;
+        for (TransactionItem line : returnLedger.price(ReceiptIdGenerator.normalize(originalReceiptId), itemsToReturn)) {
+            refund += line.getSubtotal();
+        }
+        return refund;
+    }
+
+    /**
+     * Checks whether items can still be returned against a purchase receipt.
+     * return false if the receipt is unknown, not a purchase, or past the return window.
+     */
+    public boolean isWithinReturnWindow(String originalReceiptId) {
+        return originalReceiptId != null && returnLedger.isOpen(ReceiptIdGenerator.normalize(originalReceiptId));
+    }
+
+    /** How long after a purchase its items can be returned. */
+    public Duration getReturnWindow() {
+        return returnLedger.getReturnWindow();
+    }
+
+    /**
+     * Units of an item that can still be returned against a purchase receipt. For a price or weight
+     * label, the units of that package (as scanned, with its label value).
+     * return The remaining quantity, or -1 if the receipt is unknown or past the return window, or the item was not
+     *         purchased on it.
+     */
+    public int getReturnableQuantity(String originalReceiptId, String barcode) {
+        if (originalReceiptId == null || barcode == null) {
+            return -1;
+        }
+        // A price or weight label identifies one package, with its own slot in the ledger
+        String key = ReturnLedger.keyOf(Gs1.canonical(barcode), Gs1.measureOf(barcode), Gs1.measuredValue(barcode));
+        return returnLedger.returnableQuantity(ReceiptIdGenerator.normalize(originalReceiptId), key);
+    }
+
+    /**
+     * Finds the receipts completed in a time range, oldest first.
+     * param from Start of the range (inclusive).
+     * param to End of the range (exclusive).
+     * return The receipts (sales and returns) in the range; empty if 'to' is not after 'from'.
+     */
+    public List<Receipt> findReceiptsBetween(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Time range cannot be open-ended.");
+        }
+        return receiptIndex.between(from, to);
+    }
+
+    /**
+     * Finds the receipts processed by an employee, oldest first.
+     * param employeeId The ID of the employee (e.g. "CSH001").
+     * return The employee's sales and returns.
+     */
+    public List<Receipt> findReceiptsByEmployee(String employeeId) {
+        if (employeeId == null) {
+            return List.of();
+        }
+        return receiptIndex.byEmployee(employeeId);
+    }
+
+    /**
+     * Finds the receipts processed by an employee in a time range, oldest first
+     * (e.g. today's sales: from = LocalDate.now().atStartOfDay(), to = now).
+     * param from Start of the range (inclusive).
+     * param to End of the range (exclusive).
+     */
+    public List<Receipt> findReceiptsByEmployee(String employeeId, LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Time range cannot be open-ended.");
+        }
+        if (employeeId == null) {
+            return List.of();
+        }
+        return receiptIndex.byEmployee(employeeId, from, to);
+    }
+
+    /**
+     * Finds the return receipts recorded against a purchase receipt.
+     * param originalReceiptId The ID of the purchase receipt.
+     * return The returns, in the order they were processed (empty if none).
+     */
+    public List<Receipt> findReturnsFor(String originalReceiptId) {
+        if (originalReceiptId == null) {
+            return List.of();
+        }
+        return receiptIndex.returnsFor(ReceiptIdGenerator.normalize(originalReceiptId));
     }
 
     /**
      * Processes a sale transaction.
-     * Validates stock and decreases inventory for items found in the main inventory.
+     * Takes stock for all items found in the main inventory as one atomic, all-or-nothing step
+     * (concurrent lanes cannot take the stock between validation and sale).
      * Allows temporary items (found via InventoryService.findItem) to be included
      * in the sale without stock checks/decreases.
      * Creates and stores a receipt including all items.
@@ -44,6 +263,15 @@ public class TransactionService {
      * throws TransactionException If the sale cannot be processed (e.g., insufficient stock for an inventory item).
      */
     public Receipt processSale(List<TransactionItem> items, Employee employee) throws TransactionException {
+        return processSale(items, employee, null);
+    }
+
+    /**
+     * Processes a sale coming from a checkout lane (see processSale(List, Employee)).
+     * param laneId The lane the sale was rung up on, recorded in the transaction log (may be null).
+     */
+    public Receipt processSale(List<TransactionItem> items, Employee employee, String laneId) throws TransactionException {
+        long startNanos = System.nanoTime();
         if (items == null || items.isEmpty()) {
             throw new TransactionException("Cannot process sale with empty item list.");
         }
@@ -51,64 +279,40 @@ public class TransactionService {
              throw new TransactionException("Cannot process sale without a valid employee.");
          }
 
-        // List to keep track of items that ARE found in inventory and need stock decrease
-        List<TransactionItem> inventoryItemsToProcess = new ArrayList<>();
-
-        // 1. Validate stock ONLY for items found in the *main* inventory
-        for (TransactionItem transItem : items) {
-            // Use the helper method to determine if it's a main inventory item
-            if (inventoryService.isInventoryItem(transItem.getItem().getBarcode())) {
-                // Item exists in main inventory - Perform stock validation
-                // We need to fetch the item again to be sure about the current stock
-                Optional<Item> inventoryItemOpt = inventoryService.findItem(transItem.getItem().getBarcode());
-                if (inventoryItemOpt.isPresent()) { // Should be present if isInventoryItem was true
-                    Item inventoryItem = inventoryItemOpt.get();
-                    if (inventoryItem.getQuantityInStock() < transItem.getQuantity()) {
-                        // Insufficient stock for an item that IS in inventory - Sale fails
-                        throw new TransactionException("Insufficient stock for inventory item: " + inventoryItem.getName() +
-                                " (Required: " + transItem.getQuantity() + ", Available: " + inventoryItem.getQuantityInStock() + ")");
-                    }
-                    // Add to the list of items whose stock needs decreasing later
-                    inventoryItemsToProcess.add(transItem);
-                } else {
-                    // This case is unlikely if isInventoryItem was true, but handle defensively
-                     throw new TransactionException("Inventory inconsistency for item: " + transItem.getItem().getBarcode() + ". Sale aborted.");
-                }
-            } else {
-                // Item NOT found in main inventory - Assume it's a temporary item added via UI/session.
-                // No stock check or validation needed for this item.
-                // It will still be included in the final receipt.
-                System.out.println("Info: Item " + transItem.getItem().getBarcode() + " is temporary, skipping inventory stock check for sale.");
-            }
-        }
-
-        // 2. Decrease stock ONLY for the validated *inventory* items
-        // This loop now only iterates through items confirmed to be in main inventory
-        for (TransactionItem itemToSell : inventoryItemsToProcess) {
-            // Call the inventoryService.sell method which internally only acts on inventory items
-            boolean success = inventoryService.sell(itemToSell.getItem().getBarcode(), itemToSell.getQuantity());
-            if (!success) {
-                // This check remains important. If decreasing stock fails unexpectedly
-                // (e.g., concurrency issue, stock changed between check and sell), abort.
-                // In a real system, implement rollback logic here.
-                throw new TransactionException("Failed to decrease stock for inventory item: " + itemToSell.getItem().getBarcode() + ". Sale aborted.");
-            }
+        // 1. Reserve stock for every main inventory line (lines already taken are put back if one fails)
+        TransactionItem failedLine = inventoryService.reserveStock(items);
+        if (failedLine != null) {
+            Item item = failedLine.getItem();
+            int available = inventoryService.findItem(item.getBarcode()).map(Item::getQuantityInStock).orElse(0);
+            throw new TransactionException("Insufficient stock for inventory item: " + item.getName() +
+                    " (Required: " + failedLine.getQuantity() + ", Available: " + available + ")");
         }
 
-        // 3. Create Receipt using the ORIGINAL list of items passed in
+        // 2. Create Receipt using the ORIGINAL list of items passed in
         // This ensures both inventory items and temporary items are on the receipt.
-        Receipt receipt = new Receipt(items, employee); // Uses PURCHASE constructor
+        Receipt receipt = new Receipt(nextReceiptId(laneId), items, employee); // Uses PURCHASE constructor
 
-        // 4. Store Receipt
-        completedTransactions.put(receipt.getReceiptId(), receipt);
-        System.out.println("Sale successful. Receipt ID: " + receipt.getReceiptId());
-        System.out.println(receipt.getFormattedReceipt()); // Log receipt details
+        // 3. Journal and store Receipt
+        try {
+            journalReceipt(receipt);
+        } catch (TransactionException e) {
+            inventoryService.releaseStock(items); // The sale did not happen, give the stock back
+            throw e;
+        }
+        storeReceipt(receipt);
+        log.transaction(LogLevel.INFO, "sale", receipt.getReceiptId(), laneId, employee.getEmployeeId(),
+                items.size(), receipt.getTotalAmount(), System.nanoTime() - startNanos);
+        if (log.isEnabled(LogLevel.DEBUG)) {
+            log.debug("receipt", receipt.getFormattedReceipt());
+        }
 
         return receipt;
     }
 
     /**
      * Processes a return transaction.
+     * Every line must have been purchased on the original receipt and not returned yet; lines are
+     * refunded at the price captured on that receipt, not the current price.
      * Determines refund amount based on employee role and input.
      * Increases inventory stock *only for items belonging to the main inventory*.
      * Creates and stores a return receipt.
@@ -116,11 +320,13 @@ public class TransactionService {
      * param originalReceiptId The ID of the original purchase receipt (required).
      * param itemsToReturn The list of items being returned (can include temporary items).
      * param employee The employee processing the return.
-     * param customRefundAmount Optional: A specific refund amount (only used if employee is Manager). If null, standard price is used.
+     * param customRefundCents Optional: A specific refund amount in cents (only used if employee is Manager). If null, standard price is used.
      * return The generated Receipt for the return.
-     * throws TransactionException If the return cannot be processed (e.g., missing original ID, invalid input).
+     * throws TransactionException If the return cannot be processed (e.g., unknown original receipt or one past the
+     *         return window, item not purchased on it, more units than are left to return, invalid input).
      */
-    public Receipt processReturn(String originalReceiptId, List<TransactionItem> itemsToReturn, Employee employee, Double customRefundAmount) throws TransactionException {
+    public Receipt processReturn(String originalReceiptId, List<TransactionItem> itemsToReturn, Employee employee, Long customRefundCents) throws TransactionException {
+        long startNanos = System.nanoTime();
          if (itemsToReturn == null || itemsToReturn.isEmpty()) {
             throw new TransactionException("Cannot process return with empty item list.");
         }
@@ -131,69 +337,90 @@ public class TransactionService {
              throw new TransactionException("Cannot process return without a valid employee.");
          }
 
-        
+        // Check the lines against the original receipt (unknown receipt, item not bought, already returned)
+        String originalId = ReceiptIdGenerator.normalize(originalReceiptId);
+        List<TransactionItem> pricedItems = returnLedger.price(originalId, itemsToReturn);
 
-        // Determine refund amount 
-        double finalRefundAmount;
-        // Calculate refund based on prices captured in itemsToReturn (which came from findItem at return time)
-        double calculatedRefund = itemsToReturn.stream()
-                                            .mapToDouble(TransactionItem::getSubtotal)
-                                            .sum();
+        // Determine refund amount (in cents)
+        long finalRefundAmount;
+        // Calculate refund based on the prices captured on the original receipt
+        long calculatedRefund = 0;
+        for (TransactionItem transItem : pricedItems) {
+            calculatedRefund += transItem.getSubtotal();
+        }
 
-        if (employee instanceof Manager manager && manager.canDoFlexibleRefund() && customRefundAmount != null) {
-            if (customRefundAmount < 0) {
+        if (employee instanceof Manager manager && manager.canDoFlexibleRefund() && customRefundCents != null) {
+            if (customRefundCents < 0) {
                  throw new TransactionException("Custom refund amount cannot be negative.");
             }
-            finalRefundAmount = customRefundAmount;
-             System.out.println("Manager (" + employee.getName() + ") processing return with custom amount: $" + String.format("%.2f", customRefundAmount));
+            finalRefundAmount = customRefundCents;
+             log.info("refund", "Manager " + employee.getEmployeeId() + " custom refund amount: " + Money.display(customRefundCents));
         } else {
              finalRefundAmount = calculatedRefund;
               if (employee instanceof Manager) {
-                 System.out.println("Manager (" + employee.getName() + ") processing return with standard calculated amount: $" + String.format("%.2f", calculatedRefund));
+                 log.debug("refund", "Manager " + employee.getEmployeeId() + " standard refund amount: " + Money.display(calculatedRefund));
              } else if (employee instanceof Cashier) {
-                  if (customRefundAmount != null && customRefundAmount > calculatedRefund) {
-                       throw new TransactionException("Cashier cannot refund more than the item's calculated value. Calculated: $" + String.format("%.2f", calculatedRefund) + ", Attempted: $" + String.format("%.2f", customRefundAmount));
-                   } else if (customRefundAmount != null && customRefundAmount <= calculatedRefund) { // Allow <=
-                       finalRefundAmount = customRefundAmount; // Allow if specified and not exceeding
-                       System.out.println("Info: Cashier processing return with specified refund amount: $" + String.format("%.2f", customRefundAmount));
+                  if (customRefundCents != null && customRefundCents > calculatedRefund) {
+                       throw new TransactionException("Cashier cannot refund more than the item's calculated value. Calculated: " + Money.display(calculatedRefund) + ", Attempted: " + Money.display(customRefundCents));
+                   } else if (customRefundCents != null && customRefundCents <= calculatedRefund) { // Allow <=
+                       finalRefundAmount = customRefundCents; // Allow if specified and not exceeding
+                       log.info("refund", "Cashier " + employee.getEmployeeId() + " specified refund amount: " + Money.display(customRefundCents));
                    } else {
-                        System.out.println("Cashier (" + employee.getName() + ") processing return with standard calculated amount: $" + String.format("%.2f", calculatedRefund));
+                        log.debug("refund", "Cashier " + employee.getEmployeeId() + " standard refund amount: " + Money.display(calculatedRefund));
                    }
               }
         }
 
-        // 3. Increase stock in inventory ONLY for main inventory items
-        for (TransactionItem transItem : itemsToReturn) {
-            String barcode = transItem.getItem().getBarcode();
-            // *** Use the helper method to check if it's an inventory item ***
-            if (inventoryService.isInventoryItem(barcode)) {
-                // Attempt to restock only if it's a main inventory item
-                boolean success = inventoryService.restock(
-                    barcode,
-                    transItem.getQuantity(),
-                    employee // Pass the employee performing the return for permission check in restock
-                );
-
-                if (!success) {
-                    // Log a warning if restocking failed (permission denied or item vanished)
-                    System.err.println("Warning: Could not restock inventory item " + barcode + " during return. " +
-                                       "Check permissions for employee " + employee.getEmployeeId() + " or item status.");
-                    // Policy decision: Continue return or fail? Continue for now.
-                }
-            } else {
-                // It's a temporary item, log info but do not attempt restock
-                 System.out.println("Info: Processing return for item " + barcode + ".");
-            }
+        // 3. Claim the returned quantities on the original receipt (fails if a concurrent return got there first)
+        pricedItems = returnLedger.reserve(originalId, itemsToReturn);
+
+        // 4. Create RETURN Receipt (includes all returned items, temp or inventory, at their original prices)
+        Receipt returnReceipt = new Receipt(nextReceiptId(null), pricedItems, employee, originalId, finalRefundAmount);
+
+        // 5. Journal the Return Receipt before any stock moves, so a failed append leaves the inventory untouched
+        try {
+            journalReceipt(returnReceipt);
+        } catch (TransactionException e) {
+            returnLedger.release(originalId, pricedItems); // The return did not happen, the units can be returned again
+            throw e;
         }
 
-        // 4. Create RETURN Receipt (includes all returned items, temp or inventory)
-        Receipt returnReceipt = new Receipt(itemsToReturn, employee, originalReceiptId, finalRefundAmount);
+        // 6. Increase stock in inventory ONLY for main inventory items
+        inventoryService.beginBatch(); // One delta log sync for the whole return
+        try {
+            for (TransactionItem transItem : pricedItems) {
+                String barcode = transItem.getItem().getBarcode();
+                // *** Use the helper method to check if it's an inventory item ***
+                if (inventoryService.isInventoryItem(barcode)) {
+                    // Attempt to restock only if it's a main inventory item
+                    boolean success = inventoryService.restock(
+                        barcode,
+                        transItem.getQuantity(),
+                        employee // Pass the employee performing the return for permission check in restock
+                    );
 
+                    if (!success) {
+                        // Log a warning if restocking failed (permission denied or item vanished)
+                        log.warn("return_restock_failed", "Could not restock inventory item " + barcode + " during return. " +
+                                           "Check permissions for employee " + employee.getEmployeeId() + " or item status.");
+                        // Policy decision: Continue return or fail? Continue for now.
+                    }
+                } else {
+                    // It's a temporary item, log info but do not attempt restock
+                     log.debug("return_temporary_item", barcode);
+                }
+            }
+        } finally {
+            inventoryService.endBatch();
+        }
 
-        // 5. Store Return Receipt
-        completedTransactions.put(returnReceipt.getReceiptId(), returnReceipt);
-        System.out.println("Return successful. Return Receipt ID: " + returnReceipt.getReceiptId());
-         System.out.println(returnReceipt.getFormattedReceipt()); // Log receipt details
+        // 7. Store the Return Receipt
+        storeReceipt(returnReceipt);
+        log.transaction(LogLevel.INFO, "return", returnReceipt.getReceiptId(), null, employee.getEmployeeId(),
+                itemsToReturn.size(), finalRefundAmount, System.nanoTime() - startNanos);
+        if (log.isEnabled(LogLevel.DEBUG)) {
+            log.debug("receipt", returnReceipt.getFormattedReceipt());
+        }
 
         return returnReceipt;
     }
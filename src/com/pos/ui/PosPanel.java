@@ -1,44 +1,69 @@
 package com.pos.ui;
 
+import com.pos.events.StockEvent;
 import com.pos.model.*; // Import model classes
 import com.pos.service.InventoryService;
+import com.pos.service.ItemLookup;
+import com.pos.service.TemporaryItemStore;
 import com.pos.service.TransactionService;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.border.TitledBorder;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class PosPanel extends JPanel {
 
+    // Temporary items offered for promotion: the most keyed in, if keyed in at least twice
+    private static final int PROMOTE_MAX_ITEMS = 20;
+    private static final long PROMOTE_MIN_HITS = 2;
+    private static final int SEARCH_RESULTS = 10;
+
     private final MainFrame mainFrame; // Reference to parent frame
+    private final ScanPipeline scanPipeline; // Resolves scans off the EDT
+    private final Map<String, Integer> unknownScans = new LinkedHashMap<>(); // Unknown barcode -> times scanned, oldest first
     private JLabel employeeInfoLabel;
     private JTextField barcodeInput;
+    private JTextField searchInput; // Type-ahead name search, for labels that won't scan
+    private final DefaultListModel<Item> searchResults = new DefaultListModel<>();
+    private JList<Item> searchResultList;
+    private JPopupMenu searchPopup;
     private JButton addItemButton;
+    private JButton addUnknownButton; // Adds the unknown barcodes scanned in this sale
     private JButton completeSaleButton;
     private JButton startReturnButton;
     private JButton restockButton; // Manager only
+    private JButton promoteButton; // Manager only
     private JButton checkLowStockButton;
     private JButton logoutButton;
     private JTable currentSaleTable;
-    private DefaultTableModel saleTableModel;
+    private SaleTableModel saleTableModel; // Reads the cart directly
     private JLabel totalLabel;
+    private JLabel scanStatusLabel; // Latest scan problem (out of stock, unknown item, ...)
+    private JLabel stockAlertLabel; // Latest stock alert from the inventory's event bus
 
-    // This list holds items for the transaction currently being built (sale or return)
-    private List<TransactionItem> currentTransactionItems;
+    // Holds the items for the transaction currently being built (sale or return)
+    private final Cart cart;
 
     public PosPanel(MainFrame mainFrame) {
         if (mainFrame == null) {
             throw new IllegalArgumentException("MainFrame cannot be null");
         }
         this.mainFrame = mainFrame;
-        this.currentTransactionItems = new ArrayList<>(); // Initialize the list
+        this.cart = new Cart(mainFrame.getInventoryService().getPriceBook());
         setLayout(new BorderLayout(10, 10)); // Main layout with spacing
         setBorder(new EmptyBorder(10, 10, 10, 10)); // Padding around the panel
 
@@ -66,18 +91,20 @@ public class PosPanel extends JPanel {
         addItemButton.setToolTipText("Add the item with the entered barcode to the current transaction");
         barcodePanel.add(barcodeInput);
         barcodePanel.add(addItemButton);
+        addUnknownButton = new JButton("Add Unknown Item");
+        addUnknownButton.setToolTipText("Add a scanned barcode that was not found as a temporary item");
+        barcodePanel.add(addUnknownButton);
+        barcodePanel.add(new JLabel("  Search Name:"));
+        searchInput = new JTextField(15);
+        searchInput.setToolTipText("Type part of an item name, then pick it with the arrow keys and Enter");
+        barcodePanel.add(searchInput);
+        createSearchPopup();
         centerPanel.add(barcodePanel, BorderLayout.NORTH);
 
         // Sale Table Area
-        String[] columnNames = {"Barcode", "Name", "Qty", "Price", "Subtotal"};
-        // Make table model non-editable by default
-        saleTableModel = new DefaultTableModel(columnNames, 0) {
-             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Cells are not editable
-            }
-        };
+        saleTableModel = new SaleTableModel(cart); // Cells are not editable
         currentSaleTable = new JTable(saleTableModel);
+        saleTableModel.installRenderers(currentSaleTable);
         currentSaleTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION); // Allow selecting rows
         currentSaleTable.getTableHeader().setFont(new Font("Arial", Font.BOLD, 12));
         currentSaleTable.getTableHeader().setReorderingAllowed(false); // Prevent column reordering
@@ -112,6 +139,8 @@ public class PosPanel extends JPanel {
         startReturnButton.setToolTipText("Initiate a return process using an original receipt ID");
         restockButton = createActionButton("Restock Item");
         restockButton.setToolTipText("Add stock for an existing item (Manager only)");
+        promoteButton = createActionButton("Promote Keyed Items");
+        promoteButton.setToolTipText("Add the most often keyed-in temporary items to the inventory (Manager only)");
         checkLowStockButton = createActionButton("Check Low Stock");
         checkLowStockButton.setToolTipText("View items that are low on stock or out of stock");
 
@@ -123,6 +152,8 @@ public class PosPanel extends JPanel {
         rightPanel.add(startReturnButton);
         rightPanel.add(Box.createRigidArea(new Dimension(0, 10))); // Spacer
         rightPanel.add(restockButton);
+        rightPanel.add(Box.createRigidArea(new Dimension(0, 10))); // Spacer
+        rightPanel.add(promoteButton);
          rightPanel.add(Box.createRigidArea(new Dimension(0, 10))); // Spacer
         rightPanel.add(checkLowStockButton);
         rightPanel.add(Box.createVerticalGlue()); // Pushes components up
@@ -130,18 +161,134 @@ public class PosPanel extends JPanel {
 
         add(rightPanel, BorderLayout.EAST);
 
+        // --- Bottom (Scan Problems & Stock Alerts) ---
+        JPanel bottomPanel = new JPanel(new GridLayout(2, 1));
+        scanStatusLabel = new JLabel(" ");
+        scanStatusLabel.setFont(new Font("Arial", Font.BOLD, 12));
+        scanStatusLabel.setForeground(new Color(180, 0, 0));
+        stockAlertLabel = new JLabel(" ");
+        stockAlertLabel.setFont(new Font("Arial", Font.PLAIN, 12));
+        bottomPanel.add(scanStatusLabel);
+        bottomPanel.add(stockAlertLabel);
+        add(bottomPanel, BorderLayout.SOUTH);
+        // Alerts arrive in batches on the event bus thread; only the latest one is shown, updated on the EDT
+        mainFrame.getInventoryService().addStockEventListener(events -> {
+            String text = describeStockEvent(events.get(events.size() - 1));
+            SwingUtilities.invokeLater(() -> stockAlertLabel.setText(text));
+        });
+
+        // Scans are resolved on the pipeline's worker; each burst comes back to the EDT as one batch
+        scanPipeline = new ScanPipeline(mainFrame.getInventoryService(), ScanPipeline.DEFAULT_CAPACITY, this::applyScans);
+
         // --- Action Listeners ---
         addItemButton.addActionListener(this::addItemAction);
+        addUnknownButton.addActionListener(this::addUnknownItemAction);
         barcodeInput.addActionListener(this::addItemAction); // Add item on Enter key press in barcode field
         completeSaleButton.addActionListener(this::completeSaleAction);
         startReturnButton.addActionListener(this::startReturnAction);
         restockButton.addActionListener(this::restockAction);
+        promoteButton.addActionListener(this::promoteTemporaryItemsAction);
         checkLowStockButton.addActionListener(this::checkLowStockAction);
 
         // Initialize panel state (mostly disabled until login)
         resetPanel();
     }
 
+    /** Builds the drop-down of name search results shown under the search field (focus stays in the field) */
+    private void createSearchPopup() {
+        searchResultList = new JList<>(searchResults);
+        searchResultList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        searchResultList.setFocusable(false);
+        searchResultList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus) {
+                Item item = (Item) value;
+                String text = item.getName() + "  " + Money.display(item.getPriceCents()) + "  (" + item.getBarcode() + ")";
+                return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+            }
+        });
+        searchResultList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = searchResultList.locationToIndex(e.getPoint());
+                if (index >= 0) {
+                    addSearchResult(searchResults.get(index));
+                }
+            }
+        });
+        searchPopup = new JPopupMenu();
+        searchPopup.setFocusable(false);
+        searchPopup.add(new JScrollPane(searchResultList));
+
+        // Every keystroke re-runs the query (the index answers in well under a millisecond)
+        searchInput.getDocument().addDocumentListener(new DocumentListener() {
+            @Override public void insertUpdate(DocumentEvent e) { updateSearchResults(); }
+            @Override public void removeUpdate(DocumentEvent e) { updateSearchResults(); }
+            @Override public void changedUpdate(DocumentEvent e) { updateSearchResults(); }
+        });
+        searchInput.addActionListener(e -> {
+            int index = Math.max(0, searchResultList.getSelectedIndex());
+            if (index < searchResults.size()) {
+                addSearchResult(searchResults.get(index));
+            }
+        });
+        InputMap keys = searchInput.getInputMap(JComponent.WHEN_FOCUSED);
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), "searchNext");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0), "searchPrevious");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "searchClose");
+        searchInput.getActionMap().put("searchNext", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) { moveSearchSelection(1); }
+        });
+        searchInput.getActionMap().put("searchPrevious", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) { moveSearchSelection(-1); }
+        });
+        searchInput.getActionMap().put("searchClose", new AbstractAction() {
+            @Override public void actionPerformed(ActionEvent e) { searchPopup.setVisible(false); }
+        });
+    }
+
+    private void updateSearchResults() {
+        List<Item> items = mainFrame.getInventoryService().searchItems(searchInput.getText(), SEARCH_RESULTS);
+        searchResults.clear();
+        items.forEach(searchResults::addElement);
+        if (items.isEmpty() || !searchInput.isShowing()) {
+            searchPopup.setVisible(false);
+            return;
+        }
+        searchResultList.setSelectedIndex(0);
+        searchResultList.setVisibleRowCount(items.size());
+        searchPopup.pack();
+        searchPopup.show(searchInput, 0, searchInput.getHeight());
+        searchInput.requestFocusInWindow();
+    }
+
+    private void moveSearchSelection(int step) {
+        if (searchResults.isEmpty()) {
+            return;
+        }
+        int index = Math.floorMod(searchResultList.getSelectedIndex() + step, searchResults.size());
+        searchResultList.setSelectedIndex(index);
+        searchResultList.ensureIndexIsVisible(index);
+    }
+
+    /** Rings up the picked item as if its barcode had been scanned */
+    private void addSearchResult(Item item) {
+        searchPopup.setVisible(false);
+        searchInput.setText("");
+        barcodeInput.setText(item.getBarcode());
+        addItemAction(null);
+    }
+
+    /** Builds the one-line text shown for a stock alert */
+    private static String describeStockEvent(StockEvent event) {
+        Item item = event.getItem();
+        return switch (event.getType()) {
+            case LOW_STOCK -> "Stock alert: '" + item.getName() + "' is low (" + event.getQuantity() + " left)";
+            case OUT_OF_STOCK -> "Stock alert: '" + item.getName() + "' is out of stock";
+            case RESTOCKED -> "Restocked '" + item.getName() + "' (" + event.getQuantity() + " in stock)";
+        };
+    }
+
      /** Helper method to create styled action buttons */
      private JButton createActionButton(String text) {
          JButton button = new JButton(text);
@@ -163,6 +310,7 @@ public class PosPanel extends JPanel {
 
             // Enable core functionality
             barcodeInput.setEnabled(true);
+            searchInput.setEnabled(true);
             addItemButton.setEnabled(true);
             completeSaleButton.setEnabled(true);
             startReturnButton.setEnabled(true);
@@ -171,6 +319,8 @@ public class PosPanel extends JPanel {
             // Enable/Disable manager-specific functions
             boolean isManager = employee instanceof Manager;
             restockButton.setEnabled(isManager);
+            promoteButton.setEnabled(isManager);
+            updateUnknownItemButton();
 
             // Set focus to barcode input for quick scanning
             barcodeInput.requestFocusInWindow();
@@ -184,84 +334,89 @@ public class PosPanel extends JPanel {
     public void resetPanel() {
         employeeInfoLabel.setText("Employee: Not Logged In");
         barcodeInput.setText("");
-        currentTransactionItems.clear(); // Clear the internal list
-        saleTableModel.setRowCount(0); // Clear the visual table
-        updateTotal(); // Reset total label
+        scanPipeline.clear(); // Drop scans still being resolved
+        unknownScans.clear();
+        scanStatusLabel.setText(" ");
+        cart.clear(); // Clear the internal cart
+        updateTotal(); // Clear the visual table and reset total label
 
         // Disable buttons that require login or an active transaction
         barcodeInput.setEnabled(false);
+        searchInput.setEnabled(false);
+        searchInput.setText("");
         addItemButton.setEnabled(false);
+        updateUnknownItemButton();
         completeSaleButton.setEnabled(false);
         startReturnButton.setEnabled(false);
         restockButton.setEnabled(false);
+        promoteButton.setEnabled(false);
         checkLowStockButton.setEnabled(false); // Can argue this could be enabled, but let's tie it to login
     }
 
-    /** Recalculates and updates the total amount displayed */
+    /** Shows the cart's changes in the table (in one batch) and updates the total (the cart keeps a running total) */
     private void updateTotal() {
-        double total = 0.0;
-        for (TransactionItem item : currentTransactionItems) {
-            total += item.getSubtotal();
-        }
-        totalLabel.setText(String.format("Total: $%.2f", total));
+        saleTableModel.publishChanges();
+        totalLabel.setText("Total: " + Money.display(cart.getTotal()));
     }
 
-    /** Adds an item to the visual table and the internal transaction list */
-    private void addItemToTable(TransactionItem transItem) {
-         // Check if item (by barcode) is already in the list to increment quantity
-         for(int i = 0; i < currentTransactionItems.size(); i++) {
-             TransactionItem existingTransItem = currentTransactionItems.get(i);
-             if (existingTransItem.getItem().getBarcode().equals(transItem.getItem().getBarcode())) {
-                 // Combine quantities
-                 int newQuantity = existingTransItem.getQuantity() + transItem.getQuantity();
-
-                 // Check stock ONLY if it's a main inventory item
-                 boolean isInventoryItem = mainFrame.getInventoryService().isInventoryItem(transItem.getItem().getBarcode());
-                 int availableStock = Integer.MAX_VALUE; // Assume infinite for temporary items
-
-                 if (isInventoryItem) {
-                      // Re-fetch from inventory to get current stock count just before adding
-                      Optional<Item> inventoryItemOpt = mainFrame.getInventoryService().findItem(transItem.getItem().getBarcode());
-                      availableStock = inventoryItemOpt.map(Item::getQuantityInStock).orElse(0); // Default to 0 if somehow gone
-                 }
+    /**
+     * Adds an item to the cart and the visual table, incrementing the quantity if it is already there.
+     * isInventoryItem comes from the scan's lookup, so the barcode is not resolved again.
+     * The caller updates the total (once per batch of scans).
+     * return false if there was not enough stock (the reason is shown in the scan status line).
+     */
+    private boolean addItemToTable(Item item, boolean isInventoryItem, int quantity) {
+         String barcode = item.getBarcode();
+         // Combine quantities (price or weight packages of the item take stock too, even without a plain line)
+         int newQuantity = cart.quantityOf(barcode) + quantity;
+
+         // Check stock ONLY if it's a main inventory item (its current stock count, read from the item)
+         int availableStock = isInventoryItem ? item.getQuantityInStock() : Integer.MAX_VALUE; // Assume infinite for temporary items
+
+         if (availableStock < newQuantity) {
+             // Not enough stock for the increased quantity (only applies to inventory-managed items)
+             showScanProblem("Not enough stock to add more '" + item.getName() + "' (requested total: "
+                     + newQuantity + ", available: " + availableStock + ")");
+             return false; // Exit without adding/updating
+         }
+
+         int existingIndex = cart.indexOf(barcode);
+         if (existingIndex >= 0) {
+             // Update the line in place; its row is repainted with the rest of the batch
+             cart.add(item, quantity);
+             saleTableModel.rowChanged(existingIndex);
+             return true;
+         }
 
-                 if (availableStock >= newQuantity) {
-                     // Create a new TransactionItem reflecting the updated quantity
-                     // Use the item reference from the *existing* transaction item to ensure consistency
-                     TransactionItem updatedTransItem = new TransactionItem(existingTransItem.getItem(), newQuantity);
-                     currentTransactionItems.set(i, updatedTransItem); // Replace existing item in the list
+         // The item wasn't already in the cart, so add it as a new line (the table shows it on updateTotal)
+         cart.add(item, quantity);
+         return true;
+    }
 
-                     // Update the corresponding row in the table
-                     saleTableModel.setValueAt(updatedTransItem.getQuantity(), i, 2); // Update Qty column
-                     saleTableModel.setValueAt(String.format("%.2f", updatedTransItem.getSubtotal()), i, 4); // Update Subtotal column
+    /** Adds one variable-measure package (price or weight label) as its own line */
+    private void addMeasuredItemToTable(ScanPipeline.ScanResult scan) {
+        cart.addMeasured(scan.item(), scan.measure(), scan.measuredValue());
+    }
 
-                     updateTotal(); // Recalculate total
-                     return; // Item updated, exit the method
-                 } else {
-                       // Not enough stock for the increased quantity (only applies to inventory-managed items)
-                       JOptionPane.showMessageDialog(this,
-                         "Not enough stock to add more '" + transItem.getItem().getName() + "'.\nRequested total: " + newQuantity + ", Available: " + availableStock,
-                         "Stock Error", JOptionPane.WARNING_MESSAGE);
-                     return; // Exit without adding/updating
-                 }
-             }
-         }
+    /** Shows a scan problem in the status line and beeps, without stopping the scanning */
+    private void showScanProblem(String message) {
+        scanStatusLabel.setText(message);
+        Toolkit.getDefaultToolkit().beep();
+    }
 
-         // If the loop finishes, the item wasn't already in the list, so add it as a new entry
-         currentTransactionItems.add(transItem);
-         saleTableModel.addRow(new Object[]{
-                 transItem.getItem().getBarcode(),
-                 transItem.getItem().getName(),
-                 transItem.getQuantity(),
-                 String.format("%.2f", transItem.getPriceAtTransaction()), // Format price
-                 String.format("%.2f", transItem.getSubtotal())          // Format subtotal
-         });
-         updateTotal(); // Recalculate total
+    /** Shows how many unknown barcodes are waiting to be added */
+    private void updateUnknownItemButton() {
+        int waiting = unknownScans.size();
+        addUnknownButton.setText(waiting == 0 ? "Add Unknown Item" : "Add Unknown Item (" + waiting + ")");
+        addUnknownButton.setEnabled(waiting > 0 && mainFrame.getLoggedInEmployee() != null);
     }
 
     // --- Action Handlers ---
 
-    /** Handles adding an item via barcode input (button click or Enter key) */
+    /**
+     * Handles a scanned or keyed barcode (button click or Enter key). The barcode is queued for
+     * the scan pipeline and the field is cleared right away, so the next scan is never held up.
+     */
     private void addItemAction(ActionEvent e) {
         String barcode = barcodeInput.getText().trim();
          if (barcode.isEmpty()) {
@@ -275,39 +430,104 @@ public class PosPanel extends JPanel {
             return;
         }
 
-         InventoryService invService = mainFrame.getInventoryService();
-         // Use the modified findItem which checks both inventory and temporary storage
-         Optional<Item> itemOpt = invService.findItem(barcode);
+         // Clear input field and set focus back for next scan
+         barcodeInput.setText("");
+         barcodeInput.requestFocusInWindow();
+
+         if (!scanPipeline.submit(barcode)) {
+             showScanProblem("Too many scans waiting: '" + barcode + "' was not added, please scan it again.");
+         }
+    }
 
-         if (itemOpt.isPresent()) {
+    /** Applies a batch of resolved scans (on the EDT), then updates the total once */
+    private void applyScans(List<ScanPipeline.ScanResult> scans) {
+        if (mainFrame.getLoggedInEmployee() == null) {
+            return; // Logged out while the scans were being resolved
+        }
+        for (ScanPipeline.ScanResult scan : scans) {
+            applyScan(scan);
+        }
+        updateTotal();
+    }
+
+    /** Adds one resolved scan to the sale; problems go to the status line instead of a dialog */
+    private void applyScan(ScanPipeline.ScanResult scan) {
+         String barcode = scan.barcode();
+         if (scan.error() != null) {
+             showScanProblem("Barcode '" + barcode + "': " + scan.error());
+         } else if (scan.isFound()) {
              // --- ITEM FOUND (EITHER IN INVENTORY OR TEMPORARILY) ---
-             Item item = itemOpt.get();
-             boolean isInventoryItem = invService.isInventoryItem(barcode); // Check if it's from main inventory
+             Item item = scan.item();
 
-             if (isInventoryItem) {
-                 // It's an inventory item, check stock
-                 if (item.getQuantityInStock() > 0) {
+             if (scan.isMeasured()) {
+                 // A price or weight label: one package per scan, on its own line (packages in the cart take stock too)
+                 int available = scan.availableStock();
+                 if (available > cart.quantityOf(item.getBarcode())) {
+                     addMeasuredItemToTable(scan);
+                 } else {
+                     showScanProblem(available < 1 ? "Item '" + item.getName() + "' (ID: " + barcode + ") is out of stock."
+                             : "Not enough stock for another package of '" + item.getName() + "' (available: " + available + ")");
+                 }
+             } else if (scan.isInventoryItem()) {
+                 // It's an inventory item, check its stock as of now
+                 if (scan.availableStock() > 0) {
                      // Add quantity 1 (addItemToTable handles increments if already present)
-                     TransactionItem transItem = new TransactionItem(item, 1);
-                     addItemToTable(transItem); // Add/Update item in the list/table
+                     addItemToTable(item, true, 1);
                  } else {
-                      JOptionPane.showMessageDialog(this,
-                         "Item '" + item.getName() + "' (ID: " + barcode + ") is out of stock.",
-                         "Stock Error", JOptionPane.ERROR_MESSAGE);
+                     showScanProblem("Item '" + item.getName() + "' (ID: " + barcode + ") is out of stock.");
                  }
              } else {
                  // It's a temporary item found in the session store, no stock check needed
                  System.out.println("Found previously added item: " + barcode);
-                 TransactionItem transItem = new TransactionItem(item, 1);
-                 addItemToTable(transItem); // Add/Update item in the list/table
+                 addItemToTable(item, false, 1);
              }
-             // --- END OF ITEM FOUND LOGIC ---
-
+         } else if (Gs1.looksLikeGtin(barcode) && !Gs1.hasValidCheckDigit(barcode)) {
+             // A mistyped or misread product code: don't offer to create an item for it
+             showScanProblem("Barcode '" + barcode + "' has an invalid check digit. Please scan or key it in again.");
          } else {
+             // Not found anywhere: keep scanning, the cashier adds it with 'Add Unknown Item' afterwards
+             unknownScans.merge(barcode, 1, Integer::sum);
+             updateUnknownItemButton();
+             showScanProblem("Item with barcode '" + barcode + "' not found in inventory. Use 'Add Unknown Item' to add it.");
+         }
+    }
+
+    /** Offers the oldest unknown barcode of the sale as a new temporary item */
+    private void addUnknownItemAction(ActionEvent e) {
+        Iterator<Map.Entry<String, Integer>> waiting = unknownScans.entrySet().iterator();
+        if (!waiting.hasNext()) {
+            return;
+        }
+        Map.Entry<String, Integer> next = waiting.next();
+        String barcode = next.getKey();
+        int quantity = next.getValue(); // Times it was scanned
+        waiting.remove();
+        updateUnknownItemButton();
+        try {
+            addUnknownItem(barcode, quantity);
+        } finally {
+            updateTotal();
+            barcodeInput.requestFocusInWindow();
+        }
+    }
+
+    private void addUnknownItem(String barcode, int quantity) {
+         InventoryService invService = mainFrame.getInventoryService();
+         // It may have been added since it was scanned (e.g. keyed in on another register)
+         ItemLookup lookup = invService.lookup(barcode, new ItemLookup());
+         if (lookup.isFound() && !lookup.isMeasured()) {
+             if (lookup.getAvailableStock() > 0) {
+                 addItemToTable(lookup.getItem(), lookup.isInventoryItem(), Math.min(quantity, lookup.getAvailableStock()));
+             } else {
+                 showScanProblem("Item '" + lookup.getItem().getName() + "' (ID: " + barcode + ") is out of stock.");
+             }
+             return;
+         }
+
             // --- ITEM *NOT* FOUND ANYWHERE (INVENTORY OR TEMPORARY STORE) ---
             // Ask to add as a new temporary item for the session
             int choice = JOptionPane.showConfirmDialog(this,
-                    "Item with barcode '" + barcode + "' not found in inventory.\nDo you want to add it to sale?",
+                    "Item with barcode '" + barcode + "' (scanned " + quantity + "x) not found in inventory.\nDo you want to add it to sale?",
                     "Add New Item?",
                     JOptionPane.YES_NO_OPTION,
                     JOptionPane.QUESTION_MESSAGE);
@@ -318,8 +538,6 @@ public class PosPanel extends JPanel {
                 while (name.isEmpty()) {
                     name = JOptionPane.showInputDialog(this, "Enter name for new item (Barcode: " + barcode + "):");
                     if (name == null) { // User cancelled name input
-                        barcodeInput.setText("");
-                        barcodeInput.requestFocusInWindow();
                         return; // Cancelled adding temporary item
                     }
                     name = name.trim();
@@ -328,22 +546,20 @@ public class PosPanel extends JPanel {
                     }
                 }
 
-                double price = -1.0;
+                long price = -1; // Cents
                 while (price < 0) { // Loop until valid price or cancellation
                     String priceStr = JOptionPane.showInputDialog(this, "Enter price for '" + name + "':");
                     if (priceStr == null) { // User cancelled price input
-                        barcodeInput.setText("");
-                        barcodeInput.requestFocusInWindow();
                         return; // Cancelled adding temporary item
                     }
                     try {
-                        price = Double.parseDouble(priceStr.trim());
+                        price = Money.parse(priceStr);
                         if (price < 0) {
                             JOptionPane.showMessageDialog(this, "Price cannot be negative. Please enter a valid price.", "Input Error", JOptionPane.WARNING_MESSAGE);
                         }
                     } catch (NumberFormatException nfe) {
                         JOptionPane.showMessageDialog(this, "Invalid price format. Please enter a number (e.g., 4.99).", "Input Error", JOptionPane.WARNING_MESSAGE);
-                        price = -1.0; // Reset price to ensure loop continues
+                        price = -1; // Reset price to ensure loop continues
                     }
                 }
 
@@ -355,15 +571,12 @@ public class PosPanel extends JPanel {
                 } catch (IllegalArgumentException ex) {
                     // Handle potential errors from addTemporaryItem, e.g., conflict with inventory barcode if that check was enabled
                     JOptionPane.showMessageDialog(this, "Error adding temporary item: " + ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-                    barcodeInput.setText("");
-                    barcodeInput.requestFocusInWindow();
                     return;
                 }
 
 
-                // --- Create TransactionItem and Add to Current Sale Table ---
-                TransactionItem transItem = new TransactionItem(tempItem, 1); // Add quantity 1 to the sale
-                addItemToTable(transItem); // Add to the visual table/list
+                // --- Add to Current Sale Table ---
+                addItemToTable(tempItem, false, quantity); // Every scan of it so far
 
                 JOptionPane.showMessageDialog(this, "Temporary item '" + name + "' added for this session.", "Item Added Temporarily", JOptionPane.INFORMATION_MESSAGE);
 
@@ -374,12 +587,6 @@ public class PosPanel extends JPanel {
                    "Lookup Error",
                    JOptionPane.ERROR_MESSAGE);
             }
-             // --- END OF ITEM NOT FOUND LOGIC ---
-         }
-
-         // Clear input field and set focus back for next scan, regardless of outcome
-         barcodeInput.setText("");
-         barcodeInput.requestFocusInWindow();
     }
 
 
@@ -391,16 +598,31 @@ public class PosPanel extends JPanel {
               return;
          }
 
-        if (currentTransactionItems.isEmpty()) {
+        if (!scanPipeline.isIdle()) {
+            // The last scans are still on their way to the cart
+            showScanProblem("Still adding scanned items. Please complete the sale again.");
+            return;
+        }
+
+        if (cart.isEmpty()) {
              JOptionPane.showMessageDialog(this, "Cannot complete sale. No items have been added.", "Empty Sale", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
+        if (!unknownScans.isEmpty()) {
+            int choice = JOptionPane.showConfirmDialog(this,
+                    unknownScans.size() + " unknown barcode(s) have not been added to the sale.\nComplete the sale without them?",
+                    "Unknown Items", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+            if (choice != JOptionPane.YES_OPTION) {
+                return;
+            }
+        }
+
          TransactionService transService = mainFrame.getTransactionService();
          try {
              // processSale logic in TransactionService already handles not decrementing stock
              // for items not found in main inventory (which now includes our temporary items)
-             Receipt receipt = transService.processSale(new ArrayList<>(currentTransactionItems), currentEmployee);
+             Receipt receipt = transService.processSale(cart.toTransactionItems(), currentEmployee);
 
              // Display success message with receipt details
              JTextArea receiptArea = new JTextArea(receipt.getFormattedReceipt());
@@ -412,9 +634,11 @@ public class PosPanel extends JPanel {
              JOptionPane.showMessageDialog(this, scrollPane, "Sale Completed - Receipt ID: " + receipt.getReceiptId(), JOptionPane.INFORMATION_MESSAGE);
 
              // Clear the current sale state AFTER successful completion
-             currentTransactionItems.clear();
-             saleTableModel.setRowCount(0);
+             cart.clear();
              updateTotal();
+             unknownScans.clear();
+             updateUnknownItemButton();
+             scanStatusLabel.setText(" ");
              barcodeInput.requestFocusInWindow(); // Ready for next transaction
 
          } catch (TransactionService.TransactionException ex) {
@@ -439,6 +663,18 @@ public class PosPanel extends JPanel {
          }
         originalReceiptId = originalReceiptId.trim().toUpperCase();
 
+        TransactionService transService = mainFrame.getTransactionService();
+        Optional<Receipt> originalReceipt = transService.findReceiptById(originalReceiptId);
+        if (originalReceipt.isEmpty() || originalReceipt.get().getType() != TransactionType.PURCHASE) {
+            JOptionPane.showMessageDialog(this, "No purchase receipt with ID '" + originalReceiptId + "' was found.", "Return Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        if (!transService.isWithinReturnWindow(originalReceiptId)) {
+            JOptionPane.showMessageDialog(this, "Receipt '" + originalReceiptId + "' is past the " + transService.getReturnWindow().toDays()
+                    + "-day return window.", "Return Error", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
         List<TransactionItem> itemsToReturn = new ArrayList<>();
         InventoryService invService = mainFrame.getInventoryService();
 
@@ -457,22 +693,41 @@ public class PosPanel extends JPanel {
                  continue;
              }
              Item item = itemOpt.get(); // Item could be from inventory OR temporary store
+             // A price or weight label is one package: it is matched to the sold package by its label value
+             Gs1.Measure measure = Gs1.measureOf(barcode);
+             int measuredValue = Gs1.measuredValue(barcode);
+             int returnable = transService.getReturnableQuantity(originalReceiptId, barcode);
+             if (returnable < 0) {
+                 JOptionPane.showMessageDialog(this, "'" + item.getName() + "' was not purchased on receipt " + originalReceiptId + ".", "Return Error", JOptionPane.WARNING_MESSAGE);
+                 continue;
+             }
 
-             String qtyStr = JOptionPane.showInputDialog(this, "Enter quantity of '" + item.getName() + "' to return:", "Return Quantity", JOptionPane.QUESTION_MESSAGE);
              int quantity;
-             try {
-                 if (qtyStr == null) continue; // User cancelled quantity input
-                 quantity = Integer.parseInt(qtyStr.trim());
-                 if (quantity <= 0) throw new NumberFormatException();
-             } catch (NumberFormatException ex) {
-                  JOptionPane.showMessageDialog(this, "Invalid quantity. Please enter a positive whole number.", "Input Error", JOptionPane.ERROR_MESSAGE);
+             if (measure != Gs1.Measure.NONE) {
+                 quantity = 1;
+             } else {
+                 String qtyStr = JOptionPane.showInputDialog(this, "Enter quantity of '" + item.getName() + "' to return:", "Return Quantity", JOptionPane.QUESTION_MESSAGE);
+                 try {
+                     if (qtyStr == null) continue; // User cancelled quantity input
+                     quantity = Integer.parseInt(qtyStr.trim());
+                     if (quantity <= 0) throw new NumberFormatException();
+                 } catch (NumberFormatException ex) {
+                      JOptionPane.showMessageDialog(this, "Invalid quantity. Please enter a positive whole number.", "Input Error", JOptionPane.ERROR_MESSAGE);
+                     continue;
+                 }
+             }
+
+             int alreadyListed = itemsToReturn.stream()
+                     .filter(line -> line.getItem().getBarcode().equals(item.getBarcode())
+                             && line.getMeasure() == measure && line.getMeasuredValue() == measuredValue)
+                     .mapToInt(TransactionItem::getQuantity).sum();
+             if (quantity + alreadyListed > returnable) {
+                 JOptionPane.showMessageDialog(this, "Only " + (returnable - alreadyListed) + " of '" + item.getName() + "' can still be returned on this receipt.", "Return Error", JOptionPane.WARNING_MESSAGE);
                  continue;
              }
 
-             // Capture the item details (including price) at the time of return lookup
-             // Note: For more accuracy, a real system would look up the price from the *original* receipt.
-            // Here, we use the current price (from inventory or temporary store).
-            itemsToReturn.add(new TransactionItem(item, quantity));
+            // The refund is priced from the original receipt by TransactionService
+            itemsToReturn.add(new TransactionItem(item, quantity, item.getPriceCents(), measure, measuredValue));
             JOptionPane.showMessageDialog(this, quantity + " x '" + item.getName() + "' added to return list.", "Item Added", JOptionPane.INFORMATION_MESSAGE);
         }
 
@@ -481,13 +736,19 @@ public class PosPanel extends JPanel {
             return;
         }
 
-        Double customRefundAmount = null;
-        // Calculate refund based on current prices (or prices stored in temporary items)
-        double calculatedRefund = itemsToReturn.stream().mapToDouble(TransactionItem::getSubtotal).sum();
+        Long customRefundAmount = null; // Cents
+        // Calculate refund based on the prices on the original receipt
+        long calculatedRefund;
+        try {
+            calculatedRefund = transService.calculateRefund(originalReceiptId, itemsToReturn);
+        } catch (TransactionService.TransactionException ex) {
+            JOptionPane.showMessageDialog(this, "Error processing return: " + ex.getMessage(), "Return Failed", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
 
         if (currentEmployee instanceof Manager manager && manager.canDoFlexibleRefund()) {
             int choice = JOptionPane.showConfirmDialog(this,
-                    String.format("Standard calculated refund is $%.2f.\nSpecify a different amount?", calculatedRefund),
+                    "Standard calculated refund is " + Money.display(calculatedRefund) + ".\nSpecify a different amount?",
                     "Manager Refund Option",
                     JOptionPane.YES_NO_OPTION,
                     JOptionPane.QUESTION_MESSAGE);
@@ -496,7 +757,7 @@ public class PosPanel extends JPanel {
                 String customAmountStr = JOptionPane.showInputDialog(this, "Enter the total custom refund amount:", "Custom Refund Amount", JOptionPane.QUESTION_MESSAGE);
                 try {
                     if (customAmountStr != null) {
-                        customRefundAmount = Double.parseDouble(customAmountStr.trim());
+                        customRefundAmount = Money.parse(customAmountStr);
                         if (customRefundAmount < 0) {
                             JOptionPane.showMessageDialog(this, "Refund amount cannot be negative. Using calculated.", "Input Error", JOptionPane.WARNING_MESSAGE);
                             customRefundAmount = null; // Revert to calculated
@@ -509,7 +770,6 @@ public class PosPanel extends JPanel {
             }
         }
 
-        TransactionService transService = mainFrame.getTransactionService();
         try {
             // The processReturn method in TransactionService needs modification
             // to check if an item is temporary before attempting restock.
@@ -599,6 +859,54 @@ public class PosPanel extends JPanel {
         }
     }
 
+    /** Lists the temporary items keyed in most often and, if confirmed, adds them to the inventory */
+    private void promoteTemporaryItemsAction(ActionEvent e) {
+        if (!(mainFrame.getLoggedInEmployee() instanceof Manager)) {
+            JOptionPane.showMessageDialog(this, "Only Managers can add items to the inventory.", "Permission Denied", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        InventoryService invService = mainFrame.getInventoryService();
+        List<TemporaryItemStore.Usage> candidates = invService.getMostUsedTemporaryItems(PROMOTE_MAX_ITEMS, PROMOTE_MIN_HITS);
+        if (candidates.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "No temporary item has been keyed in at least " + PROMOTE_MIN_HITS + " times.",
+                    "Promote Keyed Items", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        StringBuilder message = new StringBuilder("Add these temporary items to the inventory?\n"
+                + "You will be asked for the opening stock of each.\n\n");
+        candidates.forEach(usage -> message.append(String.format("  - %s (%s) %s, keyed %d times\n",
+                usage.item().getName(), usage.item().getBarcode(), Money.display(usage.item().getPriceCents()), usage.hits())));
+        int choice = JOptionPane.showConfirmDialog(this, message.toString(), "Promote Keyed Items", JOptionPane.YES_NO_OPTION);
+        if (choice != JOptionPane.YES_OPTION) {
+            return;
+        }
+        Map<String, Integer> openingStock = new LinkedHashMap<>();
+        for (TemporaryItemStore.Usage usage : candidates) {
+            Item item = usage.item();
+            while (true) {
+                String qtyStr = JOptionPane.showInputDialog(this, "Opening stock of '" + item.getName() + "' (" + item.getBarcode()
+                        + "), blank to skip:", "Promote Keyed Items", JOptionPane.QUESTION_MESSAGE);
+                if (qtyStr == null || qtyStr.trim().isEmpty()) {
+                    break; // Stays a temporary item
+                }
+                try {
+                    int quantity = Integer.parseInt(qtyStr.trim());
+                    if (quantity < 0) throw new NumberFormatException();
+                    openingStock.put(item.getBarcode(), quantity);
+                    break;
+                } catch (NumberFormatException ex) {
+                    JOptionPane.showMessageDialog(this, "Invalid quantity. Please enter a whole number of 0 or more.", "Input Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }
+        if (openingStock.isEmpty()) {
+            return;
+        }
+        List<Item> promoted = invService.promoteTemporaryItems(openingStock);
+        JOptionPane.showMessageDialog(this, promoted.size() + " item(s) added to the inventory.",
+                "Promote Keyed Items", JOptionPane.INFORMATION_MESSAGE);
+    }
+
     /** Handles checking and displaying low/out-of-stock items (from main inventory) */
     private void checkLowStockAction(ActionEvent e) {
         InventoryService invService = mainFrame.getInventoryService();
@@ -607,12 +915,11 @@ public class PosPanel extends JPanel {
         List<Item> outOfStock = invService.getOutOfStockItems();
 
         StringBuilder message = new StringBuilder("--- Main Inventory Stock Levels ---\n\n");
-        int lowStockThreshold = invService.getLowStockThreshold();
 
         if (!lowStock.isEmpty()) {
-            message.append(String.format("** LOW STOCK ITEMS (<= %d Units) **\n", lowStockThreshold));
-            lowStock.forEach(item -> message.append(String.format("  - %s (%s): %d left\n",
-                    item.getName(), item.getBarcode(), item.getQuantityInStock())));
+            message.append("** LOW STOCK ITEMS **\n");
+            lowStock.forEach(item -> message.append(String.format("  - %s (%s): %d left (threshold %d)\n",
+                    item.getName(), item.getBarcode(), item.getQuantityInStock(), item.getLowStockThreshold())));
         } else {
             message.append("** No items currently low on stock in main inventory. **\n");
         }
@@ -0,0 +1,124 @@
+package com.pos.ui;
+
+import com.pos.model.Cart;
+import com.pos.model.CartLine;
+import com.pos.model.Gs1;
+import com.pos.model.Money;
+
+import javax.swing.JTable;
+import javax.swing.SwingConstants;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+
+/**
+ * The sale grid's view of the cart. Rows are read straight from the cart's lines, so the model
+ * keeps no copy of them. Cells are only formatted when the table paints them (i.e. the visible
+ * rows): money columns hold the amount in cents and one shared renderer formats it.
+ *
+ * Changes are collected and announced in one go: the cart is updated first, rows that changed are
+ * marked with rowChanged, and publishChanges fires one insert event for the new lines and one
+ * update event for the range of changed rows. A burst of scans therefore costs one repaint of the
+ * affected rows, however many lines the basket has. Only used on the EDT.
+ */
+final class SaleTableModel extends AbstractTableModel {
+    static final int BARCODE = 0, NAME = 1, QTY = 2, PRICE = 3, SUBTOTAL = 4;
+    private static final String[] COLUMN_NAMES = {"Barcode", "Name", "Qty", "Price", "Subtotal"};
+
+    private final Cart cart;
+    private int rowCount; // Lines the table has been told about
+    private int firstChanged = Integer.MAX_VALUE; // Range of rows changed since the last publish
+    private int lastChanged = -1;
+
+    SaleTableModel(Cart cart) {
+        this.cart = cart;
+    }
+
+    /** Marks an existing line as changed (its quantity or subtotal), to be announced by publishChanges. */
+    void rowChanged(int row) {
+        firstChanged = Math.min(firstChanged, row);
+        lastChanged = Math.max(lastChanged, row);
+    }
+
+    /** Tells the table about the lines added and changed since the last call (or that the cart was cleared). */
+    void publishChanges() {
+        int size = cart.size();
+        int oldCount = rowCount;
+        int first = firstChanged;
+        int last = Math.min(lastChanged, oldCount - 1);
+        rowCount = size;
+        firstChanged = Integer.MAX_VALUE;
+        lastChanged = -1;
+        if (size < oldCount) {
+            fireTableDataChanged(); // Cleared (or lines removed)
+            return;
+        }
+        if (first <= last) {
+            fireTableRowsUpdated(first, last);
+        }
+        if (size > oldCount) {
+            fireTableRowsInserted(oldCount, size - 1);
+        }
+    }
+
+    /** Makes the table use one shared renderer for the money columns. */
+    void installRenderers(JTable table) {
+        table.setDefaultRenderer(Long.class, new MoneyRenderer());
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return switch (column) {
+            case QTY -> Integer.class;
+            case PRICE, SUBTOTAL -> Long.class;
+            default -> String.class;
+        };
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        CartLine line = cart.getLine(row);
+        return switch (column) {
+            case BARCODE -> line.getItem().getBarcode();
+            case NAME -> nameOf(line);
+            case QTY -> line.getQuantity();
+            case PRICE -> line.getUnitPrice();
+            case SUBTOTAL -> line.getSubtotal();
+            default -> throw new IllegalArgumentException("No column " + column);
+        };
+    }
+
+    // A weighed package shows its weight after the name
+    private static String nameOf(CartLine line) {
+        if (line.getMeasure() == Gs1.Measure.WEIGHT) {
+            return String.format("%s (%.3f kg)", line.getItem().getName(), line.getMeasuredValue() / 1000.0);
+        }
+        return line.getItem().getName();
+    }
+
+    // Formats cents only for the cells being painted (one instance shared by both money columns)
+    private static final class MoneyRenderer extends DefaultTableCellRenderer {
+        MoneyRenderer() {
+            setHorizontalAlignment(SwingConstants.RIGHT);
+        }
+
+        @Override
+        protected void setValue(Object value) {
+            setText(value instanceof Long cents ? Money.format(cents) : "");
+        }
+    }
+}
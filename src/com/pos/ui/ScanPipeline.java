@@ -0,0 +1,142 @@
+package com.pos.ui;
+
+import com.pos.model.Gs1;
+import com.pos.model.Item;
+import com.pos.service.InventoryService;
+import com.pos.service.ItemLookup;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Resolves scanned barcodes off the Swing event thread.
+ *
+ * The barcode field submits each scan to a bounded queue (a full queue rejects the scan rather
+ * than blocking the UI). A worker thread takes the scans in batches and resolves them with
+ * InventoryService.lookup. Results are handed back to the event thread in one invokeLater per
+ * burst: while an update is already scheduled, newly resolved scans join it instead of
+ * scheduling another, so a scanner burst costs a few UI updates instead of one per code.
+ * The cart itself is only touched on the event thread, by the consumer.
+ */
+final class ScanPipeline {
+    static final int DEFAULT_CAPACITY = 256;
+    private static final int MAX_BATCH = 64;
+
+    // A scan resolved by the worker, applied on the event thread
+    record ScanResult(String barcode, Item item, ItemLookup.Source source, Gs1.Measure measure, int measuredValue,
+                      String error, int generation) {
+        boolean isFound() { return source != ItemLookup.Source.NOT_FOUND; }
+        boolean isInventoryItem() { return source == ItemLookup.Source.INVENTORY; }
+        boolean isMeasured() { return measure != Gs1.Measure.NONE; }
+
+        // Stock that can be sold when the result is applied (as ItemLookup.getAvailableStock)
+        int availableStock() {
+            return switch (source) {
+                case INVENTORY -> item.getQuantityInStock();
+                case TEMPORARY -> Integer.MAX_VALUE;
+                case NOT_FOUND -> 0;
+            };
+        }
+    }
+
+    private record Scan(String barcode, int generation) { }
+
+    private final InventoryService inventoryService;
+    private final Consumer<List<ScanResult>> consumer; // Called on the event thread
+    private final BlockingQueue<Scan> queue;
+    private final Queue<ScanResult> resolved = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+    private final AtomicInteger pending = new AtomicInteger(); // Submitted, not yet applied or dropped
+    private volatile int generation; // Bumped by clear(); older scans are dropped
+
+    ScanPipeline(InventoryService inventoryService, int capacity, Consumer<List<ScanResult>> consumer) {
+        this.inventoryService = inventoryService;
+        this.consumer = consumer;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        Thread worker = new Thread(this::run, "scan-pipeline");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Queues a scan (never blocks). return false if the queue is full and the scan was not taken. */
+    boolean submit(String barcode) {
+        pending.incrementAndGet();
+        if (!queue.offer(new Scan(barcode, generation))) {
+            pending.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /** True if every submitted scan has been applied (e.g. before completing a sale). */
+    boolean isIdle() {
+        return pending.get() == 0;
+    }
+
+    /** Drops the queued scans and any result not applied yet (e.g. on logout). */
+    void clear() {
+        generation++;
+        List<Scan> dropped = new ArrayList<>();
+        queue.drainTo(dropped);
+        pending.addAndGet(-dropped.size());
+    }
+
+    private void run() {
+        ItemLookup lookup = new ItemLookup(); // Owned by the worker, copied into each result
+        List<Scan> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, MAX_BATCH - 1);
+            for (Scan scan : batch) {
+                if (scan.generation() != generation) {
+                    pending.decrementAndGet();
+                    continue;
+                }
+                try {
+                    inventoryService.lookup(scan.barcode(), lookup);
+                    resolved.add(new ScanResult(scan.barcode(), lookup.getItem(), lookup.getSource(), lookup.getMeasure(),
+                            lookup.getMeasuredValue(), null, scan.generation()));
+                } catch (RuntimeException e) {
+                    resolved.add(new ScanResult(scan.barcode(), null, ItemLookup.Source.NOT_FOUND, Gs1.Measure.NONE, -1,
+                            "Lookup failed: " + e.getMessage(), scan.generation()));
+                }
+            }
+            batch.clear();
+            if (updateScheduled.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(this::deliver);
+            }
+        }
+    }
+
+    // On the event thread: hands every result resolved so far to the consumer in one call
+    private void deliver() {
+        updateScheduled.set(false); // Results added from now on schedule another update
+        List<ScanResult> results = new ArrayList<>();
+        int polled = 0; // Stale results included: they were counted as pending too
+        for (ScanResult result; (result = resolved.poll()) != null; ) {
+            polled++;
+            if (result.generation() == generation) {
+                results.add(result);
+            }
+        }
+        try {
+            if (!results.isEmpty()) {
+                consumer.accept(results);
+            }
+        } finally {
+            pending.addAndGet(-polled);
+        }
+    }
+}